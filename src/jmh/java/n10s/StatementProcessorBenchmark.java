@@ -0,0 +1,130 @@
+package n10s;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import n10s.bench.BenchmarkDatabase;
+import n10s.bench.LubmLikeGenerator;
+import n10s.bench.SkosThesaurusGenerator;
+import n10s.graphconfig.GraphConfig;
+import n10s.graphconfig.RDFParserConfig;
+import n10s.utils.NsPrefixMap;
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.Statement;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.logging.Log;
+import org.neo4j.logging.NullLog;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Mapping of parsed statements to labels, properties and relationships (the parser side of an
+ * import), without writing anything. Scores are per pass over the (at most 100k) statements.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class StatementProcessorBenchmark {
+
+  private static final int STATEMENTS = 100000;
+
+  @Param({"LUBM", "SKOS"})
+  public String dataset;
+
+  @Param({"SHORTEN", "IGNORE", "KEEP"})
+  public String handleVocabUris;
+
+  private BenchmarkDatabase database;
+  private Transaction tx;
+  private MappingOnlyProcessor processor;
+  private List<Statement> statements;
+  private List<Statement> literalStatements;
+
+  @Setup
+  public void setup() throws Exception {
+    statements = dataset.equals("LUBM")
+        ? LubmLikeGenerator.generate(10, 6, 42L)
+        : SkosThesaurusGenerator.generate(8000, 8, 42L);
+    statements = statements.subList(0, Math.min(STATEMENTS, statements.size()));
+    literalStatements = new ArrayList<>();
+    for (Statement st : statements) {
+      if (st.getObject() instanceof Literal) {
+        literalStatements.add(st);
+      }
+    }
+
+    // only needed for the namespace prefixes
+    database = new BenchmarkDatabase("{}");
+    tx = database.db().beginTx();
+    Map<String, Object> graphConfig = new HashMap<>();
+    graphConfig.put("handleVocabUris", handleVocabUris);
+    graphConfig.put("handleMultival", "ARRAY");
+    processor = new MappingOnlyProcessor(database.db(), tx,
+        new RDFParserConfig(new HashMap<>(), new GraphConfig(graphConfig)), NullLog.getInstance());
+    processor.shareNamespaces(new NsPrefixMap(tx, false));
+    processor.startRDF();
+  }
+
+  @TearDown
+  public void tearDown() {
+    tx.close();
+    database.close();
+  }
+
+  @Benchmark
+  public void handleStatement(Blackhole bh) {
+    for (Statement st : statements) {
+      processor.handleStatement(st);
+    }
+    bh.consume(processor.mappedTripleCounter);
+  }
+
+  @Benchmark
+  public void getObjectValue(Blackhole bh) {
+    for (Statement st : literalStatements) {
+      bh.consume(processor.getObjectValue(st.getPredicate(), (Literal) st.getObject()));
+    }
+  }
+
+  /**
+   * Drops what it has buffered at every partial commit instead of writing it.
+   */
+  static class MappingOnlyProcessor extends RDFToLPGStatementProcessor {
+
+    MappingOnlyProcessor(GraphDatabaseService db, Transaction tx, RDFParserConfig conf, Log l) {
+      super(db, tx, conf, l);
+    }
+
+    @Override
+    protected void periodicOperation() {
+      statements.clear();
+      resourceLabels.clear();
+      resourceProps.clear();
+      relProps.clear();
+      totalTriplesMapped += mappedTripleCounter;
+      mappedTripleCounter = 0;
+    }
+
+    @Override
+    public void endRDF() {
+      periodicOperation();
+    }
+  }
+}
@@ -0,0 +1,71 @@
+package n10s.bench;
+
+import static n10s.CommonProcedures.UNIQUENESS_CONSTRAINT_STATEMENT;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import n10s.graphconfig.GraphConfigProcedures;
+import n10s.nsprefixes.NsPrefixDefProcedures;
+import n10s.rdf.RDFProcedures;
+import n10s.rdf.load.RDFLoadProcedures;
+import n10s.validation.ValidationProcedures;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.Rio;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.harness.Neo4j;
+import org.neo4j.harness.Neo4jBuilders;
+
+/**
+ * Embedded database with the n10s procedures registered, the uri constraint and a graph config,
+ * shared by the benchmarks that need a graph.
+ */
+public class BenchmarkDatabase implements AutoCloseable {
+
+  private final Neo4j neo4j;
+
+  public BenchmarkDatabase(String graphConfigParams) {
+    neo4j = Neo4jBuilders.newInProcessBuilder()
+        .withProcedure(RDFLoadProcedures.class)
+        .withFunction(RDFProcedures.class)
+        .withProcedure(GraphConfigProcedures.class)
+        .withProcedure(NsPrefixDefProcedures.class)
+        .withProcedure(ValidationProcedures.class)
+        .build();
+    db().executeTransactionally(UNIQUENESS_CONSTRAINT_STATEMENT);
+    db().executeTransactionally("CALL n10s.graphconfig.init(" + graphConfigParams + ")");
+  }
+
+  public GraphDatabaseService db() {
+    return neo4j.defaultDatabaseService();
+  }
+
+  /**
+   * Loads the statements with n10s.rdf.import.fetch (through a temporary N-Triples file).
+   */
+  public void load(List<Statement> statements) throws IOException {
+    Path file = writeNTriples(statements);
+    try {
+      db().executeTransactionally("CALL n10s.rdf.import.fetch('" + file.toUri()
+          + "','N-Triples')");
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  public static Path writeNTriples(List<Statement> statements) throws IOException {
+    Path file = Files.createTempFile("n10s-bench", ".nt");
+    try (OutputStream out = Files.newOutputStream(file)) {
+      Rio.write(statements, out, RDFFormat.NTRIPLES);
+    }
+    return file;
+  }
+
+  @Override
+  public void close() {
+    neo4j.close();
+  }
+}
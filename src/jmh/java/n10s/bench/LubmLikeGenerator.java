@@ -0,0 +1,133 @@
+package n10s.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
+
+/**
+ * Synthetic university dataset shaped after LUBM (univ-bench ontology): universities made of
+ * departments with faculty, students and courses. A few hub nodes (classes, departments, popular
+ * courses) get most of the incoming relationships. The same seed always produces the same data.
+ */
+public class LubmLikeGenerator {
+
+  public static final String UB = "http://swat.cse.lehigh.edu/onto/univ-bench.owl#";
+
+  private static final ValueFactory vf = SimpleValueFactory.getInstance();
+  private static final String[] FACULTY_TYPES = {"FullProfessor", "AssociateProfessor",
+      "AssistantProfessor", "Lecturer"};
+
+  private final Random random;
+  private final int departmentsPerUniversity;
+  private final List<Statement> statements = new ArrayList<>();
+
+  private LubmLikeGenerator(long seed, int departmentsPerUniversity) {
+    this.random = new Random(seed);
+    this.departmentsPerUniversity = departmentsPerUniversity;
+  }
+
+  /**
+   * @return roughly 1700 statements per department
+   */
+  public static List<Statement> generate(int universities, int departmentsPerUniversity,
+      long seed) {
+    return generate(0, universities, departmentsPerUniversity, seed);
+  }
+
+  /**
+   * Same as {@link #generate(int, int, long)} but starting at the given university number, to
+   * produce data that doesn't overlap with previously generated universities.
+   */
+  public static List<Statement> generate(int firstUniversity, int universities,
+      int departmentsPerUniversity, long seed) {
+    LubmLikeGenerator generator = new LubmLikeGenerator(seed + firstUniversity,
+        departmentsPerUniversity);
+    for (int u = firstUniversity; u < firstUniversity + universities; u++) {
+      generator.university(u);
+    }
+    return generator.statements;
+  }
+
+  private void university(int u) {
+    IRI university = vf.createIRI("http://www.University" + u + ".edu");
+    add(university, RDF.TYPE, ub("University"));
+    add(university, ub("name"), "University" + u);
+    for (int d = 0; d < departmentsPerUniversity; d++) {
+      department(university, u, d);
+    }
+  }
+
+  private void department(IRI university, int u, int d) {
+    String base = "http://www.Department" + d + ".University" + u + ".edu/";
+    IRI department = vf.createIRI(base);
+    add(department, RDF.TYPE, ub("Department"));
+    add(department, ub("name"), "Department" + d);
+    add(department, ub("subOrganizationOf"), university);
+
+    List<IRI> courses = new ArrayList<>();
+    for (int c = 0; c < 20; c++) {
+      IRI course = vf.createIRI(base + "Course" + c);
+      add(course, RDF.TYPE, ub(c < 14 ? "Course" : "GraduateCourse"));
+      add(course, ub("name"), "Course" + c);
+      courses.add(course);
+    }
+
+    List<IRI> faculty = new ArrayList<>();
+    for (int f = 0; f < 30; f++) {
+      String type = FACULTY_TYPES[f % FACULTY_TYPES.length];
+      IRI member = vf.createIRI(base + type + f);
+      add(member, RDF.TYPE, ub(type));
+      person(member, type + f, base);
+      add(member, ub("worksFor"), department);
+      add(member, ub("doctoralDegreeFrom"),
+          vf.createIRI("http://www.University" + random.nextInt(1000) + ".edu"));
+      add(member, ub("researchInterest"), "Research" + random.nextInt(100));
+      add(member, ub("teacherOf"), courses.get(f % courses.size()));
+      faculty.add(member);
+    }
+
+    for (int s = 0; s < 150; s++) {
+      boolean graduate = s % 4 == 0;
+      String type = graduate ? "GraduateStudent" : "UndergraduateStudent";
+      IRI student = vf.createIRI(base + type + s);
+      add(student, RDF.TYPE, ub(type));
+      person(student, type + s, base);
+      add(student, ub("memberOf"), department);
+      add(student, ub("age"), vf.createLiteral(18 + random.nextInt(15)));
+      add(student, ub("enrollmentDate"), vf.createLiteral(
+          (2000 + random.nextInt(20)) + "-09-01", XMLSchema.DATE));
+      // skewed: the first courses are much more popular
+      for (int c = 0; c < 2 + random.nextInt(3); c++) {
+        add(student, ub("takesCourse"),
+            courses.get((int) (courses.size() * Math.pow(random.nextDouble(), 2))));
+      }
+      if (graduate) {
+        add(student, ub("advisor"), faculty.get(random.nextInt(faculty.size())));
+      }
+    }
+  }
+
+  private void person(IRI person, String name, String base) {
+    add(person, ub("name"), name);
+    add(person, ub("emailAddress"), name + "@" + base.substring(11, base.length() - 1));
+    add(person, ub("telephone"), "xxx-xxx-" + (1000 + random.nextInt(9000)));
+  }
+
+  private static IRI ub(String localName) {
+    return vf.createIRI(UB, localName);
+  }
+
+  private void add(IRI s, IRI p, org.eclipse.rdf4j.model.Value o) {
+    statements.add(vf.createStatement(s, p, o));
+  }
+
+  private void add(IRI s, IRI p, String literal) {
+    statements.add(vf.createStatement(s, p, vf.createLiteral(literal)));
+  }
+}
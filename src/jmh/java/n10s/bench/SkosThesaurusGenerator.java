@@ -0,0 +1,66 @@
+package n10s.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.model.vocabulary.SKOS;
+import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
+
+/**
+ * Synthetic SKOS thesaurus: a concept scheme with a broader/narrower hierarchy of the given
+ * branching factor, multilingual (and multivalued) labels, typed notations and related links.
+ * The same seed always produces the same data.
+ */
+public class SkosThesaurusGenerator {
+
+  public static final String NS = "http://example.org/thesaurus/";
+
+  private static final ValueFactory vf = SimpleValueFactory.getInstance();
+  private static final String[] LANGUAGES = {"en", "fr", "es", "de"};
+
+  public static List<Statement> generate(int concepts, int branching, long seed) {
+    Random random = new Random(seed);
+    List<Statement> statements = new ArrayList<>();
+    IRI scheme = vf.createIRI(NS + "scheme");
+    statements.add(vf.createStatement(scheme, RDF.TYPE, SKOS.CONCEPT_SCHEME));
+    statements.add(vf.createStatement(scheme, SKOS.PREF_LABEL, vf.createLiteral("Thesaurus", "en")));
+
+    for (int i = 0; i < concepts; i++) {
+      IRI concept = concept(i);
+      statements.add(vf.createStatement(concept, RDF.TYPE, SKOS.CONCEPT));
+      statements.add(vf.createStatement(concept, SKOS.IN_SCHEME, scheme));
+      statements.add(vf.createStatement(concept, SKOS.NOTATION,
+          vf.createLiteral(String.format("C%06d", i), vf.createIRI(NS, "notationType"))));
+      for (String lang : LANGUAGES) {
+        statements.add(vf.createStatement(concept, SKOS.PREF_LABEL,
+            vf.createLiteral("concept " + i + " (" + lang + ")", lang)));
+      }
+      for (int a = 0; a < random.nextInt(4); a++) {
+        statements.add(vf.createStatement(concept, SKOS.ALT_LABEL,
+            vf.createLiteral("synonym " + a + " of " + i, LANGUAGES[random.nextInt(2)])));
+      }
+      statements.add(vf.createStatement(concept, SKOS.DEFINITION,
+          vf.createLiteral("Definition of concept " + i, XMLSchema.STRING)));
+      if (i == 0) {
+        statements.add(vf.createStatement(scheme, SKOS.HAS_TOP_CONCEPT, concept));
+      } else {
+        IRI broader = concept((i - 1) / branching);
+        statements.add(vf.createStatement(concept, SKOS.BROADER, broader));
+        statements.add(vf.createStatement(broader, SKOS.NARROWER, concept));
+      }
+      if (i > 0 && random.nextInt(5) == 0) {
+        statements.add(vf.createStatement(concept, SKOS.RELATED, concept(random.nextInt(i))));
+      }
+    }
+    return statements;
+  }
+
+  private static IRI concept(int i) {
+    return vf.createIRI(NS, "concept" + i);
+  }
+}
@@ -0,0 +1,71 @@
+package n10s.rdf.export;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import n10s.bench.BenchmarkDatabase;
+import n10s.bench.LubmLikeGenerator;
+import n10s.graphconfig.GraphConfig;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Export of single nodes as RDF (LPGToRDFProcesssor.processNode) from a graph imported from
+ * LUBM-like data. Nodes are picked at random (with a fixed seed) so hubs and leaves are mixed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class NodeExportBenchmark {
+
+  @Param({"SHORTEN", "IGNORE"})
+  public String handleVocabUris;
+
+  private BenchmarkDatabase database;
+  private Transaction tx;
+  private LPGToRDFProcesssor processor;
+  private List<Long> nodeIds;
+  private final Random random = new Random(42L);
+
+  @Setup
+  public void setup() throws Exception {
+    database = new BenchmarkDatabase("{ handleVocabUris: '" + handleVocabUris + "' }");
+    database.load(LubmLikeGenerator.generate(2, 5, 42L));
+    tx = database.db().beginTx();
+    processor = new LPGToRDFProcesssor(database.db(), tx, new GraphConfig(tx), new HashMap<>(),
+        false, false);
+    nodeIds = tx.findNodes(Label.label("Resource")).stream().map(Node::getId)
+        .collect(Collectors.toList());
+  }
+
+  @TearDown
+  public void tearDown() {
+    tx.close();
+    database.close();
+  }
+
+  @Benchmark
+  public void processNode(Blackhole bh) {
+    Node node = tx.getNodeById(nodeIds.get(random.nextInt(nodeIds.size())));
+    processor.processNode(node, null, null).forEach(bh::consume);
+  }
+}
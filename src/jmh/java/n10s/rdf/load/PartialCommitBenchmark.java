@@ -0,0 +1,86 @@
+package n10s.rdf.load;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import n10s.bench.BenchmarkDatabase;
+import n10s.bench.LubmLikeGenerator;
+import n10s.graphconfig.GraphConfig;
+import n10s.graphconfig.RDFParserConfig;
+import org.eclipse.rdf4j.model.Statement;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.logging.NullLog;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Writing of one partial commit (DirectStatementLoader.runPartialTx) to an embedded database.
+ * Every invocation writes one LUBM-like university (2 departments, ~3.5k triples), either a new
+ * one each time (the graph grows along the run) or the same one again (everything exists).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class PartialCommitBenchmark {
+
+  @Param({"new", "existing"})
+  public String subjects;
+
+  @Param({"LABELS", "LABELS_AND_NODES"})
+  public String handleRDFTypes;
+
+  private BenchmarkDatabase database;
+  private DirectStatementLoader loader;
+  private int nextUniversity = 0;
+
+  @Setup
+  public void setup() throws Exception {
+    database = new BenchmarkDatabase("{ handleRDFTypes: '" + handleRDFTypes + "' }");
+    Map<String, Object> props = new HashMap<>();
+    // partial commits are triggered by the benchmark only
+    props.put("commitSize", Long.MAX_VALUE - 1);
+    try (Transaction tx = database.db().beginTx()) {
+      loader = new DirectStatementLoader(database.db(), tx,
+          new RDFParserConfig(props, new GraphConfig(tx)), NullLog.getInstance());
+      loader.startRDF();
+    }
+  }
+
+  @Setup(Level.Invocation)
+  public void bufferBatch() {
+    List<Statement> batch = LubmLikeGenerator.generate(
+        subjects.equals("new") ? nextUniversity++ : 0, 1, 2, 42L);
+    for (Statement st : batch) {
+      loader.handleStatement(st);
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    database.close();
+  }
+
+  @Benchmark
+  public Integer runPartialTx() {
+    try (Transaction tx = database.db().beginTx()) {
+      Integer result = loader.runPartialTx(tx);
+      tx.commit();
+      return result;
+    }
+  }
+}
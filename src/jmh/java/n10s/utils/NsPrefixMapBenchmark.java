@@ -0,0 +1,73 @@
+package n10s.utils;
+
+import java.util.concurrent.TimeUnit;
+import n10s.bench.BenchmarkDatabase;
+import org.neo4j.graphdb.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * NsPrefixMap.getPrefixOrAdd, both for namespaces that already have a prefix and for a stream of
+ * new ones (generated prefixes) on top of the given number of existing namespaces.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class NsPrefixMapBenchmark {
+
+  private static final String NS = "http://example.org/vocabulary/v";
+
+  @Param({"10", "1000"})
+  public int existingNamespaces;
+
+  private BenchmarkDatabase database;
+  private Transaction tx;
+  private NsPrefixMap prefixes;
+  private int lookups = 0;
+  private int additions = 0;
+
+  @Setup
+  public void setup() {
+    database = new BenchmarkDatabase("{}");
+    tx = database.db().beginTx();
+  }
+
+  @Setup(Level.Iteration)
+  public void fillMap() throws Exception {
+    prefixes = new NsPrefixMap(tx, false);
+    for (int i = 0; i < existingNamespaces; i++) {
+      prefixes.getPrefixOrAdd(NS + i + "#", false);
+    }
+    additions = 0;
+  }
+
+  @TearDown
+  public void tearDown() {
+    tx.close();
+    database.close();
+  }
+
+  @Benchmark
+  public String existingNamespace() {
+    return prefixes.getPrefixOrAdd(NS + (lookups++ % existingNamespaces) + "#", false);
+  }
+
+  @Benchmark
+  public String newNamespace() {
+    return prefixes.getPrefixOrAdd("http://example.org/new/n" + additions++ + "#", false);
+  }
+}
@@ -0,0 +1,77 @@
+package n10s.validation;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import n10s.bench.BenchmarkDatabase;
+import n10s.bench.LubmLikeGenerator;
+import org.neo4j.graphdb.Result;
+import org.neo4j.graphdb.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Full graph SHACL validation (n10s.validation.shacl.validate) of LUBM-like data against a small
+ * set of shapes mixing cardinality, datatype, range and pattern constraints.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class ShaclValidationBenchmark {
+
+  private static final String SHAPES = "@prefix sh: <http://www.w3.org/ns/shacl#> .\n"
+      + "@prefix xsd: <http://www.w3.org/2001/XMLSchema#> .\n"
+      + "@prefix ub: <" + LubmLikeGenerator.UB + "> .\n"
+      + "@prefix ex: <http://example.org/shapes#> .\n"
+      + "ex:StudentShape a sh:NodeShape ; sh:targetClass ub:UndergraduateStudent ;\n"
+      + "  sh:property [ sh:path ub:name ; sh:minCount 1 ; sh:maxCount 1 ; sh:datatype xsd:string ] ;\n"
+      + "  sh:property [ sh:path ub:age ; sh:datatype xsd:integer ; sh:minInclusive 18 ; sh:maxInclusive 30 ] ;\n"
+      + "  sh:property [ sh:path ub:takesCourse ; sh:class ub:Course ; sh:maxCount 4 ] ;\n"
+      + "  sh:property [ sh:path ub:memberOf ; sh:class ub:Department ; sh:minCount 1 ] .\n"
+      + "ex:FacultyShape a sh:NodeShape ; sh:targetClass ub:FullProfessor ;\n"
+      + "  sh:property [ sh:path ub:emailAddress ; sh:pattern \"^.+@.+$\" ] ;\n"
+      + "  sh:property [ sh:path ub:teacherOf ; sh:class ub:Course ] ;\n"
+      + "  sh:property [ sh:path ub:worksFor ; sh:minCount 1 ; sh:maxCount 1 ] .\n";
+
+  @Param({"1", "5"})
+  public int universities;
+
+  private BenchmarkDatabase database;
+
+  @Setup
+  public void setup() throws Exception {
+    database = new BenchmarkDatabase("{}");
+    database.load(LubmLikeGenerator.generate(universities, 5, 42L));
+    database.db().executeTransactionally(
+        "CALL n10s.validation.shacl.import.inline($shapes, 'Turtle')",
+        Map.of("shapes", SHAPES));
+  }
+
+  @TearDown
+  public void tearDown() {
+    database.close();
+  }
+
+  @Benchmark
+  public void validate(Blackhole bh) {
+    try (Transaction tx = database.db().beginTx();
+        Result result = tx.execute("CALL n10s.validation.shacl.validate()")) {
+      while (result.hasNext()) {
+        bh.consume(result.next());
+      }
+    }
+  }
+}
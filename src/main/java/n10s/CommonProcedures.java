@@ -2,24 +2,36 @@ package n10s;
 
 import java.io.BufferedWriter;
 import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStreamWriter;
 import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.nio.charset.Charset;
+import java.nio.file.FileSystems;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
 import java.util.Iterator;
 import java.util.Map;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
 
+import n10s.graphconfig.RDFParserConfig;
 import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
 import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
 import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
-import org.apache.commons.io.IOUtils;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.apache.commons.compress.compressors.xz.XZCompressorInputStream;
+import org.apache.commons.compress.compressors.zstandard.ZstdCompressorInputStream;
+import org.apache.commons.compress.compressors.zstandard.ZstdUtils;
+import org.apache.commons.io.input.CloseShieldInputStream;
+import org.eclipse.rdf4j.model.Statement;
 import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFHandlerException;
 import org.eclipse.rdf4j.rio.RDFParser;
 import org.eclipse.rdf4j.rio.Rio;
 import org.eclipse.rdf4j.rio.helpers.BasicParserSettings;
@@ -111,77 +123,192 @@ public class CommonProcedures {
 
   protected void parseRDFPayloadOrFromUrl( RDFFormat format, String url, String rdfFragment,
      Map<String, Object> props, ConfiguredStatementHandler statementLoader) throws IOException {
+    parseRDFPayloadOrFromUrl(format, url, rdfFragment, props, statementLoader, null);
+  }
+
+  /**
+   * @param bnodePrefix when not null, blank nodes get their label in the source under this
+   * prefix as id, so that parsing the same source again (to resume an import) gives them the
+   * same ids. Otherwise they get ids unique to this parse.
+   */
+  protected void parseRDFPayloadOrFromUrl( RDFFormat format, String url, String rdfFragment,
+      Map<String, Object> props, ConfiguredStatementHandler statementLoader, String bnodePrefix)
+      throws IOException {
     if (rdfFragment != null) {
-      instantiateAndKickOffParser(
-          new ByteArrayInputStream(rdfFragment.getBytes(Charset.defaultCharset())),
-          "http://neo4j.com/base/", format, statementLoader);
+      instantiateAndKickOffParser(skipResumedLines(
+          new ByteArrayInputStream(rdfFragment.getBytes(Charset.defaultCharset())), format,
+          statementLoader), "http://neo4j.com/base/", format, statementLoader, bnodePrefix);
+    } else if (isArchiveEntryUrl(url) && isEntryPattern(url.substring(url.indexOf('!') + 1))) {
+      parseArchiveEntries(format, url, props, statementLoader, bnodePrefix);
+    } else if (statementLoader.getParserConfig().getParseThreads() > 1
+        && !(statementLoader instanceof ResumingHandler)
+        && ParallelLineFormatParser.isLineBased(format) && localUncompressedFile(url) != null) {
+      new ParallelLineFormatParser(localUncompressedFile(url), url, format, statementLoader,
+          statementLoader.getParserConfig().getParseThreads(), bnodePrefix).parse();
     } else {
-      instantiateAndKickOffParser(getInputStream(url, props), url, format, statementLoader);
+      try (InputStream inputStream = getInputStream(url, props)) {
+        instantiateAndKickOffParser(skipResumedLines(inputStream, format, statementLoader), url,
+            format, statementLoader, bnodePrefix);
+      }
+    }
+  }
+
+  /**
+   * Resumed imports of line based formats skip the statements already imported without parsing
+   * them. Other formats are fast-forwarded by the handler.
+   */
+  private InputStream skipResumedLines(InputStream in, RDFFormat format,
+      ConfiguredStatementHandler handler) throws IOException {
+    if (handler instanceof ResumingHandler && ParallelLineFormatParser.isLineBased(format)) {
+      return ((ResumingHandler) handler).skipLines(in);
     }
+    return in;
   }
 
   protected void instantiateAndKickOffParser(InputStream inputStream, @Name("url") String url,
       @Name("format") RDFFormat format,
       ConfiguredStatementHandler handler)
       throws IOException {
+    instantiateAndKickOffParser(inputStream, url, format, handler, null);
+  }
+
+  private void instantiateAndKickOffParser(InputStream inputStream, String url, RDFFormat format,
+      ConfiguredStatementHandler handler, String bnodePrefix) throws IOException {
     RDFParser rdfParser = Rio.createParser(format);
     rdfParser
         .set(BasicParserSettings.VERIFY_URI_SYNTAX, handler.getParserConfig().isVerifyUriSyntax());
+    if (bnodePrefix != null) {
+      PrefixedBNodeFactory.configure(rdfParser, bnodePrefix);
+    }
     rdfParser.setRDFHandler(handler);
     rdfParser.parse(inputStream, url);
   }
 
-  protected InputStream getInputStream(String url, Map<String, Object> props) throws IOException {
-    URLConnection urlConn;
-
-    if ((url.contains(".zip") || url.contains(".tgz")|| url.contains(".gz")|| url.contains(".bz2"))) {
-      String zipFileName = null;
-      if (url.contains("!")) {
-        String[] tokens = url.split("!");
-        url = tokens[0];
-        zipFileName = tokens[1];
-        if (zipFileName.equals("")){
-          throw new IllegalArgumentException("filename can't be empty");
-        }
-        if (!(url.endsWith(".tar.gz") || url.endsWith(".tgz")||url.endsWith(".zip"))){
-          throw new IllegalArgumentException("'!' notation for filenames can only be used with zip or tgz files");
-        }
-      }
-      urlConn = new URL(url).openConnection();
-
-      if (url.endsWith(".zip")) {
-        ZipInputStream zip = new ZipInputStream(urlConn.getInputStream());
-        if (zipFileName!=null){
-          ZipEntry zipEntry;
-          while ((zipEntry = zip.getNextEntry()) != null) {
-            if (!zipEntry.isDirectory() && zipEntry.getName().equals(zipFileName)) {
-              return new ByteArrayInputStream(IOUtils.toByteArray(zip));
-            }
+  /**
+   * Parses, in archive order and as a single import, every entry whose name matches the pattern
+   * after the '!' (wildcards * and ?). The archive is read only once.
+   */
+  private void parseArchiveEntries(RDFFormat format, String url, Map<String, Object> props,
+      ConfiguredStatementHandler handler, String bnodePrefix) throws IOException {
+    String archiveUrl = url.substring(0, url.indexOf('!'));
+    String pattern = url.substring(url.indexOf('!') + 1);
+    PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+    SingleDocumentHandler entryHandler = new SingleDocumentHandler(handler);
+    boolean matched = false;
+    int entryCount = 0;
+    try (ArchiveInputStream archive = openArchive(archiveUrl, props)) {
+      ArchiveEntry entry;
+      while ((entry = archive.getNextEntry()) != null) {
+        if (!entry.isDirectory() && matcher.matches(Paths.get(entry.getName()))) {
+          if (!matched) {
+            handler.startRDF();
+            matched = true;
           }
-        }else {
-          throw new IllegalArgumentException("Filename is required for zip files (use '!' notation)");
+          // blank node labels are scoped to their entry
+          instantiateAndKickOffParser(new CloseShieldInputStream(archive),
+              archiveUrl + "!" + entry.getName(), format, entryHandler,
+              bnodePrefix != null ? bnodePrefix + (entryCount++) + "-" : null);
         }
-      } else if (url.endsWith(".tar.gz") || url.endsWith(".tgz")) {
-        TarArchiveInputStream tgz = new TarArchiveInputStream(new GZIPInputStream(urlConn.getInputStream()));
-        if (zipFileName!=null){
-          ArchiveEntry zipEntry;
-          while ((zipEntry = tgz.getNextEntry()) != null) {
-            if (!zipEntry.isDirectory() && zipEntry.getName().equals(zipFileName)) {
-              return new ByteArrayInputStream(IOUtils.toByteArray(tgz));
-            }
-          }
-        } else {
-          return tgz;
+      }
+    }
+    if (!matched) {
+      throw new IllegalArgumentException("No entry matching " + pattern + " in " + archiveUrl);
+    }
+    handler.endRDF();
+  }
+
+  protected InputStream getInputStream(String url, Map<String, Object> props) throws IOException {
+    if (isArchiveEntryUrl(url)) {
+      String[] tokens = url.split("!");
+      String archiveUrl = tokens[0];
+      String entryName = tokens.length > 1 ? tokens[1] : "";
+      if (entryName.equals("")){
+        throw new IllegalArgumentException("filename can't be empty");
+      }
+      ArchiveInputStream archive = openArchive(archiveUrl, props);
+      ArchiveEntry entry;
+      while ((entry = archive.getNextEntry()) != null) {
+        if (!entry.isDirectory() && entry.getName().equals(entryName)) {
+          // the archive stream reads up to the end of the current entry, no need to buffer it
+          return archive;
         }
-      } else if (url.endsWith(".gz")){
-        return new GZIPInputStream(urlConn.getInputStream());
-      } else if (url.endsWith(".bz2")){
-        return new BZip2CompressorInputStream(urlConn.getInputStream());
       }
-    }else {
-      urlConn = new URL(url).openConnection();
+      archive.close();
+      throw new IllegalArgumentException("No entry named " + entryName + " in " + archiveUrl);
+    }
+    if (url.endsWith(".zip")) {
+      throw new IllegalArgumentException("Filename is required for zip files (use '!' notation)");
+    }
+    // tar files without an entry name are only decompressed
+    return decompress(url, openUrl(url, props));
+  }
+
+  private ArchiveInputStream openArchive(String url, Map<String, Object> props)
+      throws IOException {
+    if (url.endsWith(".zip")) {
+      return new ZipArchiveInputStream(openUrl(url, props));
+    } else if (isTar(url)) {
+      return new TarArchiveInputStream(decompress(url, openUrl(url, props)));
+    }
+    throw new IllegalArgumentException(
+        "'!' notation for filenames can only be used with zip or tar (optionally compressed) files");
+  }
+
+  /**
+   * Decompresses according to the file extension. Gzip streams made of several members (as
+   * produced by parallel compressors or by concatenating files) are read in full.
+   */
+  private InputStream decompress(String url, InputStream in) throws IOException {
+    if (url.endsWith(".gz") || url.endsWith(".tgz")) {
+      return new GzipCompressorInputStream(in, true);
+    } else if (url.endsWith(".bz2")) {
+      return new BZip2CompressorInputStream(in, true);
+    } else if (url.endsWith(".xz")) {
+      return new XZCompressorInputStream(in, true);
+    } else if (url.endsWith(".zst")) {
+      if (!ZstdUtils.isZstdCompressionAvailable()) {
+        in.close();
+        // reported like any other problem reading the source
+        throw new IOException("zstd decompression is not available (zstd-jni is not on the "
+            + "classpath)");
+      }
+      return new ZstdCompressorInputStream(in);
     }
+    return in;
+  }
+
+  private boolean isTar(String url) {
+    return url.endsWith(".tgz") || url.endsWith(".tar") || url.endsWith(".tar.gz")
+        || url.endsWith(".tar.bz2") || url.endsWith(".tar.xz") || url.endsWith(".tar.zst");
+  }
 
+  private File localUncompressedFile(String url) {
+    if (!url.startsWith("file:") || url.contains("!") || url.endsWith(".gz")
+        || url.endsWith(".bz2") || url.endsWith(".xz") || url.endsWith(".zst")
+        || url.endsWith(".zip") || isTar(url)) {
+      return null;
+    }
+    try {
+      File file = new File(new URI(url));
+      return file.isFile() ? file : null;
+    } catch (URISyntaxException | IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  // the '!' notation is only looked at in urls of compressed files or archives
+  private boolean isArchiveEntryUrl(String url) {
+    return url.contains("!") && (url.contains(".zip") || url.contains(".tar")
+        || url.contains(".tgz") || url.contains(".gz") || url.contains(".bz2")
+        || url.contains(".xz") || url.contains(".zst"));
+  }
+
+  private boolean isEntryPattern(String entryName) {
+    return entryName.contains("*") || entryName.contains("?");
+  }
+
+  private InputStream openUrl(String url, Map<String, Object> props) throws IOException {
+      URLConnection urlConn = new URL(url).openConnection();
 
       if (props.containsKey("headerParams")) {
         Map<String, String> headerParams = (Map<String, String>) props.get("headerParams");
@@ -202,11 +329,52 @@ public class CommonProcedures {
       String newUrl = handleRedirect(urlConn, url);
       if (newUrl != null && !url.equals(newUrl)) {
         urlConn.getInputStream().close();
-        return getInputStream(newUrl, props);
+        return openUrl(newUrl, props);
       }
       return urlConn.getInputStream();
   }
 
+  /**
+   * Lets several documents be parsed as one import: the start and end notifications of each
+   * document are not passed on, the caller sends them once around the whole sequence.
+   */
+  private static class SingleDocumentHandler extends ConfiguredStatementHandler {
+
+    private final ConfiguredStatementHandler delegate;
+
+    SingleDocumentHandler(ConfiguredStatementHandler delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public RDFParserConfig getParserConfig() {
+      return delegate.getParserConfig();
+    }
+
+    @Override
+    public void startRDF() throws RDFHandlerException {
+    }
+
+    @Override
+    public void endRDF() throws RDFHandlerException {
+    }
+
+    @Override
+    public void handleNamespace(String prefix, String uri) throws RDFHandlerException {
+      delegate.handleNamespace(prefix, uri);
+    }
+
+    @Override
+    public void handleStatement(Statement st) throws RDFHandlerException {
+      delegate.handleStatement(st);
+    }
+
+    @Override
+    public void handleComment(String comment) throws RDFHandlerException {
+      delegate.handleComment(comment);
+    }
+  }
+
   //Taken from APOC (apoc.util.Util)
   private static String handleRedirect(URLConnection con, String url) throws IOException {
     if (!(con instanceof HttpURLConnection)) return url;
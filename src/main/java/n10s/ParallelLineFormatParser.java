@@ -0,0 +1,231 @@
+package n10s;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFHandlerException;
+import org.eclipse.rdf4j.rio.RDFParseException;
+import org.eclipse.rdf4j.rio.RDFParser;
+import org.eclipse.rdf4j.rio.Rio;
+import org.eclipse.rdf4j.rio.helpers.AbstractRDFHandler;
+import org.eclipse.rdf4j.rio.helpers.BasicParserSettings;
+
+/**
+ * Parses a local N-Triples or N-Quads file on several threads. The file is memory mapped in
+ * newline aligned chunks, every chunk is parsed by its own parser, and the statements are handed
+ * to the (single threaded) handler on the calling thread in file order.
+ *
+ * Parsers running on different chunks would name blank nodes differently, so labels are kept and
+ * given a prefix unique to the import instead, which is what a single parser does.
+ */
+class ParallelLineFormatParser {
+
+  // a chunk is mapped at once. Also bounds how much of the file is mapped at any time
+  private static final long CHUNK_SIZE = 32 * 1024 * 1024;
+  // statements handed over to the calling thread at a time
+  private static final int BLOCK_SIZE = 5000;
+  // blocks waiting in each chunk's queue before its parser blocks
+  private static final int BLOCKS_PER_CHUNK = 4;
+  private static final List<Statement> END_OF_CHUNK = new ArrayList<>();
+  private static final AtomicInteger parserCount = new AtomicInteger();
+
+  private final File file;
+  private final String baseUri;
+  private final RDFFormat format;
+  private final ConfiguredStatementHandler handler;
+  private final int threads;
+  private final String bnodePrefix;
+
+  /**
+   * @param bnodePrefix prefix of the blank node ids, null for one unique to this parse
+   */
+  ParallelLineFormatParser(File file, String baseUri, RDFFormat format,
+      ConfiguredStatementHandler handler, int threads, String bnodePrefix) {
+    this.file = file;
+    this.baseUri = baseUri;
+    this.format = format;
+    this.handler = handler;
+    this.threads = threads;
+    this.bnodePrefix = (bnodePrefix != null ? bnodePrefix : PrefixedBNodeFactory.newPrefix());
+  }
+
+  static boolean isLineBased(RDFFormat format) {
+    return format.equals(RDFFormat.NTRIPLES) || format.equals(RDFFormat.NQUADS);
+  }
+
+  void parse() throws IOException {
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+        FileChannel channel = raf.getChannel()) {
+      List<Chunk> chunks = split(channel);
+      int parserId = parserCount.incrementAndGet();
+      AtomicInteger threadCount = new AtomicInteger();
+      ExecutorService parsers = Executors.newFixedThreadPool(Math.min(threads, chunks.size()),
+          r -> {
+            Thread t = new Thread(r, "n10s-parse-" + parserId + "-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+          });
+      try {
+        // chunks are started in order, so the one being consumed always has a thread
+        for (Chunk chunk : chunks) {
+          parsers.execute(() -> chunk.parse(channel));
+        }
+        handler.startRDF();
+        for (Chunk chunk : chunks) {
+          List<Statement> block;
+          while ((block = chunk.blocks.take()) != END_OF_CHUNK) {
+            for (Statement st : block) {
+              handler.handleStatement(st);
+            }
+          }
+          if (chunk.failure != null) {
+            throw chunk.failure;
+          }
+        }
+        handler.endRDF();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RDFHandlerException("Interrupted while parsing " + baseUri, e);
+      } finally {
+        parsers.shutdownNow();
+      }
+    }
+  }
+
+  private List<Chunk> split(FileChannel channel) throws IOException {
+    List<Chunk> chunks = new ArrayList<>();
+    long size = channel.size();
+    long start = 0;
+    while (start < size) {
+      long end = Math.min(start + CHUNK_SIZE, size);
+      if (end < size) {
+        // move the end past the next newline so no statement is split
+        MappedByteBuffer tail = channel.map(MapMode.READ_ONLY, end,
+            Math.min(CHUNK_SIZE, size - end));
+        while (tail.hasRemaining() && tail.get() != '\n') {
+          end++;
+        }
+        end = Math.min(end + 1, size);
+      }
+      chunks.add(new Chunk(start, end - start));
+      start = end;
+    }
+    return chunks;
+  }
+
+  private class Chunk {
+
+    private final long offset;
+    private final long length;
+    private final BlockingQueue<List<Statement>> blocks = new ArrayBlockingQueue<>(
+        BLOCKS_PER_CHUNK + 1);
+    private volatile RuntimeException failure;
+
+    Chunk(long offset, long length) {
+      this.offset = offset;
+      this.length = length;
+    }
+
+    void parse(FileChannel channel) {
+      try {
+        RDFParser parser = Rio.createParser(format);
+        parser.set(BasicParserSettings.VERIFY_URI_SYNTAX,
+            handler.getParserConfig().isVerifyUriSyntax());
+        PrefixedBNodeFactory.configure(parser, bnodePrefix);
+        parser.setRDFHandler(new AbstractRDFHandler() {
+          private List<Statement> block = new ArrayList<>(BLOCK_SIZE);
+
+          @Override
+          public void handleStatement(Statement st) {
+            block.add(st);
+            if (block.size() == BLOCK_SIZE) {
+              put(block);
+              block = new ArrayList<>(BLOCK_SIZE);
+            }
+          }
+
+          @Override
+          public void endRDF() {
+            if (!block.isEmpty()) {
+              put(block);
+            }
+          }
+        });
+        parser.parse(new MappedInputStream(channel.map(MapMode.READ_ONLY, offset, length)),
+            baseUri);
+      } catch (RDFParseException | RDFHandlerException e) {
+        failure = e;
+      } catch (IOException e) {
+        failure = new RDFParseException(e.getMessage(), e);
+      } catch (ChunkAbandoned e) {
+        return;
+      } catch (RuntimeException e) {
+        failure = e;
+      }
+      try {
+        blocks.put(END_OF_CHUNK);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    private void put(List<Statement> block) {
+      try {
+        blocks.put(block);
+      } catch (InterruptedException e) {
+        // the import stopped, nobody will read the rest of this chunk
+        Thread.currentThread().interrupt();
+        throw new ChunkAbandoned();
+      }
+    }
+  }
+
+  private static class ChunkAbandoned extends RuntimeException {
+
+  }
+
+  private static class MappedInputStream extends InputStream {
+
+    private final MappedByteBuffer buffer;
+
+    MappedInputStream(MappedByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      if (len == 0) {
+        return 0;
+      }
+      if (!buffer.hasRemaining()) {
+        return -1;
+      }
+      int n = Math.min(len, buffer.remaining());
+      buffer.get(b, off, n);
+      return n;
+    }
+
+    @Override
+    public int available() {
+      return buffer.remaining();
+    }
+  }
+}
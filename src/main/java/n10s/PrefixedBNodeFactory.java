@@ -0,0 +1,48 @@
+package n10s;
+
+import java.util.UUID;
+import org.eclipse.rdf4j.model.BNode;
+import org.eclipse.rdf4j.model.impl.AbstractValueFactory;
+import org.eclipse.rdf4j.rio.RDFParser;
+import org.eclipse.rdf4j.rio.helpers.BasicParserSettings;
+
+/**
+ * Names the blank nodes of a parser after their label in the source, under a prefix. Parsers
+ * sharing the prefix agree on the id of every labelled blank node, and a parser going over the
+ * same source again gives them the same ids. Unlabelled blank nodes are numbered in parse order.
+ */
+public class PrefixedBNodeFactory extends AbstractValueFactory {
+
+  private final String prefix;
+  private long unlabelled = 0;
+
+  private PrefixedBNodeFactory(String prefix) {
+    this.prefix = prefix;
+  }
+
+  /**
+   * @return a prefix unique to the caller
+   */
+  public static String newPrefix() {
+    return "genid-" + UUID.randomUUID().toString().replace("-", "") + "-";
+  }
+
+  /**
+   * Makes the parser keep the blank node labels of the source under the prefix.
+   */
+  static void configure(RDFParser parser, String prefix) {
+    parser.set(BasicParserSettings.PRESERVE_BNODE_IDS, true);
+    parser.setValueFactory(new PrefixedBNodeFactory(prefix));
+  }
+
+  @Override
+  public BNode createBNode(String nodeID) {
+    return super.createBNode(prefix + nodeID);
+  }
+
+  // '/' can't be part of a label, so these never clash with labelled ones
+  @Override
+  public BNode createBNode() {
+    return super.createBNode(prefix + "anon/" + (unlabelled++));
+  }
+}
@@ -1,9 +1,12 @@
 package n10s;
 
+import n10s.graphconfig.DataTypeConverter;
 import n10s.graphconfig.GraphConfig;
 import n10s.graphconfig.RDFParserConfig;
+import n10s.utils.CompactStatementSet;
 import n10s.utils.DateUtils;
 import n10s.utils.InvalidNamespacePrefixDefinitionInDB;
+import n10s.utils.MultivalArrays;
 import n10s.utils.NsPrefixMap;
 import org.eclipse.rdf4j.model.*;
 import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
@@ -12,12 +15,15 @@ import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
 import org.eclipse.rdf4j.rio.RDFHandlerException;
 import org.neo4j.exceptions.InvalidArgumentException;
 import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.RelationshipType;
 import org.neo4j.graphdb.Transaction;
 import org.neo4j.internal.helpers.collection.Iterables;
 import org.neo4j.logging.Log;
 import org.neo4j.values.storable.PointValue;
 
 
+import java.lang.reflect.Array;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZonedDateTime;
@@ -26,6 +32,8 @@ import java.time.format.DateTimeFormatterBuilder;
 import java.time.format.DateTimeParseException;
 import java.time.temporal.ChronoField;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -46,12 +54,18 @@ public abstract class RDFToLPGStatementProcessor extends ConfiguredStatementHand
   public static final int DATATYPE = 3;
   protected final Log log;
   private static final String[] EMPTY_ARRAY = new String[0];
+  // how literals of each datatype become property values, anything not listed is CUSTOM
+  // (CONVERTER when a converter is configured for the datatype)
+  private enum LiteralKind { STRING, LONG, DOUBLE, BOOLEAN, DATETIME, DATE, WKT, CONVERTER, CUSTOM }
+  private static final Map<IRI, LiteralKind> LITERAL_KINDS = createLiteralKindsMap();
   protected Transaction tx;
   protected final RDFParserConfig parserConfig;
   private final Map<String, String> vocMappings;
   protected GraphDatabaseService graphdb;
   protected NsPrefixMap namespaces;
-  protected Set<Statement> statements = new HashSet<>();
+  // set when several processors (one per source) share a prefix map, see shareNamespaces
+  private boolean namespacesShared = false;
+  protected Set<Statement> statements = new CompactStatementSet();
   protected Map<String, Map<String, Object>> resourceProps = new HashMap<>();
   protected Map<Statement, Map<String, Object>> relProps = new HashMap<>();
   protected Map<String, Set<String>> resourceLabels = new HashMap<>();
@@ -61,6 +75,19 @@ public abstract class RDFToLPGStatementProcessor extends ConfiguredStatementHand
   protected final ValueFactory vf = SimpleValueFactory.getInstance();
   protected StringBuilder loadWarnings = new StringBuilder();
   protected boolean datatypeConflictFound = false;
+  // with input grouped by subject, partial commits wait for the subject to change
+  private String commitPendingSubject = null;
+  // vocabulary names resolved so far, by element type. Only valid for the namespaces (and
+  // version) they were resolved against
+  private final List<Map<IRI, String>> resolvedNames = Arrays.asList(new HashMap<>(),
+      new HashMap<>(), new HashMap<>(), new HashMap<>());
+  private NsPrefixMap resolvedWith = null;
+  private long resolvedWithVersion = 0;
+  // tokens are looked up by name, concurrent because batches can be written by several threads
+  private final Map<String, RelationshipType> relationshipTypes = new ConcurrentHashMap<>();
+  private final Map<String, Label> labels = new ConcurrentHashMap<>();
+  // datatypes stored natively as configured in the graph config (customDataTypeConverters)
+  private final Map<IRI, DataTypeConverter> customConverters = new HashMap<>();
 
 
   public RDFToLPGStatementProcessor(GraphDatabaseService db, Transaction tx, RDFParserConfig conf,
@@ -83,10 +110,42 @@ public abstract class RDFToLPGStatementProcessor extends ConfiguredStatementHand
     } else {
       this.vocMappings = null;
     }
+    this.parserConfig.getGraphConf().getCustomDataTypeConverters().forEach(
+        (datatype, converter) -> customConverters.put(vf.createIRI(datatype), converter));
+  }
+
+  private static Map<IRI, LiteralKind> createLiteralKindsMap() {
+    Map<IRI, LiteralKind> kinds = new HashMap<>();
+    kinds.put(XMLSchema.STRING, LiteralKind.STRING);
+    kinds.put(RDF.LANGSTRING, LiteralKind.STRING);
+    for (IRI integerType : new IRI[]{XMLSchema.INTEGER, XMLSchema.LONG, XMLSchema.INT,
+        XMLSchema.SHORT, XMLSchema.BYTE, XMLSchema.NON_NEGATIVE_INTEGER,
+        XMLSchema.POSITIVE_INTEGER, XMLSchema.UNSIGNED_LONG, XMLSchema.UNSIGNED_INT,
+        XMLSchema.UNSIGNED_SHORT, XMLSchema.UNSIGNED_BYTE, XMLSchema.NON_POSITIVE_INTEGER,
+        XMLSchema.NEGATIVE_INTEGER}) {
+      kinds.put(integerType, LiteralKind.LONG);
+    }
+    kinds.put(XMLSchema.DECIMAL, LiteralKind.DOUBLE);
+    kinds.put(XMLSchema.DOUBLE, LiteralKind.DOUBLE);
+    kinds.put(XMLSchema.FLOAT, LiteralKind.DOUBLE);
+    kinds.put(XMLSchema.BOOLEAN, LiteralKind.BOOLEAN);
+    kinds.put(XMLSchema.DATETIME, LiteralKind.DATETIME);
+    kinds.put(XMLSchema.DATE, LiteralKind.DATE);
+    kinds.put(WKTLITERAL_URI, LiteralKind.WKT);
+    return kinds;
   }
 
   private void loadNamespaces() throws InvalidNamespacePrefixDefinitionInDB {
-    namespaces = new NsPrefixMap(tx, false);
+    // only maps that will store their prefixes take part in the prefix agreement between imports
+    namespaces = (storesNamespaces() ? new NsPrefixMap(graphdb, tx, false)
+        : new NsPrefixMap(tx, false));
+  }
+
+  /**
+   * @return true when the processor writes the namespace prefixes it generates to the DB
+   */
+  protected boolean storesNamespaces() {
+    return false;
   }
 
   /**
@@ -99,92 +158,73 @@ public abstract class RDFToLPGStatementProcessor extends ConfiguredStatementHand
    */
   protected Object getObjectValue(IRI propertyIRI, Literal object) {
     IRI datatype = object.getDatatype();
-    if (datatype.equals(XMLSchema.STRING) || datatype.equals(RDF.LANGSTRING)) {
-      final Optional<String> language = object.getLanguage();
-      if (parserConfig.getLanguageFilter() == null || !language.isPresent() || parserConfig
-          .getLanguageFilter().equals(language.get())) {
-        return object.stringValue() + (
-            parserConfig.getGraphConf().isKeepLangTag() && language.isPresent() ? "@"
-                + language.get()
-                : "");
-      } else {
-        //filtered by lang
-        return null;
-      }
-    } else if (typeMapsToLongType(datatype)) {
-      return object.longValue();
-    } else if (typeMapsToDouble(datatype)) {
-      return object.doubleValue();
-    } else if (datatype.equals(XMLSchema.BOOLEAN)) {
-      return object.booleanValue();
-    } else if (datatype.equals(XMLSchema.DATETIME)) {
-      try {
-        return ZonedDateTime.parse(object.stringValue());
-      }catch(DateTimeParseException dtpe){
-        try{
-          //formatter to support the format shown int the cypher refcard (timezone but no offset)
-          DateTimeFormatter neo4jZonedDateFormat = new DateTimeFormatterBuilder()
-                  .appendPattern("yyyy-MM-dd'T'HH:mm:ss")
-                  .appendFraction(ChronoField.MILLI_OF_SECOND, 0, 9, true)
-                  .appendPattern("'['").appendZoneId().appendPattern("']'").toFormatter();
-          return ZonedDateTime.parse(object.stringValue(), neo4jZonedDateFormat);
-        }catch(DateTimeParseException dtpe2){
-          try {
-            return DateUtils.parseDateTime(object.stringValue());
-          } catch (IllegalArgumentException e) {
-            //if date cannot be parsed we return string value
-            return object.stringValue();
-          }
-        }
-      }
-    }else if (datatype.equals(vf.createIRI(GEOSPARQL_NS, WKTLITERAL))) {
-      try {
-        return PointValue.parse(wktToCartesian(object.stringValue()));
-      } catch (InvalidArgumentException e) {
-        //if pointvalue cannot be parsed we return string value
-        return object.stringValue();
-      }
-    } else if (datatype.equals(XMLSchema.DATE)) {
-      try {
-        return DateUtils.parseDate(object.stringValue());
-      } catch (IllegalArgumentException e) {
-        //if date cannot be parsed we return string value
-        return object.stringValue();
-      }
-    } else {
-      //it's a custom data type
-      if (parserConfig.getGraphConf().isKeepCustomDataTypes() && !(
-          parserConfig.getGraphConf().getHandleVocabUris() == GRAPHCONF_VOC_URI_IGNORE
-              || parserConfig.getGraphConf().getHandleVocabUris() == GRAPHCONF_VOC_URI_MAP)) {
-        //keep custom type as long as property is not absent from customDT list
-        if (parserConfig.getGraphConf().getCustomDataTypePropList() == null || parserConfig
-            .getGraphConf().getCustomDataTypePropList()
-            .contains(propertyIRI.stringValue())) {
-          return getValueWithDatatype(datatype, object.stringValue());
+    // most literals are plain strings, skip the table for them
+    LiteralKind kind = (datatype == XMLSchema.STRING && customConverters.isEmpty()
+        ? LiteralKind.STRING
+        : customConverters.containsKey(datatype) ? LiteralKind.CONVERTER
+            : LITERAL_KINDS.getOrDefault(datatype, LiteralKind.CUSTOM));
+    switch (kind) {
+      case STRING:
+        final Optional<String> language = object.getLanguage();
+        if (parserConfig.getLanguageFilter() == null || !language.isPresent() || parserConfig
+            .getLanguageFilter().equals(language.get())) {
+          return parserConfig.getGraphConf().isKeepLangTag() && language.isPresent()
+              ? object.stringValue() + "@" + language.get() : object.stringValue();
         } else {
+          //filtered by lang
+          return null;
+        }
+      case LONG:
+        return object.longValue();
+      case DOUBLE:
+        return object.doubleValue();
+      case BOOLEAN:
+        return object.booleanValue();
+      case DATETIME:
+        try {
+          return DataTypeConverter.DATETIME.toStoredValue(object.stringValue());
+        } catch (IllegalArgumentException e) {
+          //if date cannot be parsed we return string value
           return object.stringValue();
         }
-      }
-    }
-    // default
-    return object.stringValue();
-  }
-
-  private String wktToCartesian(String wktString) {
-    Pattern wktRegex = Pattern.compile("^Point\\((?:(\\-?\\d+(?:\\.\\d+)?)\\s+)?(\\-?\\d+(?:\\.\\d+)?)\\s+(\\-?\\d+(?:\\.\\d+)?)\\)$");
-    Matcher m = wktRegex.matcher(wktString);
-    if(m.matches() && m.groupCount() == 3 && m.group(1)==null){
-      return m.replaceFirst("point({x: $2, y: $3, crs: 'cartesian'})");
-    } else if(m.matches() && m.groupCount() == 3 && m.group(1)!=null){
-      return m.replaceFirst("point({x: $1, y: $2, z: $3, crs: 'cartesian-3d'})");
-    } else {
-      // if it cannot be parsed it's left unchanged and will crash
-      // when trying to create a PointObject out of it (exception will be thrown)
-      return wktString;
+      case WKT:
+        try {
+          return DataTypeConverter.POINT.toStoredValue(object.stringValue());
+        } catch (InvalidArgumentException e) {
+          //if pointvalue cannot be parsed we return string value
+          return object.stringValue();
+        }
+      case CONVERTER:
+        try {
+          return customConverters.get(datatype).toStoredValue(object.stringValue());
+        } catch (RuntimeException e) {
+          //not a valid value for the converter, we return string value
+          return object.stringValue();
+        }
+      case DATE:
+        try {
+          return DateUtils.parseDate(object.stringValue());
+        } catch (IllegalArgumentException e) {
+          //if date cannot be parsed we return string value
+          return object.stringValue();
+        }
+      default:
+        //it's a custom data type
+        if (parserConfig.getGraphConf().isKeepCustomDataTypes() && !(
+            parserConfig.getGraphConf().getHandleVocabUris() == GRAPHCONF_VOC_URI_IGNORE
+                || parserConfig.getGraphConf().getHandleVocabUris() == GRAPHCONF_VOC_URI_MAP)) {
+          //keep custom type as long as property is not absent from customDT list
+          if (parserConfig.getGraphConf().getCustomDataTypePropList() == null || parserConfig
+              .getGraphConf().getCustomDataTypePropList()
+              .contains(propertyIRI.stringValue())) {
+            return getValueWithDatatype(datatype, object.stringValue());
+          }
+        }
+        // default
+        return object.stringValue();
     }
   }
 
-
   protected String getValueWithDatatype(IRI datatype, String value) {
     StringBuilder result = new StringBuilder(value);
     result.append(CUSTOM_DATA_TYPE_SEPERATOR);
@@ -196,23 +236,6 @@ public abstract class RDFToLPGStatementProcessor extends ConfiguredStatementHand
     return result.toString();
   }
 
-  private boolean typeMapsToDouble(IRI datatype) {
-    return datatype.equals(XMLSchema.DECIMAL) || datatype.equals(XMLSchema.DOUBLE) ||
-        datatype.equals(XMLSchema.FLOAT);
-  }
-
-  private boolean typeMapsToLongType(IRI datatype) {
-    return datatype.equals(XMLSchema.INTEGER) || datatype.equals(XMLSchema.LONG) || datatype
-        .equals(XMLSchema.INT) ||
-        datatype.equals(XMLSchema.SHORT) || datatype.equals(XMLSchema.BYTE) ||
-        datatype.equals(XMLSchema.NON_NEGATIVE_INTEGER) || datatype
-        .equals(XMLSchema.POSITIVE_INTEGER) ||
-        datatype.equals(XMLSchema.UNSIGNED_LONG) || datatype.equals(XMLSchema.UNSIGNED_INT) ||
-        datatype.equals(XMLSchema.UNSIGNED_SHORT) || datatype.equals(XMLSchema.UNSIGNED_BYTE) ||
-        datatype.equals(XMLSchema.NON_POSITIVE_INTEGER) || datatype
-        .equals(XMLSchema.NEGATIVE_INTEGER);
-  }
-
   @Override
   public void handleComment(String comment) throws RDFHandlerException {
 
@@ -220,12 +243,31 @@ public abstract class RDFToLPGStatementProcessor extends ConfiguredStatementHand
 
 
   protected String handleIRI(IRI iri, int elementType) {
-    //TODO: would caching this improve perf? It's kind of cached in getPrefix()
+    if (resolvedWith != namespaces
+        || (namespaces != null && resolvedWithVersion != namespaces.getVersion())) {
+      resolvedNames.forEach(Map::clear);
+      resolvedWith = namespaces;
+      resolvedWithVersion = (namespaces == null ? 0 : namespaces.getVersion());
+    }
+    Map<IRI, String> resolved = resolvedNames.get(elementType);
+    String name = resolved.get(iri);
+    if (name == null) {
+      // failures (undefined prefix in strict mode) are not cached and will fail again
+      name = resolveIRI(iri, elementType);
+      resolved.put(iri, name);
+    }
+    return name;
+  }
+
+  private String resolveIRI(IRI iri, int elementType) {
     if (parserConfig.getGraphConf().getHandleVocabUris() == GRAPHCONF_VOC_URI_SHORTEN ||
         parserConfig.getGraphConf().getHandleVocabUris() == GRAPHCONF_VOC_URI_SHORTEN_STRICT) {
       String localName = iri.getLocalName();
-      String prefix = namespaces.getPrefixOrAdd(iri.getNamespace(),
-          parserConfig.getGraphConf().getHandleVocabUris() == GRAPHCONF_VOC_URI_SHORTEN_STRICT);
+      String prefix;
+      synchronized (namespaces) {
+        prefix = namespaces.getPrefixOrAdd(iri.getNamespace(),
+            parserConfig.getGraphConf().getHandleVocabUris() == GRAPHCONF_VOC_URI_SHORTEN_STRICT);
+      }
       return prefix + PREFIX_SEPARATOR + localName;
     } else if (parserConfig.getGraphConf().getHandleVocabUris() == GRAPHCONF_VOC_URI_IGNORE) {
       return applyCapitalisation(iri.getLocalName(), elementType);
@@ -236,6 +278,25 @@ public abstract class RDFToLPGStatementProcessor extends ConfiguredStatementHand
     }
   }
 
+  /**
+   * Makes this processor use (instead of loading its own in startRDF) a namespace prefix map
+   * shared with other processors parsing concurrently, so that they never generate different
+   * prefixes for the same namespace. Accesses to a shared map are synchronized on it.
+   */
+  public void shareNamespaces(NsPrefixMap sharedNamespaces) {
+    this.namespaces = sharedNamespaces;
+    this.namespacesShared = true;
+  }
+
+  protected RelationshipType relationshipType(IRI iri) {
+    return relationshipTypes.computeIfAbsent(handleIRI(iri, RELATIONSHIP),
+        RelationshipType::withName);
+  }
+
+  protected Label label(String name) {
+    return labels.computeIfAbsent(name, Label::label);
+  }
+
   private String applyCapitalisation(String name, int element) {
     if (parserConfig.getGraphConf().isApplyNeo4jNaming()) {
       //apply Neo4j naming recommendations
@@ -272,6 +333,9 @@ public abstract class RDFToLPGStatementProcessor extends ConfiguredStatementHand
   public void startRDF() throws RDFHandlerException {
     if (parserConfig.getGraphConf().getHandleVocabUris() == GRAPHCONF_VOC_URI_SHORTEN ||
         parserConfig.getGraphConf().getHandleVocabUris() == GRAPHCONF_VOC_URI_SHORTEN_STRICT) {
+      if (namespacesShared) {
+        return;
+      }
       //differentiate between map/shorten and keep_long urls?
       try {
         loadNamespaces();
@@ -397,6 +461,10 @@ public abstract class RDFToLPGStatementProcessor extends ConfiguredStatementHand
 
     String subjectUri = (subject instanceof BNode? "bnode://" + subject.stringValue(): subject.stringValue());
 
+    if (commitPendingSubject != null && !commitPendingSubject.equals(subjectUri)) {
+      commitPendingSubject = null;
+      periodicOperation();
+    }
     if (parserConfig.getPredicateExclusionList() == null || !parserConfig
         .getPredicateExclusionList()
         .contains(predicate.stringValue()))
@@ -419,13 +487,13 @@ public abstract class RDFToLPGStatementProcessor extends ConfiguredStatementHand
               reifiedStatement.getPredicate(), vf.createIRI(objectUri1));
           addStatement(stmt);
           addRelProp(stmt, predicate, (Literal)object);
-          mappedTripleCounter++;
+          tripleMapped(subjectUri1, true);
         }
       } else if (object instanceof Literal) {
         // DataType property
         if (setProp(subjectUri, predicate, (Literal) object)) {
           // property may be filtered because of lang filter hence the conditional increment.
-          mappedTripleCounter++;
+          tripleMapped(subjectUri, false);
         }
       } else if ((parserConfig.getGraphConf().getHandleRDFTypes() == GRAPHCONF_RDFTYPES_AS_LABELS ||
           parserConfig.getGraphConf().getHandleRDFTypes() == GRAPHCONF_RDFTYPES_AS_LABELS_AND_NODES)
@@ -443,7 +511,7 @@ public abstract class RDFToLPGStatementProcessor extends ConfiguredStatementHand
                   predicate, object));
         }
 
-        mappedTripleCounter++;
+        tripleMapped(subjectUri, false);
 
       } else if (object instanceof Triple) {
         //ignore RDF* statements with triples as object
@@ -453,14 +521,20 @@ public abstract class RDFToLPGStatementProcessor extends ConfiguredStatementHand
         addResource(objectUri);
         addStatement(vf.createStatement(vf.createIRI(subjectUri),
                 predicate, vf.createIRI(objectUri)));
-        mappedTripleCounter++;
+        tripleMapped(subjectUri, true);
       }
     }
     totalTriplesParsed++;
 
-    if (parserConfig.getCommitSize() != Long.MAX_VALUE && mappedTripleCounter != 0
-        && mappedTripleCounter % parserConfig.getCommitSize() == 0) {
-      periodicOperation();
+    long commitSize = currentCommitSize();
+    if (commitSize != Long.MAX_VALUE && mappedTripleCounter != 0
+        && mappedTripleCounter % commitSize == 0) {
+      if (parserConfig.isSortBySubject()) {
+        // so that all the triples about a node end up in the same batch
+        commitPendingSubject = subjectUri;
+      } else {
+        periodicOperation();
+      }
     }
   }
 
@@ -503,6 +577,70 @@ public abstract class RDFToLPGStatementProcessor extends ConfiguredStatementHand
     return Iterables.asArray(first.getClass(), it);
   }
 
+  /**
+   * Merges the values of a multivalued property with the ones already stored (if any), keeping
+   * the distinct values in order of first occurrence, stored ones first. When the values are not
+   * all of the same type they're discarded (strictDataTypeCheck) or all turned into typed
+   * strings.
+   *
+   * @param currentValue the stored value (array or atomic) or null
+   * @param setter receives the merged value
+   * @return the number of values discarded because of datatype heterogeneity
+   */
+  protected int mergeMultivalued(String k, Object currentValue, List<Object> v,
+      Consumer<Object> setter) {
+    Object merged = MultivalArrays.merge(currentValue, v);
+    if (merged != null) {
+      // homogeneous long, double or string values, merged without boxing the stored ones
+      setter.accept(merged);
+      return 0;
+    }
+    List<Object> newList = new ArrayList<>();
+    if (currentValue != null) {
+      //initialise with existing values
+      if (currentValue.getClass().isArray()) {
+        int length = Array.getLength(currentValue);
+        for (int i = 0; i < length; i ++) {
+          Object atomicValue = Array.get(currentValue, i);
+          newList.add(atomicValue);
+        }
+      } else {
+        //TODO: this logic could go because now it's not possible to change
+        // from atomic to multival without emptying the DB
+        newList.add(currentValue);
+      }
+    }
+
+    Class<?> currentDatatype = newList.isEmpty()? v.get(0).getClass():newList.get(0).getClass();
+
+    List<Object> discardedItems = new ArrayList<>();
+
+    for(Object x:v) {
+      if (x.getClass().equals(currentDatatype)){
+        newList.add(x);
+      }  else {
+        discardedItems.add(x);
+      }
+    }
+
+    if(!discardedItems.isEmpty()){
+      this.datatypeConflictFound |= true;
+      if (getParserConfig().isStrictDataTypeCheck()){
+        log.warn("The following values for property '" + k + "' have been discarded because of datatype heterogeneity (previously stored values are of type " + currentDatatype + ") : " + discardedItems );
+        setter.accept(toPropertyValue(new LinkedHashSet<>(newList)));
+        return discardedItems.size();
+      } else {
+        //default all to string if they're not already return defaultToString(it.iterator());
+        newList.addAll(discardedItems);
+        setter.accept(toPropertyValue(new LinkedHashSet<>(defaultToString(newList.iterator()))));
+      }
+    } else {
+      //no discarded elements. all good, newlist contains all the values. nothing to do
+      setter.accept(toPropertyValue(new LinkedHashSet<>(newList)));
+    }
+    return 0;
+  }
+
   protected List<String> defaultToString(Iterator it) {
       List<String> list = new ArrayList<>();
       while(it.hasNext()) {
@@ -531,6 +669,24 @@ public abstract class RDFToLPGStatementProcessor extends ConfiguredStatementHand
 
   protected abstract void periodicOperation();
 
+  /**
+   * @return the number of mapped triples in the batch being filled after which the partial
+   * commit is triggered. Must only change between batches.
+   */
+  protected long currentCommitSize() {
+    return parserConfig.getCommitSize();
+  }
+
+  /**
+   * Counts a triple mapped to the graph.
+   *
+   * @param subjectUri the node the triple is written on, the start node if it's a relationship
+   * @param relationship whether it's written as a relationship or a relationship property
+   */
+  protected void tripleMapped(String subjectUri, boolean relationship) {
+    mappedTripleCounter++;
+  }
+
   public String getWarnings() {
     return loadWarnings.toString() + (datatypeConflictFound?datatypeConflictMessage():"");
   }
@@ -0,0 +1,87 @@
+package n10s;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import n10s.graphconfig.RDFParserConfig;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.rio.RDFHandlerException;
+
+/**
+ * Fast-forwards an import to the offset saved by a previous run: the first statements parsed are
+ * dropped instead of being passed on (namespace declarations still are). Sources in a line based
+ * format can skip those statements in the raw input instead, without parsing them at all.
+ */
+public class ResumingHandler extends ConfiguredStatementHandler {
+
+  private final ConfiguredStatementHandler delegate;
+  private long statementsToSkip;
+
+  public ResumingHandler(ConfiguredStatementHandler delegate, long statementsToSkip) {
+    this.delegate = delegate;
+    this.statementsToSkip = statementsToSkip;
+  }
+
+  /**
+   * Reads past the lines holding the statements to skip (in N-Triples and N-Quads there is one
+   * per line, blank and comment lines hold none).
+   *
+   * @return the rest of the input
+   */
+  InputStream skipLines(InputStream in) throws IOException {
+    InputStream buffered = new BufferedInputStream(in);
+    boolean statementLine = false;
+    boolean commentLine = false;
+    while (statementsToSkip > 0) {
+      int b = buffered.read();
+      if (b == -1) {
+        break;
+      } else if (b == '\n' || b == '\r') {
+        if (statementLine) {
+          statementsToSkip--;
+        }
+        statementLine = false;
+        commentLine = false;
+      } else if (!statementLine && !commentLine && !Character.isWhitespace(b)) {
+        // multi-byte UTF-8 sequences never contain ASCII bytes
+        statementLine = (b != '#');
+        commentLine = (b == '#');
+      }
+    }
+    return buffered;
+  }
+
+  @Override
+  public RDFParserConfig getParserConfig() {
+    return delegate.getParserConfig();
+  }
+
+  @Override
+  public void startRDF() throws RDFHandlerException {
+    delegate.startRDF();
+  }
+
+  @Override
+  public void endRDF() throws RDFHandlerException {
+    delegate.endRDF();
+  }
+
+  @Override
+  public void handleNamespace(String prefix, String uri) throws RDFHandlerException {
+    delegate.handleNamespace(prefix, uri);
+  }
+
+  @Override
+  public void handleStatement(Statement st) throws RDFHandlerException {
+    if (statementsToSkip > 0) {
+      statementsToSkip--;
+      return;
+    }
+    delegate.handleStatement(st);
+  }
+
+  @Override
+  public void handleComment(String comment) throws RDFHandlerException {
+    delegate.handleComment(comment);
+  }
+}
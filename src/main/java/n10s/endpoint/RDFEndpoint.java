@@ -20,10 +20,12 @@ import javax.ws.rs.core.Context;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.StreamingOutput;
 import n10s.graphconfig.GraphConfig;
-import n10s.graphconfig.GraphConfig.GraphConfigNotFound;
 import n10s.rdf.export.ExportProcessor;
 import n10s.rdf.export.LPGRDFToRDFProcesssor;
 import n10s.rdf.export.LPGToRDFProcesssor;
+import n10s.rdf.export.NodeDedup;
+import n10s.rdf.export.PartitionedDump;
+import n10s.utils.MetadataCache;
 import org.codehaus.jackson.map.ObjectMapper;
 import org.codehaus.jackson.type.TypeReference;
 import org.eclipse.rdf4j.model.vocabulary.OWL;
@@ -102,7 +104,7 @@ public class RDFEndpoint {
       GraphDatabaseService neo4j = gds.database(dbNameParam);
       try (Transaction tx = neo4j.beginTx()) {
 
-        GraphConfig gc = getGraphConfig(tx);
+        GraphConfig gc = MetadataCache.getGraphConfig(neo4j, tx);
 
         if ( gc == null || gc.getHandleVocabUris() == GRAPHCONF_VOC_URI_IGNORE
                 || gc.getHandleVocabUris() == GRAPHCONF_VOC_URI_MAP) {
@@ -144,16 +146,6 @@ public class RDFEndpoint {
     }).build();
   }
 
-  private GraphConfig getGraphConfig(Transaction tx) {
-    GraphConfig result = null;
-    try {
-      result = new GraphConfig(tx);
-    } catch (GraphConfigNotFound graphConfigNotFound) {
-      //it's an LPG (no RDF import config)
-    }
-    return result;
-  }
-
 
   @GET
   @Path("/{dbname}/describe/find/{label}/{property}/{propertyValue}")
@@ -175,7 +167,7 @@ public class RDFEndpoint {
       GraphDatabaseService neo4j = gds.database(dbNameParam);
       try (Transaction tx = neo4j.beginTx()) {
 
-        GraphConfig gc = getGraphConfig(tx);
+        GraphConfig gc = MetadataCache.getGraphConfig(neo4j, tx);
         ExportProcessor proc;
         if ( gc == null || gc.getHandleVocabUris() == GRAPHCONF_VOC_URI_IGNORE
                 || gc.getHandleVocabUris() == GRAPHCONF_VOC_URI_MAP) {
@@ -222,7 +214,7 @@ public class RDFEndpoint {
         RDFWriter writer = startRdfWriter(
             getFormat(acceptHeaderParam, (String) jsonMap.get("format")), outputStream);
 
-        GraphConfig gc = getGraphConfig(tx);
+        GraphConfig gc = MetadataCache.getGraphConfig(neo4j, tx);
         ExportProcessor proc;
         if (gc == null || gc.getHandleVocabUris() == GRAPHCONF_VOC_URI_IGNORE
             || gc.getHandleVocabUris() == GRAPHCONF_VOC_URI_MAP) {
@@ -243,8 +235,8 @@ public class RDFEndpoint {
         }
         proc.streamTriplesFromCypher((String) jsonMap.get("cypher"),
                 (Map<String, Object>) jsonMap
-                        .getOrDefault("cypherParams", new HashMap<String, Object>())).forEach(
-                writer::handleStatement);
+                        .getOrDefault("cypherParams", new HashMap<String, Object>()),
+                NodeDedup.fromParams(jsonMap)).forEach(writer::handleStatement);
         endRDFWriter(writer);
       } catch (Exception e) {
         handleSerialisationError(outputStream, e, acceptHeaderParam,
@@ -253,6 +245,33 @@ public class RDFEndpoint {
     }).build();
   }
 
+  @GET
+  @Path("/{dbname}/dump")
+  @Produces({"text/plain", "application/n-quads"})
+  public Response dump(@Context DatabaseManagementService gds,
+      @PathParam("dbname") String dbNameParam,
+      @QueryParam("threads") Integer threads,
+      @QueryParam("partitionSize") Long partitionSize,
+      @QueryParam("mappedElemsOnly") String onlyMappedInfo,
+      @QueryParam("format") String format,
+      @HeaderParam("accept") String acceptHeaderParam) {
+    return Response.ok().entity((StreamingOutput) outputStream -> {
+      GraphDatabaseService neo4j = gds.database(dbNameParam);
+      try {
+        // statements from different partitions are interleaved, so only line based formats
+        PartitionedDump dump = new PartitionedDump(neo4j,
+            PartitionedDump.processorsFor(neo4j, onlyMappedInfo != null),
+            getFormat(acceptHeaderParam, format).equals(RDFFormat.NQUADS),
+            PartitionedDump.threads(threads),
+            (partitionSize != null ? partitionSize : PartitionedDump.DEFAULT_PARTITION_SIZE));
+        dump.writeTo(outputStream);
+      } catch (Exception e) {
+        // a comment line reads the same in both formats
+        handleSerialisationError(outputStream, e, acceptHeaderParam, RDFFormat.NTRIPLES.getName());
+      }
+    }).build();
+  }
+
   private boolean isRdfStarSerialisation(RDFFormat rdfFormat) {
     return rdfFormat.equals(RDFFormat.TURTLESTAR) ||  rdfFormat.equals(RDFFormat.TRIGSTAR);
   }
@@ -274,7 +293,7 @@ public class RDFEndpoint {
       writer.handleNamespace("owl", OWL.NAMESPACE);
       writer.handleNamespace("rdfs", RDFS.NAMESPACE);
       try (Transaction tx = neo4j.beginTx()) {
-        GraphConfig gc = getGraphConfig(tx);
+        GraphConfig gc = MetadataCache.getGraphConfig(neo4j, tx);
         ExportProcessor proc;
         if ( gc == null || gc.getHandleVocabUris() == GRAPHCONF_VOC_URI_IGNORE
             || gc.getHandleVocabUris() == GRAPHCONF_VOC_URI_MAP) {
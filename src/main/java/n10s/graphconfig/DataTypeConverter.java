@@ -0,0 +1,195 @@
+package n10s.graphconfig;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoField;
+import java.util.Base64;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import n10s.utils.DateUtils;
+import org.eclipse.rdf4j.model.datatypes.XMLDatatypeUtil;
+import org.neo4j.values.storable.DurationValue;
+import org.neo4j.values.storable.PointValue;
+
+/**
+ * Native Neo4j storage for the lexical form of a literal. The built in datatypes use some of
+ * them implicitly, others can be assigned to any datatype IRI with the graph config param
+ * 'customDataTypeConverters'. Converters producing a type no built in datatype produces
+ * (durations, times, byte arrays) are reversed on export, using the datatype they are assigned
+ * to.
+ */
+public enum DataTypeConverter {
+
+  STRING {
+    @Override
+    public Object toStoredValue(String lexical) {
+      return lexical;
+    }
+  },
+  LONG {
+    @Override
+    public Object toStoredValue(String lexical) {
+      return XMLDatatypeUtil.parseLong(lexical);
+    }
+  },
+  DOUBLE {
+    @Override
+    public Object toStoredValue(String lexical) {
+      return XMLDatatypeUtil.parseDouble(lexical);
+    }
+  },
+  BOOLEAN {
+    @Override
+    public Object toStoredValue(String lexical) {
+      return XMLDatatypeUtil.parseBoolean(lexical);
+    }
+  },
+  DATE {
+    @Override
+    public Object toStoredValue(String lexical) {
+      return DateUtils.parseDate(lexical);
+    }
+  },
+  DATETIME {
+    @Override
+    public Object toStoredValue(String lexical) {
+      try {
+        return ZonedDateTime.parse(lexical);
+      } catch (DateTimeParseException dtpe) {
+        try {
+          return ZonedDateTime.parse(lexical, NEO4J_ZONED_DATE_FORMAT);
+        } catch (DateTimeParseException dtpe2) {
+          return DateUtils.parseDateTime(lexical);
+        }
+      }
+    }
+  },
+  EPOCH_MILLIS {
+    @Override
+    public Object toStoredValue(String lexical) {
+      Object dateTime = DATETIME.toStoredValue(lexical);
+      return dateTime instanceof ZonedDateTime ? ((ZonedDateTime) dateTime).toInstant()
+          .toEpochMilli()
+          : ((LocalDateTime) dateTime).toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+  },
+  TIME {
+    @Override
+    public Object toStoredValue(String lexical) {
+      try {
+        return OffsetTime.parse(lexical);
+      } catch (DateTimeParseException e) {
+        return LocalTime.parse(lexical);
+      }
+    }
+
+    @Override
+    public String toLexicalValue(Object stored) {
+      return stored instanceof OffsetTime || stored instanceof LocalTime ? stored.toString()
+          : null;
+    }
+  },
+  DURATION {
+    @Override
+    public Object toStoredValue(String lexical) {
+      return DurationValue.parse(lexical);
+    }
+
+    @Override
+    public String toLexicalValue(Object stored) {
+      return stored instanceof DurationValue ? ((DurationValue) stored).prettyPrint() : null;
+    }
+  },
+  POINT {
+    @Override
+    public Object toStoredValue(String lexical) {
+      return PointValue.parse(wktToCartesian(lexical));
+    }
+  },
+  BASE64_BINARY {
+    @Override
+    public Object toStoredValue(String lexical) {
+      return Base64.getMimeDecoder().decode(lexical);
+    }
+
+    @Override
+    public String toLexicalValue(Object stored) {
+      return stored instanceof byte[] ? Base64.getEncoder().encodeToString((byte[]) stored)
+          : null;
+    }
+  },
+  HEX_BINARY {
+    @Override
+    public Object toStoredValue(String lexical) {
+      String hex = lexical.trim();
+      if (hex.length() % 2 != 0) {
+        throw new IllegalArgumentException("Odd number of digits in hexBinary value " + hex);
+      }
+      byte[] bytes = new byte[hex.length() / 2];
+      for (int i = 0; i < bytes.length; i++) {
+        int high = Character.digit(hex.charAt(2 * i), 16);
+        int low = Character.digit(hex.charAt(2 * i + 1), 16);
+        if (high < 0 || low < 0) {
+          throw new IllegalArgumentException("Invalid hexBinary value " + hex);
+        }
+        bytes[i] = (byte) ((high << 4) + low);
+      }
+      return bytes;
+    }
+
+    @Override
+    public String toLexicalValue(Object stored) {
+      if (!(stored instanceof byte[])) {
+        return null;
+      }
+      StringBuilder hex = new StringBuilder();
+      for (byte b : (byte[]) stored) {
+        hex.append(Character.toUpperCase(Character.forDigit((b >> 4) & 0xF, 16)))
+            .append(Character.toUpperCase(Character.forDigit(b & 0xF, 16)));
+      }
+      return hex.toString();
+    }
+  };
+
+  //formatter to support the format shown int the cypher refcard (timezone but no offset)
+  private static final DateTimeFormatter NEO4J_ZONED_DATE_FORMAT = new DateTimeFormatterBuilder()
+      .appendPattern("yyyy-MM-dd'T'HH:mm:ss")
+      .appendFraction(ChronoField.MILLI_OF_SECOND, 0, 9, true)
+      .appendPattern("'['").appendZoneId().appendPattern("']'").toFormatter();
+  private static final Pattern WKT_POINT = Pattern.compile(
+      "^Point\\((?:(\\-?\\d+(?:\\.\\d+)?)\\s+)?(\\-?\\d+(?:\\.\\d+)?)\\s+(\\-?\\d+(?:\\.\\d+)?)\\)$");
+
+  /**
+   * @return the value to store for the lexical form
+   * @throws RuntimeException (parse exceptions of various kinds) when it is not a valid lexical
+   * form for the converter
+   */
+  public abstract Object toStoredValue(String lexical);
+
+  /**
+   * @return the lexical form of a stored value when it is of the type this converter produces
+   * and that type can only come from a converter, null otherwise
+   */
+  public String toLexicalValue(Object stored) {
+    return null;
+  }
+
+  private static String wktToCartesian(String wktString) {
+    Matcher m = WKT_POINT.matcher(wktString);
+    if(m.matches() && m.groupCount() == 3 && m.group(1)==null){
+      return m.replaceFirst("point({x: $2, y: $3, crs: 'cartesian'})");
+    } else if(m.matches() && m.groupCount() == 3 && m.group(1)!=null){
+      return m.replaceFirst("point({x: $1, y: $2, z: $3, crs: 'cartesian-3d'})");
+    } else {
+      // if it cannot be parsed it's left unchanged and will crash
+      // when trying to create a PointObject out of it (exception will be thrown)
+      return wktString;
+    }
+  }
+}
@@ -1,6 +1,7 @@
 package n10s.graphconfig;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -64,6 +65,7 @@ public class GraphConfig {
   private boolean keepCustomDataTypes;
   private Set<String> multivalPropList;
   private Set<String> customDataTypePropList;
+  private Map<String, DataTypeConverter> customDataTypeConverters;
   private String classLabelName;
   private String subClassOfRelName;
   private String dataTypePropertyLabelName;
@@ -100,6 +102,9 @@ public class GraphConfig {
         .get("customDataTypePropList"))
         .stream().collect(Collectors.toSet()) : null)
         : null);
+    this.customDataTypeConverters = (props.containsKey("customDataTypeConverters")
+        ? parseCustomDataTypeConverters(props.get("customDataTypeConverters"))
+        : new HashMap<>());
     this.baseSchemaNamespace = (props.containsKey("baseSchemaNamespace") && URIUtil.isCorrectURISplit(
             (String) props.get("baseSchemaNamespace"),"someLocalName")?
             (String)props.get("baseSchemaNamespace"): null);
@@ -155,6 +160,8 @@ public class GraphConfig {
       this.multivalPropList = getListOfStringsOrNull(graphConfigProperties, "_multivalPropList");
       this.customDataTypePropList = getListOfStringsOrNull(graphConfigProperties,
           "_customDataTypePropList");
+      this.customDataTypeConverters = getConvertersOrEmpty(graphConfigProperties,
+          "_customDataTypeConverters");
       this.baseSchemaNamespace = (String)graphConfigProperties.get("_baseSchemaNamespace");
       this.baseSchemaNamespacePrefix = (String)graphConfigProperties.get("_baseSchemaPrefix");
 
@@ -203,6 +210,42 @@ public class GraphConfig {
   }
 
 
+  private Map<String, DataTypeConverter> getConvertersOrEmpty(Map<String, Object> gcp,
+      String key) {
+    // stored as an array of "datatype iri=CONVERTER" (maps can't be property values)
+    Map<String, DataTypeConverter> result = new HashMap<>();
+    if (gcp.containsKey(key)) {
+      for (String str : (String[]) gcp.get(key)) {
+        int separator = str.lastIndexOf('=');
+        result.put(str.substring(0, separator),
+            DataTypeConverter.valueOf(str.substring(separator + 1)));
+      }
+    }
+    return result;
+  }
+
+  private Map<String, DataTypeConverter> parseCustomDataTypeConverters(Object param)
+      throws InvalidParamException {
+    Map<String, DataTypeConverter> result = new HashMap<>();
+    if (param == null) {
+      return result;
+    }
+    if (!(param instanceof Map)) {
+      throw new InvalidParamException("'customDataTypeConverters' has to be a map of datatype "
+          + "IRIs to converter names");
+    }
+    for (Map.Entry<String, Object> entry : ((Map<String, Object>) param).entrySet()) {
+      try {
+        result.put(entry.getKey(), DataTypeConverter.valueOf(String.valueOf(entry.getValue())));
+      } catch (IllegalArgumentException e) {
+        throw new InvalidParamException(entry.getValue() + " is not a valid converter for "
+            + "datatype " + entry.getKey() + " in param 'customDataTypeConverters'. Valid "
+            + "converters are " + Arrays.toString(DataTypeConverter.values()));
+      }
+    }
+    return result;
+  }
+
   public int getGraphMode() {
     if (handleVocabUris == GRAPHCONF_VOC_URI_SHORTEN ||
         handleVocabUris == GRAPHCONF_VOC_URI_SHORTEN_STRICT ||
@@ -312,6 +355,11 @@ public class GraphConfig {
     if (getCustomDataTypePropList()!=null){
       result.add(new GraphConfigItemResult("customDataTypePropList", getCustomDataTypePropList()));
     }
+    if (!getCustomDataTypeConverters().isEmpty()) {
+      Map<String, String> converters = new HashMap<>();
+      getCustomDataTypeConverters().forEach((k, v) -> converters.put(k, v.name()));
+      result.add(new GraphConfigItemResult("customDataTypeConverters", converters));
+    }
     result.add(new GraphConfigItemResult("applyNeo4jNaming", isApplyNeo4jNaming()));
     if (getBaseSchemaNamespace()!=null){
       result.add(new GraphConfigItemResult("baseSchemaNamespace", getBaseSchemaNamespace()));
@@ -344,6 +392,9 @@ public class GraphConfig {
     configAsMap.put("_applyNeo4jNaming", this.applyNeo4jNaming);
     configAsMap.put("_multivalPropList", this.multivalPropList);
     configAsMap.put("_customDataTypePropList", this.customDataTypePropList);
+    configAsMap.put("_customDataTypeConverters", this.customDataTypeConverters.isEmpty() ? null
+        : this.customDataTypeConverters.entrySet().stream()
+            .map(e -> e.getKey() + "=" + e.getValue().name()).collect(Collectors.toList()));
     configAsMap.put("_baseSchemaNamespace", this.baseSchemaNamespace);
     configAsMap.put("_baseSchemaPrefix", this.baseSchemaNamespacePrefix);
     configAsMap.put("_classLabel", this.classLabelName);
@@ -389,6 +440,22 @@ public class GraphConfig {
     return customDataTypePropList;
   }
 
+  /**
+   * @return datatype IRI to converter, empty when no converters are configured
+   */
+  public Map<String, DataTypeConverter> getCustomDataTypeConverters() {
+    return customDataTypeConverters;
+  }
+
+  /**
+   * @return the first datatype IRI (in IRI order) assigned to the converter, or null
+   */
+  public String getDataTypeFor(DataTypeConverter converter) {
+    return customDataTypeConverters.entrySet().stream()
+        .filter(e -> e.getValue() == converter).map(Map.Entry::getKey).sorted().findFirst()
+        .orElse(null);
+  }
+
   public String getBaseSchemaNamespace() {
     if (baseSchemaNamespace != null) {
       return baseSchemaNamespace;
@@ -468,6 +535,10 @@ public class GraphConfig {
           ((List<String>) props.get("customDataTypePropList")).stream().collect(Collectors.toSet())
           : null);
     }
+    if (props.containsKey("customDataTypeConverters")) {
+      this.customDataTypeConverters = parseCustomDataTypeConverters(
+          props.get("customDataTypeConverters"));
+    }
     if (props.containsKey("baseSchemaNamespace") && URIUtil.isCorrectURISplit(
             (String) props.get("baseSchemaNamespace"),"someLocalName")) {
       this.baseSchemaNamespace =  (String)props.get("baseSchemaNamespace");
@@ -12,17 +12,42 @@ public class RDFParserConfig {
   private static final long DEFAULT_COMMIT_SIZE = 25000;
   //nodes kept in the cache when writing to disk
   private static final long DEFAULT_NODE_CACHE_SIZE = 10000;
+  //uri to node id entries kept across partial commits
+  private static final long DEFAULT_NODE_ID_CACHE_SIZE = 100000;
+  //relationships tracked by the import scoped existence filter
+  private static final long DEFAULT_REL_INDEX_SIZE = 1000000;
   //number of triples streamed by default
   private static final int DEFAULT_STREAM_TRIPLE_LIMIT = 1000;
+  //batches waiting to be written when the import is pipelined
+  private static final int DEFAULT_WRITER_QUEUE_SIZE = 2;
+  //bounds of the commit size and commit time aimed at in adaptive mode
+  private static final long DEFAULT_MIN_COMMIT_SIZE = 1000;
+  private static final long DEFAULT_MAX_COMMIT_SIZE = 500000;
+  private static final long DEFAULT_TARGET_COMMIT_MILLIS = 1000;
   private final Set<String> predicateExclusionList;
   private final boolean verifyUriSyntax;
   private final long nodeCacheSize;
+  private final long nodeIdCacheSize;
   private final String languageFilter;
   private long commitSize;
   private long streamTripleLimit;
   private boolean abortOnError;
   private GraphConfig graphConf;
   private boolean strictDataTypeCheck;
+  private final int writerThreads;
+  private final int writerQueueSize;
+  private final boolean sortBySubject;
+  private final long relIndexSize;
+  private final int fetchThreads;
+  private final int parseThreads;
+  private final boolean freshImport;
+  private final boolean adaptiveCommit;
+  private final long minCommitSize;
+  private final long maxCommitSize;
+  private final long targetCommitMillis;
+  private final boolean skipUnchanged;
+  private final String importId;
+  private final boolean resume;
 
   public RDFParserConfig(Map<String, Object> props, GraphConfig gc) {
     this.graphConf = gc;
@@ -35,6 +60,8 @@ public class RDFParserConfig {
         : DEFAULT_COMMIT_SIZE);
     nodeCacheSize = (props.containsKey("nodeCacheSize") ? (long) props
         .get("nodeCacheSize") : DEFAULT_NODE_CACHE_SIZE);
+    nodeIdCacheSize = (props.containsKey("nodeIdCacheSize") ? (long) props
+        .get("nodeIdCacheSize") : DEFAULT_NODE_ID_CACHE_SIZE);
     languageFilter = (props.containsKey("languageFilter") ? (String) props
         .get("languageFilter") : null);
     verifyUriSyntax = props.containsKey("verifyUriSyntax") ? (Boolean) props
@@ -45,6 +72,33 @@ public class RDFParserConfig {
             .get("abortOnError") : true;
     strictDataTypeCheck = props.containsKey("strictDataTypeCheck") ? (Boolean) props
             .get("strictDataTypeCheck") : true;
+    writerThreads = (props.containsKey("writerThreads") && (long) props.get("writerThreads") > 0
+        ? (int) (long) props.get("writerThreads") : 0);
+    writerQueueSize = (props.containsKey("writerQueueSize") && (long) props.get("writerQueueSize") > 0
+        ? (int) (long) props.get("writerQueueSize") : DEFAULT_WRITER_QUEUE_SIZE);
+    sortBySubject = props.containsKey("sortBySubject") ? (Boolean) props
+        .get("sortBySubject") : false;
+    relIndexSize = (props.containsKey("relIndexSize") ? (long) props
+        .get("relIndexSize") : DEFAULT_REL_INDEX_SIZE);
+    freshImport = props.containsKey("freshImport") ? (Boolean) props
+        .get("freshImport") : false;
+    fetchThreads = (props.containsKey("fetchThreads") && (long) props.get("fetchThreads") > 0
+        ? (int) (long) props.get("fetchThreads") : 0);
+    parseThreads = (props.containsKey("parseThreads") && (long) props.get("parseThreads") > 0
+        ? (int) (long) props.get("parseThreads") : 1);
+    adaptiveCommit = props.containsKey("adaptiveCommit") ? (Boolean) props
+        .get("adaptiveCommit") : false;
+    minCommitSize = (props.containsKey("minCommitSize") && (long) props.get("minCommitSize") > 0
+        ? (long) props.get("minCommitSize") : DEFAULT_MIN_COMMIT_SIZE);
+    maxCommitSize = (props.containsKey("maxCommitSize") && (long) props.get("maxCommitSize") > 0
+        ? (long) props.get("maxCommitSize") : DEFAULT_MAX_COMMIT_SIZE);
+    targetCommitMillis = (props.containsKey("targetCommitMillis")
+        && (long) props.get("targetCommitMillis") > 0
+        ? (long) props.get("targetCommitMillis") : DEFAULT_TARGET_COMMIT_MILLIS);
+    skipUnchanged = props.containsKey("skipUnchanged") ? (Boolean) props
+        .get("skipUnchanged") : false;
+    importId = (props.containsKey("importId") ? (String) props.get("importId") : null);
+    resume = props.containsKey("resume") ? (Boolean) props.get("resume") : false;
   }
 
   public Set<String> getPredicateExclusionList() {
@@ -67,6 +121,10 @@ public class RDFParserConfig {
     return nodeCacheSize;
   }
 
+  public long getNodeIdCacheSize() {
+    return nodeIdCacheSize;
+  }
+
   public String getLanguageFilter() {
     return languageFilter;
   }
@@ -83,6 +141,34 @@ public class RDFParserConfig {
 
   public boolean isStrictDataTypeCheck() { return strictDataTypeCheck;  }
 
+  public int getWriterThreads() { return writerThreads; }
+
+  public int getWriterQueueSize() { return writerQueueSize; }
+
+  public boolean isSortBySubject() { return sortBySubject; }
+
+  public long getRelIndexSize() { return relIndexSize; }
+
+  public boolean isFreshImport() { return freshImport; }
+
+  public int getFetchThreads() { return fetchThreads; }
+
+  public int getParseThreads() { return parseThreads; }
+
+  public boolean isAdaptiveCommit() { return adaptiveCommit; }
+
+  public long getMinCommitSize() { return minCommitSize; }
+
+  public long getMaxCommitSize() { return maxCommitSize; }
+
+  public long getTargetCommitMillis() { return targetCommitMillis; }
+
+  public boolean isSkipUnchanged() { return skipUnchanged; }
+
+  public String getImportId() { return importId; }
+
+  public boolean isResume() { return resume; }
+
   public Map<String, Object> getConfigSummary() {
     Map<String, Object> summary = new HashMap<>();
 
@@ -98,6 +184,10 @@ public class RDFParserConfig {
       summary.put("nodeCacheSize", nodeCacheSize);
     }
 
+    if (nodeIdCacheSize != DEFAULT_NODE_ID_CACHE_SIZE) {
+      summary.put("nodeIdCacheSize", nodeIdCacheSize);
+    }
+
     if (languageFilter != null) {
       summary.put("languageFilter", languageFilter);
     }
@@ -114,6 +204,50 @@ public class RDFParserConfig {
       summary.put("limit", streamTripleLimit);
     }
 
+    if (writerThreads > 0) {
+      summary.put("writerThreads", writerThreads);
+      summary.put("writerQueueSize", writerQueueSize);
+    }
+
+    if (sortBySubject) {
+      summary.put("sortBySubject", sortBySubject);
+    }
+
+    if (relIndexSize != DEFAULT_REL_INDEX_SIZE) {
+      summary.put("relIndexSize", relIndexSize);
+    }
+
+    if (freshImport) {
+      summary.put("freshImport", freshImport);
+    }
+
+    if (fetchThreads > 0) {
+      summary.put("fetchThreads", fetchThreads);
+    }
+
+    if (parseThreads > 1) {
+      summary.put("parseThreads", parseThreads);
+    }
+
+    if (adaptiveCommit) {
+      summary.put("adaptiveCommit", adaptiveCommit);
+      summary.put("minCommitSize", minCommitSize);
+      summary.put("maxCommitSize", maxCommitSize);
+      summary.put("targetCommitMillis", targetCommitMillis);
+    }
+
+    if (skipUnchanged) {
+      summary.put("skipUnchanged", skipUnchanged);
+    }
+
+    if (importId != null) {
+      summary.put("importId", importId);
+    }
+
+    if (resume) {
+      summary.put("resume", resume);
+    }
+
     return summary;
   }
 }
@@ -5,6 +5,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.stream.Stream;
 import n10s.utils.InvalidNamespacePrefixDefinitionInDB;
+import n10s.utils.MetadataCache;
 import n10s.utils.NsPrefixMap;
 import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.ValueFactory;
@@ -139,7 +140,14 @@ public class MappingUtils {
     return tx.execute(cypher, params).stream().map(MappingDesc::new);
   }
 
+  /**
+   * @return the mappings as committed, cached per database. The map must not be modified.
+   */
   public static Map<String, String> getExportMappingsFromDB(GraphDatabaseService gds) {
+    return MetadataCache.get(gds, "exportMappings", () -> readExportMappingsFromDB(gds));
+  }
+
+  private static Map<String, String> readExportMappingsFromDB(GraphDatabaseService gds) {
     Map<String, String> mappings = new HashMap<>();
     gds.executeTransactionally(
         "MATCH (mp:_MapDef)-[:_IN]->(mns:_MapNs) RETURN mp._key AS key, mp._local AS local, mns._ns AS ns ",
@@ -154,10 +162,16 @@ public class MappingUtils {
             return null;
           }
         });
-    return mappings;
+    return Collections.unmodifiableMap(mappings);
+  }
+
+  static Map<String, String> getPrefixes(GraphDatabaseService gds, String cacheKey,
+      String nsPrefixQuery) {
+    return MetadataCache.get(gds, cacheKey, () -> readPrefixes(gds, nsPrefixQuery));
   }
 
-  static Map<String, String> getPrefixes(GraphDatabaseService gds, String nsPrefixQuery) {
+  private static Map<String, String> readPrefixes(GraphDatabaseService gds,
+      String nsPrefixQuery) {
     Map<String, String> nsprefixes = new HashMap<>();
     gds.executeTransactionally(nsPrefixQuery,
             Collections.emptyMap(), new ResultTransformer<Object>() {
@@ -170,16 +184,16 @@ public class MappingUtils {
                 return null;
               }
             });
-    return nsprefixes;
+    return Collections.unmodifiableMap(nsprefixes);
   }
 
   public static Map<String, String> getPrefixesInUse(GraphDatabaseService gds) {
-    return getPrefixes(gds, "MATCH (nspd:`_NsPrefDef`) UNWIND keys(nspd) as key\n"
+    return getPrefixes(gds, "prefixesInUse", "MATCH (nspd:`_NsPrefDef`) UNWIND keys(nspd) as key\n"
             + "RETURN key as prefix, nspd[key] as ns ");
   }
 
   public static Map<String, String> getPrefixesFromMappingDefinitions(GraphDatabaseService gds) {
-    return getPrefixes(gds,"MATCH (mns:_MapNs) WHERE (:_MapDef)-[:_IN]->(mns) "
+    return getPrefixes(gds, "mappingPrefixes", "MATCH (mns:_MapNs) WHERE (:_MapDef)-[:_IN]->(mns) "
             + "RETURN mns._prefix AS prefix, mns._ns AS ns ");
   }
 
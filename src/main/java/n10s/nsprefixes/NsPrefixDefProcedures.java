@@ -37,7 +37,7 @@ public class NsPrefixDefProcedures {
   public Stream<NamespacePrefixesResult> add(@Name("prefix") String prefix,
       @Name("ns") String ns)
       throws InvalidNamespacePrefixDefinitionInDB, NamespacePrefixConflictException {
-    NsPrefixMap map = new NsPrefixMap(tx, true);
+    NsPrefixMap map = new NsPrefixMap(db, tx, true);
     map.add(prefix, ns);
     map.flushToDB(tx);
 
@@ -57,7 +57,7 @@ public class NsPrefixDefProcedures {
       throw new NsPrefixOperationNotAllowed("This namespace prefix definition cannot be removed "
           + "because mapping definitions based on it exist. Remove mappings first and try again.");
     }
-    NsPrefixMap map = new NsPrefixMap(tx, true);
+    NsPrefixMap map = new NsPrefixMap(db, tx, true);
     map.removePrefix(prefix);
     map.flushToDB(tx);
 
@@ -328,7 +328,7 @@ public class OntologyImporter extends RDFToLPGStatementProcessor {
             }
           });
 
-          entry.getValue().forEach(l -> node.addLabel(Label.label(l)));
+          entry.getValue().forEach(l -> node.addLabel(label(l)));
 
           resourceProps.get(entry.getKey()).forEach((k, v) -> {
             //node.setProperty(k, v);
@@ -411,13 +411,13 @@ public class OntologyImporter extends RDFToLPGStatementProcessor {
         // check if the rel is already present. If so, don't recreate.
         // explore the node with the lowest degree
         boolean found = false;
-        if (fromNode.getDegree(RelationshipType.withName(handleIRI(translateRelName(st.getPredicate()), RELATIONSHIP)),
+        if (fromNode.getDegree(relationshipType(translateRelName(st.getPredicate())),
             Direction.OUTGOING) <
-            toNode.getDegree(RelationshipType.withName(handleIRI(translateRelName(st.getPredicate()), RELATIONSHIP)),
+            toNode.getDegree(relationshipType(translateRelName(st.getPredicate())),
                 Direction.INCOMING)) {
           for (Relationship rel : fromNode
               .getRelationships(Direction.OUTGOING,
-                  RelationshipType.withName(handleIRI(translateRelName(st.getPredicate()),RELATIONSHIP)))) {
+                  relationshipType(translateRelName(st.getPredicate())))) {
             if (rel.getEndNode().equals(toNode)) {
               found = true;
               break;
@@ -426,7 +426,7 @@ public class OntologyImporter extends RDFToLPGStatementProcessor {
         } else {
           for (Relationship rel : toNode
               .getRelationships(Direction.INCOMING,
-                  RelationshipType.withName(handleIRI(translateRelName(st.getPredicate()),RELATIONSHIP)))) {
+                  relationshipType(translateRelName(st.getPredicate())))) {
             if (rel.getStartNode().equals(fromNode)) {
               found = true;
               break;
@@ -437,7 +437,7 @@ public class OntologyImporter extends RDFToLPGStatementProcessor {
         if (!found) {
           fromNode.createRelationshipTo(
               toNode,
-              RelationshipType.withName(handleIRI(translateRelName(st.getPredicate()),RELATIONSHIP)));
+              relationshipType(translateRelName(st.getPredicate())));
         }
       } catch (ExecutionException e) {
         e.printStackTrace();
@@ -543,4 +543,8 @@ public class OntologyImporter extends RDFToLPGStatementProcessor {
     }
   }
 
+  @Override
+  protected boolean storesNamespaces() {
+    return true;
+  }
 }
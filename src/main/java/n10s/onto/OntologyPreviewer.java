@@ -77,7 +77,7 @@ public class OntologyPreviewer extends OntologyImporter {
         vRels.add(
             new VirtualRelationship(vNodes.get(st.getSubject().stringValue().replace("'", "\'")),
                 vNodes.get(st.getObject().stringValue().replace("'", "\'")),
-                RelationshipType.withName(handleIRI(translateRelName(st.getPredicate()),RELATIONSHIP))));
+                relationshipType(translateRelName(st.getPredicate()))));
       } catch (NamespacePrefixConflictException e) {
         e.printStackTrace();
       }
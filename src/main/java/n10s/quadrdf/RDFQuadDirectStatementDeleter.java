@@ -258,16 +258,13 @@ public class RDFQuadDirectStatementDeleter extends RDFQuadToLPGStatementProcesso
         }
 
         // find relationship if it exists
-        if (fromNode.getDegree(RelationshipType
-                .withName(handleIRI(st.getPredicate(), RDFToLPGStatementProcessor.RELATIONSHIP)),
+        if (fromNode.getDegree(relationshipType(st.getPredicate()),
             Direction.OUTGOING) <
-            toNode.getDegree(RelationshipType
-                    .withName(handleIRI(st.getPredicate(), RDFToLPGStatementProcessor.RELATIONSHIP)),
+            toNode.getDegree(relationshipType(st.getPredicate()),
                 Direction.INCOMING)) {
           for (Relationship rel : fromNode
               .getRelationships(Direction.OUTGOING,
-                  RelationshipType.withName(
-                      handleIRI(st.getPredicate(), RDFToLPGStatementProcessor.RELATIONSHIP)))) {
+                  relationshipType(st.getPredicate()))) {
             if (rel.getEndNode().equals(toNode)) {
               rel.delete();
               break;
@@ -276,8 +273,7 @@ public class RDFQuadDirectStatementDeleter extends RDFQuadToLPGStatementProcesso
         } else {
           for (Relationship rel : toNode
               .getRelationships(Direction.INCOMING,
-                  RelationshipType.withName(
-                      handleIRI(st.getPredicate(), RDFToLPGStatementProcessor.RELATIONSHIP)))) {
+                  relationshipType(st.getPredicate()))) {
             if (rel.getStartNode().equals(fromNode)) {
               rel.delete();
               break;
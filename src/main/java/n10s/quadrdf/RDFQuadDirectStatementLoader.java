@@ -91,7 +91,7 @@ public class RDFQuadDirectStatementLoader extends RDFQuadToLPGStatementProcessor
           }
         });
 
-        entry.getValue().forEach(l -> node.addLabel(Label.label(l)));
+        entry.getValue().forEach(l -> node.addLabel(label(l)));
         resourceProps.get(entry.getKey()).forEach((k, v) -> {
           if (v instanceof List) {
             Object currentValue = node.getProperty(k, null);
@@ -183,16 +183,13 @@ public class RDFQuadDirectStatementLoader extends RDFQuadToLPGStatementProcessor
         // check if the rel is already present. If so, don't recreate.
         // explore the node with the lowest degree
         boolean found = false;
-        if (fromNode.getDegree(RelationshipType
-                .withName(handleIRI(st.getPredicate(), RDFToLPGStatementProcessor.RELATIONSHIP)),
+        if (fromNode.getDegree(relationshipType(st.getPredicate()),
             Direction.OUTGOING) <
-            toNode.getDegree(RelationshipType
-                    .withName(handleIRI(st.getPredicate(), RDFToLPGStatementProcessor.RELATIONSHIP)),
+            toNode.getDegree(relationshipType(st.getPredicate()),
                 Direction.INCOMING)) {
           for (Relationship rel : fromNode
               .getRelationships(Direction.OUTGOING,
-                  RelationshipType.withName(
-                      handleIRI(st.getPredicate(), RDFToLPGStatementProcessor.RELATIONSHIP)))) {
+                  relationshipType(st.getPredicate()))) {
             if (rel.getEndNode().equals(toNode)) {
               found = true;
               break;
@@ -201,8 +198,7 @@ public class RDFQuadDirectStatementLoader extends RDFQuadToLPGStatementProcessor
         } else {
           for (Relationship rel : toNode
               .getRelationships(Direction.INCOMING,
-                  RelationshipType.withName(
-                      handleIRI(st.getPredicate(), RDFToLPGStatementProcessor.RELATIONSHIP)))) {
+                  relationshipType(st.getPredicate()))) {
             if (rel.getStartNode().equals(fromNode)) {
               found = true;
               break;
@@ -213,8 +209,7 @@ public class RDFQuadDirectStatementLoader extends RDFQuadToLPGStatementProcessor
         if (!found) {
           fromNode.createRelationshipTo(
               toNode,
-              RelationshipType
-                  .withName(handleIRI(st.getPredicate(), RDFToLPGStatementProcessor.RELATIONSHIP)));
+              relationshipType(st.getPredicate()));
         }
       } catch (ExecutionException e) {
         e.printStackTrace();
@@ -262,4 +257,8 @@ public class RDFQuadDirectStatementLoader extends RDFQuadToLPGStatementProcessor
 
   }
 
+  @Override
+  protected boolean storesNamespaces() {
+    return true;
+  }
 }
@@ -7,32 +7,51 @@ import static n10s.graphconfig.Params.PREFIX_SEPARATOR;
 import static n10s.graphconfig.Params.SHORTENED_URI_PATTERN;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.nio.charset.Charset;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.stream.Stream;
 import n10s.CommonProcedures;
+import n10s.ConfiguredStatementHandler;
 import n10s.ConfiguredStatementHandler.TripleLimitReached;
 import n10s.RDFImportException;
+import n10s.ResumingHandler;
 import n10s.graphconfig.GraphConfig;
 import n10s.graphconfig.GraphConfig.InvalidParamException;
 import n10s.graphconfig.RDFParserConfig;
 import n10s.rdf.delete.DirectStatementDeleter;
+import n10s.rdf.load.AdminImportCsvWriter;
 import n10s.rdf.load.DirectNodeAdder;
 import n10s.rdf.load.DirectRelationshipAdder;
 import n10s.rdf.load.DirectStatementLoader;
+import n10s.rdf.load.ImportCheckpoint;
+import n10s.rdf.load.SharedWriterStage;
+import n10s.rdf.load.SubjectSortingHandler;
 import n10s.rdf.preview.StatementPreviewer;
 import n10s.rdf.stream.StarFormatStatementStreamer;
 import n10s.rdf.stream.StatementStreamer;
 import n10s.result.GraphResult;
 import n10s.result.StreamedStatement;
 import n10s.utils.InvalidNamespacePrefixDefinitionInDB;
+import n10s.utils.N10sSettings;
 import n10s.utils.NsPrefixMap;
 import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
@@ -61,12 +80,17 @@ public class RDFProcedures extends CommonProcedures {
     DirectStatementLoader statementLoader = null;
     RDFParserConfig conf = null;
     RDFFormat rdfFormat = null;
+    ImportCheckpoint checkpoint = null;
     ImportResults importResults = new ImportResults();
     try {
       checkConstraintExist();
       conf = new RDFParserConfig(props, (overrideGC != null ? overrideGC : new GraphConfig(tx)));
       rdfFormat = getFormat(format);
+      if (conf.getImportId() != null) {
+        checkpoint = startCheckpoint(conf, url);
+      }
       statementLoader = new DirectStatementLoader(db, tx, conf, log);
+      statementLoader.setCheckpoint(checkpoint);
     } catch (RDFImportPreRequisitesNotMet e) {
       importResults.setTerminationKO(e.getMessage());
     } catch (GraphConfig.GraphConfigNotFound e) {
@@ -77,24 +101,262 @@ public class RDFProcedures extends CommonProcedures {
     }
 
     if (statementLoader != null) {
+      SubjectSortingHandler sorter = conf.isSortBySubject()
+          ? new SubjectSortingHandler(statementLoader) : null;
+      ConfiguredStatementHandler handler = (sorter != null ? sorter : statementLoader);
+      if (checkpoint != null && checkpoint.getResumeOffset() > 0) {
+        handler = new ResumingHandler(handler, checkpoint.getResumeOffset());
+      }
       try {
-        parseRDFPayloadOrFromUrl(rdfFormat, url, rdfFragment, props, statementLoader);
+        parseRDFPayloadOrFromUrl(rdfFormat, url, rdfFragment, props, handler,
+            checkpoint != null ? checkpoint.getBNodePrefix() : null);
         importResults.setTriplesLoaded(statementLoader.totalTriplesMapped);
         importResults.setTriplesParsed(statementLoader.totalTriplesParsed);
         importResults.setNamespaces(statementLoader.getNamespaces());
         importResults.setConfigSummary(props);
         importResults.setExtraInfo(statementLoader.getWarnings());
+        importResults.setCommitSizes(statementLoader.getCommitSizes());
+        importResults.setChanges(statementLoader.getChanges());
+        if (checkpoint != null) {
+          checkpoint.finish(db, ImportCheckpoint.STATUS_COMPLETE);
+        }
 
       } catch (IOException | RDFHandlerException | QueryExecutionException | RDFParseException e) {
+        //batches already handed over to the writer threads (if any) still get committed
+        statementLoader.awaitPendingWrites();
         importResults.setTerminationKO(e.getMessage());
         importResults.setTriplesLoaded(statementLoader.totalTriplesMapped);
         importResults.setTriplesParsed(statementLoader.totalTriplesParsed);
         importResults.setConfigSummary(props);
+        importResults.setCommitSizes(statementLoader.getCommitSizes());
+        importResults.setChanges(statementLoader.getChanges());
+        if (checkpoint != null) {
+          checkpoint.finish(db, ImportCheckpoint.STATUS_FAILED);
+        }
+      } finally {
+        if (sorter != null) {
+          sorter.deleteTemporaryFiles();
+        }
       }
     }
     return importResults;
   }
 
+  /**
+   * Checkpoints are saved by the partial commits of the parsing thread, in source order, so they
+   * can't be combined with pipelined writes or with reordering the statements.
+   */
+  private ImportCheckpoint startCheckpoint(RDFParserConfig conf, String url)
+      throws RDFImportBadParams {
+    if (conf.getWriterThreads() > 0 || conf.isSortBySubject()) {
+      throw new RDFImportBadParams(
+          "importId can't be combined with writerThreads or sortBySubject");
+    }
+    try {
+      return ImportCheckpoint.start(tx, conf.getImportId(), url, conf.isResume());
+    } catch (IllegalArgumentException e) {
+      throw new RDFImportBadParams(e.getMessage());
+    }
+  }
+
+  /**
+   * Imports several sources at once. Each one is fetched, decompressed and parsed on its own
+   * thread (at most fetchThreads at a time) and all of them feed a single writer stage.
+   */
+  protected List<SourceImportResults> doMultiImport(String format, List<String> urls,
+      Map<String, Object> props) {
+
+    RDFParserConfig conf = null;
+    RDFFormat rdfFormat = null;
+    SharedWriterStage writerStage = null;
+    List<String> sources = null;
+    String initError = null;
+    try {
+      checkConstraintExist();
+      conf = new RDFParserConfig(props, new GraphConfig(tx));
+      rdfFormat = getFormat(format);
+      if (conf.getImportId() != null) {
+        throw new RDFImportBadParams("importId is only supported when importing a single source");
+      }
+      sources = expandSources(urls);
+      writerStage = new SharedWriterStage(db, tx, conf, log);
+    } catch (RDFImportPreRequisitesNotMet | RDFImportBadParams | IOException e) {
+      initError = e.getMessage();
+    } catch (GraphConfig.GraphConfigNotFound e) {
+      initError = "A Graph Config is required for RDF importing procedures to run";
+    } catch (InvalidNamespacePrefixDefinitionInDB e) {
+      initError = e.getMessage();
+    }
+
+    List<SourceImportResults> results = new ArrayList<>();
+    if (writerStage == null) {
+      ImportResults importResults = new ImportResults();
+      importResults.setTerminationKO(initError);
+      for (String url : urls) {
+        results.add(new SourceImportResults(url, importResults));
+      }
+      return results;
+    }
+
+    // created by the fetch tasks as they start rather than all of them up front
+    DirectStatementLoader[] loaders = new DirectStatementLoader[sources.size()];
+    int threads = conf.getFetchThreads() > 0 ? conf.getFetchThreads()
+        : Math.min(sources.size(), Runtime.getRuntime().availableProcessors());
+    AtomicInteger threadCount = new AtomicInteger();
+    ExecutorService fetchers = Executors.newFixedThreadPool(Math.max(threads, 1), r -> {
+      Thread t = new Thread(r, "n10s-fetch-" + threadCount.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    });
+    List<Future<ImportResults>> pending = new ArrayList<>();
+    try {
+      for (int i = 0; i < sources.size(); i++) {
+        int source = i;
+        String url = sources.get(i);
+        RDFParserConfig sourceConf = conf;
+        RDFFormat sourceFormat = rdfFormat;
+        SharedWriterStage stage = writerStage;
+        pending.add(fetchers.submit(() -> {
+          loaders[source] = stage.newSourceLoader();
+          return importSource(sourceFormat, url, props, sourceConf, loaders[source]);
+        }));
+      }
+      for (int i = 0; i < sources.size(); i++) {
+        ImportResults importResults;
+        try {
+          importResults = pending.get(i).get();
+        } catch (ExecutionException e) {
+          importResults = new ImportResults();
+          importResults.setTerminationKO(e.getCause().getMessage());
+        }
+        results.add(new SourceImportResults(sources.get(i), importResults));
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      fetchers.shutdownNow();
+    } finally {
+      fetchers.shutdown();
+      // batches already handed over still get committed
+      writerStage.awaitPendingWrites();
+    }
+
+    // totals are only final once everything is written
+    String writeWarnings = writerStage.getWarnings();
+    for (int i = 0; i < results.size(); i++) {
+      SourceImportResults result = results.get(i);
+      // no loader when the task never started
+      if (loaders[i] != null) {
+        result.triplesLoaded = loaders[i].totalTriplesMapped;
+        result.commitSizes = loaders[i].getCommitSizes();
+        result.changes = loaders[i].getChanges();
+      }
+      if (!writeWarnings.isEmpty() && result.terminationStatus.equals("OK")) {
+        result.extraInfo = result.extraInfo + writeWarnings;
+      }
+    }
+    return results;
+  }
+
+  private ImportResults importSource(RDFFormat rdfFormat, String url, Map<String, Object> props,
+      RDFParserConfig conf, DirectStatementLoader loader) {
+    ImportResults importResults = new ImportResults();
+    SubjectSortingHandler sorter = conf.isSortBySubject()
+        ? new SubjectSortingHandler(loader) : null;
+    try {
+      parseRDFPayloadOrFromUrl(rdfFormat, url, null, props, sorter != null ? sorter : loader);
+      importResults.setNamespaces(loader.getNamespaces());
+      importResults.setExtraInfo(loader.getWarnings());
+    } catch (IOException | RDFHandlerException | QueryExecutionException | RDFParseException e) {
+      importResults.setTerminationKO(e.getMessage());
+    } finally {
+      if (sorter != null) {
+        sorter.deleteTemporaryFiles();
+      }
+      importResults.setTriplesParsed(loader.totalTriplesParsed);
+      importResults.setConfigSummary(props);
+    }
+    return importResults;
+  }
+
+  /**
+   * Expands file urls with wildcards (* or ?) in the file name into the matching files, sorted
+   * by name. Any other url is kept as is.
+   */
+  private List<String> expandSources(List<String> urls) throws IOException, RDFImportBadParams {
+    List<String> sources = new ArrayList<>();
+    for (String url : urls) {
+      int lastSlash = url.lastIndexOf('/');
+      String fileName = url.substring(lastSlash + 1);
+      if (!url.startsWith("file:") || url.contains("!") || lastSlash < 0
+          || !(fileName.contains("*") || fileName.contains("?"))) {
+        sources.add(url);
+        continue;
+      }
+      File dir;
+      try {
+        dir = new File(new URI(url.substring(0, lastSlash + 1)));
+      } catch (URISyntaxException | IllegalArgumentException e) {
+        throw new RDFImportBadParams("Invalid file url: " + url);
+      }
+      PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + fileName);
+      try (Stream<Path> files = Files.list(dir.toPath())) {
+        files.filter(f -> Files.isRegularFile(f) && matcher.matches(f.getFileName()))
+            .sorted()
+            .forEach(f -> sources.add(f.toUri().toString()));
+      }
+    }
+    if (sources.isEmpty()) {
+      throw new RDFImportBadParams("No source matches the urls provided: " + urls);
+    }
+    return sources;
+  }
+
+  protected AdminCsvResults doAdminCsvExport(String format, String url, String outputDir,
+      Map<String, Object> props) {
+
+    AdminImportCsvWriter csvWriter = null;
+    RDFParserConfig conf = null;
+    RDFFormat rdfFormat = null;
+    AdminCsvResults results = new AdminCsvResults();
+    try {
+      File dir = N10sSettings.exportDirectory(db, outputDir);
+      if (new File(dir, AdminImportCsvWriter.NODES_FILE).exists()) {
+        throw new RDFImportBadParams("The output directory " + outputDir
+            + " already contains an export. Please remove it or use a different directory.");
+      }
+      if (!dir.isDirectory() && !dir.mkdirs()) {
+        throw new RDFImportBadParams("Could not create the output directory " + outputDir);
+      }
+      conf = new RDFParserConfig(props, new GraphConfig(tx));
+      rdfFormat = getFormat(format);
+      csvWriter = new AdminImportCsvWriter(db, tx, conf, log, dir);
+    } catch (GraphConfig.GraphConfigNotFound e) {
+      results.setTerminationKO("A Graph Config is required for RDF importing procedures to run");
+    } catch (RDFImportBadParams | IllegalArgumentException e) {
+      results.setTerminationKO(e.getMessage());
+    }
+
+    if (csvWriter != null) {
+      try {
+        parseRDFPayloadOrFromUrl(rdfFormat, url, null, props, csvWriter);
+        results.triplesLoaded = csvWriter.totalTriplesMapped;
+        results.nodesWritten = csvWriter.getNodesWritten();
+        results.relationshipsWritten = csvWriter.getRelationshipsWritten();
+        results.files = csvWriter.getFilesWritten();
+        results.importCommand = csvWriter.getImportCommand();
+        results.setNamespaces(csvWriter.getNamespaces());
+        results.setExtraInfo(csvWriter.getWarnings());
+      } catch (IOException | RDFHandlerException | QueryExecutionException | RDFParseException e) {
+        results.setTerminationKO(e.getMessage());
+      } finally {
+        csvWriter.deleteTemporaryFiles();
+        results.triplesParsed = csvWriter.totalTriplesParsed;
+        results.setConfigSummary(props);
+      }
+    }
+    return results;
+  }
+
   protected GraphResult doPreview(@Name("url") String url, @Name("rdf") String rdfFragment,
       @Name("format") String format,
       @Name(value = "params", defaultValue = "{}") Map<String, Object> props)
@@ -382,6 +644,8 @@ public class RDFProcedures extends CommonProcedures {
     public Map<String, String> namespaces;
     public String extraInfo = "";
     public Map<String, Object> callParams;
+    public Map<String, Object> commitSizes;
+    public Map<String, Object> changes;
 
     public void setTriplesLoaded(long count) {
       this.triplesLoaded = count;
@@ -408,6 +672,128 @@ public class RDFProcedures extends CommonProcedures {
       this.extraInfo = message;
     }
 
+    public void setCommitSizes(Map<String, Object> commitSizes) {
+      this.commitSizes = commitSizes;
+    }
+
+    public void setChanges(Map<String, Object> changes) {
+      this.changes = changes;
+    }
+
+
+  }
+
+  public static class SourceImportResults {
+
+    public String url;
+    public String terminationStatus;
+    public long triplesLoaded;
+    public long triplesParsed;
+    public Map<String, String> namespaces;
+    public String extraInfo;
+    public Map<String, Object> callParams;
+    public Map<String, Object> commitSizes;
+    public Map<String, Object> changes;
+
+    public SourceImportResults(String url, ImportResults importResults) {
+      this.url = url;
+      this.terminationStatus = importResults.terminationStatus;
+      this.triplesLoaded = importResults.triplesLoaded;
+      this.triplesParsed = importResults.triplesParsed;
+      this.namespaces = importResults.namespaces;
+      this.extraInfo = importResults.extraInfo;
+      this.callParams = importResults.callParams;
+      this.commitSizes = importResults.commitSizes;
+      this.changes = importResults.changes;
+    }
+  }
+
+  public static class AdminCsvResults {
+
+    public String terminationStatus = "OK";
+    public long triplesLoaded = 0;
+    public long triplesParsed = 0;
+    public long nodesWritten = 0;
+    public long relationshipsWritten = 0;
+    public List<String> files;
+    public String importCommand;
+    public Map<String, String> namespaces;
+    public String extraInfo = "";
+    public Map<String, Object> callParams;
+
+    public void setConfigSummary(Map<String, Object> summary) {
+      this.callParams = summary;
+    }
+
+    public void setNamespaces(Map<String, String> namespaces) {
+      this.namespaces = namespaces;
+    }
+
+    public void setTerminationKO(String message) {
+      this.terminationStatus = "KO";
+      this.extraInfo = message;
+    }
+
+    public void setExtraInfo(String message) {
+      this.extraInfo = message;
+    }
+
+  }
+
+  public static class DumpResults {
+
+    public String terminationStatus = "OK";
+    public long nodesWritten = 0;
+    public long triplesWritten = 0;
+    public long partitionsScanned = 0;
+    public List<String> files;
+    public String extraInfo = "";
+
+    public void setTerminationKO(String message) {
+      this.terminationStatus = "KO";
+      this.extraInfo = message;
+    }
+
+  }
+
+  public static class PatchResults {
+
+    public String terminationStatus = "OK";
+    public long triplesAdded = 0;
+    public long triplesDeleted = 0;
+    public long transactionsApplied = 0;
+    public Map<String, String> namespaces;
+    public String extraInfo = "";
+    public Map<String, Object> callParams;
+
+    public void setTriplesAdded(long triplesAdded) {
+      this.triplesAdded = triplesAdded;
+    }
+
+    public void setTriplesDeleted(long triplesDeleted) {
+      this.triplesDeleted = triplesDeleted;
+    }
+
+    public void setTransactionsApplied(long transactionsApplied) {
+      this.transactionsApplied = transactionsApplied;
+    }
+
+    public void setNamespaces(Map<String, String> namespaces) {
+      this.namespaces = namespaces;
+    }
+
+    public void setExtraInfo(String extraInfo) {
+      this.extraInfo = extraInfo;
+    }
+
+    public void setConfigSummary(Map<String, Object> summary) {
+      this.callParams = summary;
+    }
+
+    public void setTerminationKO(String message) {
+      this.terminationStatus = "KO";
+      this.extraInfo = message;
+    }
 
   }
 
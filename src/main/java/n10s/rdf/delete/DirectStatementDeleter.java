@@ -192,13 +192,13 @@ public class DirectStatementDeleter extends RDFToLPGStatementProcessor {
         }
         // find relationship if it exists
         if (fromNode
-            .getDegree(RelationshipType.withName(handleIRI(st.getPredicate(), RELATIONSHIP)),
+            .getDegree(relationshipType(st.getPredicate()),
                 Direction.OUTGOING) <
-            toNode.getDegree(RelationshipType.withName(handleIRI(st.getPredicate(), RELATIONSHIP)),
+            toNode.getDegree(relationshipType(st.getPredicate()),
                 Direction.INCOMING)) {
           for (Relationship rel : fromNode
               .getRelationships(Direction.OUTGOING,
-                  RelationshipType.withName(handleIRI(st.getPredicate(), RELATIONSHIP))
+                  relationshipType(st.getPredicate())
               )) {
             if (rel.getEndNode().equals(toNode)) {
               rel.delete();
@@ -208,7 +208,7 @@ public class DirectStatementDeleter extends RDFToLPGStatementProcessor {
         } else {
           for (Relationship rel : toNode
               .getRelationships(Direction.INCOMING,
-                  RelationshipType.withName(handleIRI(st.getPredicate(), RELATIONSHIP))
+                  relationshipType(st.getPredicate())
               )) {
             if (rel.getStartNode().equals(fromNode)) {
               rel.delete();
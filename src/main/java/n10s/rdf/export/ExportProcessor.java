@@ -2,6 +2,8 @@ package n10s.rdf.export;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetTime;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
@@ -9,11 +11,12 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import n10s.graphconfig.DataTypeConverter;
 import n10s.graphconfig.GraphConfig;
 import n10s.graphconfig.Params;
 import n10s.utils.InvalidNamespacePrefixDefinitionInDB;
@@ -22,6 +25,7 @@ import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
 import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
 import org.eclipse.rdf4j.model.vocabulary.XSD;
 import org.neo4j.graphdb.*;
+import org.neo4j.values.storable.DurationValue;
 import org.neo4j.values.storable.PointValue;
 
 import static n10s.graphconfig.Params.DEFAULT_BASE_SCH_NS;
@@ -30,6 +34,9 @@ import static n10s.graphconfig.Params.WKTLITERAL;
 
 public abstract class ExportProcessor {
 
+  private static final DataTypeConverter[] REVERSIBLE_CONVERTERS = {DataTypeConverter.DURATION,
+      DataTypeConverter.TIME, DataTypeConverter.BASE64_BINARY, DataTypeConverter.HEX_BINARY};
+
   protected Transaction tx;
   protected GraphDatabaseService graphdb;
   protected final ValueFactory vf = SimpleValueFactory.getInstance();
@@ -45,77 +52,55 @@ public abstract class ExportProcessor {
   }
 
   public Stream<Statement> streamTriplesFromCypher(String cypher, Map<String, Object> params) {
+    return streamTriplesFromCypher(cypher, params, NodeDedup.fromParams(new HashMap<>()));
+  }
+
+  /**
+   * Statements are emitted as the elements of each row are read, nothing is buffered. Nodes
+   * returned more than once are serialised once or not depending on the dedup strategy.
+   */
+  public Stream<Statement> streamTriplesFromCypher(String cypher, Map<String, Object> params,
+      NodeDedup nodeDedup) {
 
     final Result result = this.tx.execute(cypher, params);
     Map<Long, IRI> ontologyEntitiesUris = new HashMap<>();
 
-    Set<Long> serializedNodeIds = new HashSet<>();
     return result.stream().flatMap(row -> {
-      Set<Statement> rowResult = new HashSet<>();
-      Set<Entry<String, Object>> entries = row.entrySet();
-
-      List<Node> nodes = new ArrayList<>();
-      List<Relationship> rels = new ArrayList<>();
-      List<Path> paths = new ArrayList<>();
-
-      for (Entry<String, Object> entry : entries) {
-        Object o = entry.getValue();
-        if (o instanceof Node) {
-          nodes.add((Node) o);
-        } else if (o instanceof Relationship) {
-          rels.add((Relationship) o);
-        } else if (o instanceof Path) {
-          paths.add((Path) o);
-        } else if (o instanceof List){
-          // This is ugly. Only processes list but not list of lists... or maps... etc...
-          // that said, it should be good enough for an export feature.
-          ((List) o).stream().forEach( x ->  { if (x instanceof Node) {
-            nodes.add((Node) x);
-          } else if (x instanceof Relationship) {
-            rels.add((Relationship) x);
-          } else if (x instanceof Path) {
-            paths.add((Path) x);
-          } } );
-        }
-        //  if it's not a node, a  rel or a path or a collection thereof...
-        //  then it cannot be converted to triples so we ignore it
-      }
-
-      for (Node node : nodes) {
-        //Do we need to keep a list of serializednodeids?
-        if (!serializedNodeIds.contains(node.getId()) && !filterNode(node, ontologyEntitiesUris)) {
-          serializedNodeIds.add(node.getId());
-          rowResult.addAll(processNode(node, ontologyEntitiesUris, null));
-        }
-      }
-
-      for (Relationship rel : rels) {
-        if( !filterRelationship(rel,ontologyEntitiesUris)) {
-          rowResult.addAll(processRelationship(rel, ontologyEntitiesUris));
-        }
-      }
-
-      for (Path p : paths) {
-        p.iterator().forEachRemaining(propertyContainer -> {
-              if (propertyContainer instanceof Node) {
-                Node node = (Node) propertyContainer;
-                if (!serializedNodeIds.contains(node.getId())&&!filterNode(node,  ontologyEntitiesUris)) {
-                  serializedNodeIds.add(node.getId());
-                  rowResult.addAll(processNode(node, ontologyEntitiesUris, null));
-                }
-              } else if (propertyContainer instanceof Relationship &&
-                  !filterRelationship((Relationship) propertyContainer, ontologyEntitiesUris)) {
-                rowResult.addAll(processRelationship((Relationship) propertyContainer, ontologyEntitiesUris));
+      // a relationship can show up more than once in a row (on its own and in a path)
+      Set<Long> rowRelationships = new HashSet<>();
+      return row.values().stream()
+          //  if it's not a node, a  rel or a path or a collection thereof...
+          //  then it cannot be converted to triples so we ignore it
+          .flatMap(o -> o instanceof List
+              // only processes lists but not lists of lists... or maps... etc...
+              // that said, it should be good enough for an export feature.
+              ? ((List<?>) o).stream().filter(x -> !(x instanceof List))
+              .flatMap(this::graphElements)
+              : graphElements(o))
+          .flatMap(element -> {
+            if (element instanceof Node) {
+              Node node = (Node) element;
+              if (nodeDedup.firstSeen(node.getId()) && !filterNode(node, ontologyEntitiesUris)) {
+                return processNode(node, ontologyEntitiesUris, null).stream();
               }
+            } else if (rowRelationships.add(element.getId())
+                && !filterRelationship((Relationship) element, ontologyEntitiesUris)) {
+              return processRelationship((Relationship) element, ontologyEntitiesUris).stream();
             }
-        );
-      }
-
-      return rowResult.stream();
-
+            return Stream.empty();
+          });
     });
   }
 
+  private Stream<Entity> graphElements(Object o) {
+    if (o instanceof Node || o instanceof Relationship) {
+      return Stream.of((Entity) o);
+    } else if (o instanceof Path) {
+      return lazyStream((Path) o);
+    }
+    return Stream.empty();
+  }
+
   public Stream<Statement> streamNodesBySearch(String label, String property, String propVal,
                                                String valType, boolean includeContext) {
     Set<Statement> result = new HashSet<>();
@@ -135,6 +120,69 @@ public abstract class ExportProcessor {
     return result.stream();
   }
 
+  /**
+   * The statements of a relationship minus the ones already produced by parallel relationships
+   * (same type and same end nodes) with a lower id. Streamed exports can't remember what they
+   * have emitted, but duplicate triples can only come from parallel relationships, and these can
+   * be found from the relationship itself.
+   */
+  protected Set<Statement> processRelationshipOnce(Relationship rel,
+      Map<Long, IRI> ontologyEntitiesUris) {
+    Set<Statement> statements = processRelationship(rel, ontologyEntitiesUris);
+    for (Relationship parallel : earlierParallelRelationships(rel)) {
+      statements.removeAll(processRelationship(parallel, ontologyEntitiesUris));
+    }
+    return statements;
+  }
+
+  protected List<Relationship> earlierParallelRelationships(Relationship rel) {
+    List<Relationship> parallels = new ArrayList<>();
+    Node start = rel.getStartNode();
+    Node end = rel.getEndNode();
+    RelationshipType type = rel.getType();
+    int outDegree = start.getDegree(type, Direction.OUTGOING);
+    if (outDegree == 1) {
+      return parallels;
+    }
+    int inDegree = end.getDegree(type, Direction.INCOMING);
+    if (inDegree == 1) {
+      return parallels;
+    }
+    // explores the end with the lowest degree
+    if (outDegree <= inDegree) {
+      for (Relationship candidate : start.getRelationships(Direction.OUTGOING, type)) {
+        if (candidate.getId() < rel.getId() && candidate.getEndNode().equals(end)) {
+          parallels.add(candidate);
+        }
+      }
+    } else {
+      for (Relationship candidate : end.getRelationships(Direction.INCOMING, type)) {
+        if (candidate.getId() < rel.getId() && candidate.getStartNode().equals(start)) {
+          parallels.add(candidate);
+        }
+      }
+    }
+    return parallels;
+  }
+
+  /**
+   * What a node contributes to a dump of the whole graph: its own statements and the ones of its
+   * outgoing relationships, so that every relationship is serialised exactly once.
+   */
+  Stream<Statement> streamNodeForDump(Node node) {
+    if (filterNode(node, null)) {
+      return Stream.empty();
+    }
+    return Stream.concat(processNode(node, null, null).stream(),
+        lazyStream(node.getRelationships(Direction.OUTGOING))
+            .filter(rel -> !filterRelationship(rel, null))
+            .flatMap(rel -> processRelationshipOnce(rel, null).stream()));
+  }
+
+  protected static <T> Stream<T> lazyStream(Iterable<T> iterable) {
+    return StreamSupport.stream(iterable.spliterator(), false);
+  }
+
   protected Literal createTypedLiteral(Object value) {
     Literal result;
     if (value instanceof String) {
@@ -166,6 +214,9 @@ public abstract class ExportProcessor {
       result = vf
                 .createLiteral(pointValueToWTK((PointValue) value), vf.createIRI(GEOSPARQL_NS, WKTLITERAL));
 
+    } else if (value instanceof DurationValue || value instanceof byte[]
+        || value instanceof LocalTime || value instanceof OffsetTime) {
+      result = createConvertedLiteral(value);
     } else {
       // default to string
       result = getLiteralWithTagOrDTIfPresent((String) value);
@@ -174,6 +225,27 @@ public abstract class ExportProcessor {
     return result;
   }
 
+  /**
+   * Values that can only come from a datatype converter (see customDataTypeConverters in the
+   * graph config) get the datatype the converter is assigned to, or the XML Schema one.
+   */
+  private Literal createConvertedLiteral(Object value) {
+    for (DataTypeConverter converter : REVERSIBLE_CONVERTERS) {
+      String datatype = (graphConfig != null ? graphConfig.getDataTypeFor(converter) : null);
+      if (datatype != null && converter.toLexicalValue(value) != null) {
+        return vf.createLiteral(converter.toLexicalValue(value), vf.createIRI(datatype));
+      }
+    }
+    if (value instanceof DurationValue) {
+      return vf.createLiteral(DataTypeConverter.DURATION.toLexicalValue(value), XSD.DURATION);
+    } else if (value instanceof byte[]) {
+      return vf.createLiteral(DataTypeConverter.BASE64_BINARY.toLexicalValue(value),
+          XSD.BASE64BINARY);
+    } else {
+      return vf.createLiteral(DataTypeConverter.TIME.toLexicalValue(value), XSD.TIME);
+    }
+  }
+
   private String pointValueToWTK(PointValue pv) {
     return "Point(" + pv.coordinate()[0] + " " + pv.coordinate()[1] + (pv.getCRS().getCode() == 9157?" "+pv.coordinate()[2]:"") + ")";
   }
@@ -4,6 +4,7 @@ import static n10s.graphconfig.GraphConfig.GRAPHCONF_MULTIVAL_PROP_ARRAY;
 import static n10s.graphconfig.GraphConfig.GRAPHCONF_RDFTYPES_AS_LABELS;
 import static n10s.graphconfig.Params.CUSTOM_DATA_TYPE_SEPERATOR;
 import static n10s.graphconfig.Params.PREFIX_SEPARATOR;
+import static n10s.utils.MetadataCache.META_LABELS;
 import static n10s.utils.UriUtils.translateUri;
 
 import java.time.LocalDate;
@@ -16,7 +17,6 @@ import java.util.Map;
 import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import n10s.graphconfig.GraphConfig;
 import n10s.utils.InvalidNamespacePrefixDefinitionInDB;
@@ -60,9 +60,7 @@ public class LPGRDFToRDFProcesssor extends ExportProcessor {
     List<Node> nodeList = (List<Node>) next.get("nodes");
     nodeList.forEach(node -> {
       String catName = node.getAllProperties().get("name").toString();
-      if (!catName.equals("Resource") && !catName.equals("_NsPrefDef")
-          && !catName.equals("_GraphConfig") && !catName.equals("_n10sValidatorConfig")
-          && !catName.equals("_MapNs") && !catName.equals("_MapDef") && !catName.equals("_GraphConfig")) {
+      if (!catName.equals("Resource") && !META_LABELS.contains(catName)) {
         IRI subject = vf.createIRI(buildURI(BASE_SCH_NS, catName));
         statements.add(vf.createStatement(subject, RDF.TYPE, OWL.CLASS));
         statements.add(vf.createStatement(subject, RDFS.LABEL,
@@ -348,49 +346,40 @@ public class LPGRDFToRDFProcesssor extends ExportProcessor {
       throws InvalidNamespacePrefixDefinitionInDB {
 
     if (tp.getSubject() != null){
-      Set<Statement> allStatements = new HashSet<>();
       Node resource = tx.findNode(Label.label("Resource"), "uri", tp.getSubject());
-      if (resource != null) {
-        String predicate = null;
-        try {
-          predicate = tp.getPredicate() != null ? translateUri(tp.getPredicate(), tx, graphConfig) : null;
-        } catch (UriNamespaceHasNoAssociatedPrefix e) {
-          //graph is in shorten mode but the uri in the filter is not in use in the graph
-          predicate = tp.getPredicate();
-          //ugly way of making the filter not return anything.
-          //TODO: Check this has no unexpected result in rare corner cases
-        }
-        if (tp.getObject() == null) {
-          //labels and properties
-          allStatements.addAll(processNode(resource, null, predicate));
-          //relationships
-          Iterable<Relationship> relationships =
-                  tp.getPredicate() == null ? resource.getRelationships(Direction.OUTGOING) : resource.getRelationships(
-                          Direction.OUTGOING, RelationshipType.withName(predicate));
-          for (Relationship r : relationships) {
-            allStatements.addAll(processRelationship(r, null));
-          }
-        } else {
-          //filter on value (object)
-          Value object = getValueFromTriplePatternObject(tp);
-          allStatements.addAll(processNode(resource, null, predicate).stream()
-                  .filter(st -> st.getObject().equals(object)).collect(Collectors.toSet()));
-
-          //if filter on object  is of type literal then we  can skip the rels, it will be a prop
-          if (!tp.getLiteral()) {
-            Iterable<Relationship> relationships =
-                    tp.getPredicate() == null ? resource.getRelationships(Direction.OUTGOING)
-                            : resource.getRelationships(
-                            Direction.OUTGOING, RelationshipType.withName(predicate));
-            for (Relationship r : relationships) {
-              if (r.getOtherNode(resource).getProperty("uri").equals(object.stringValue())) {
-                allStatements.addAll(processRelationship(r, null));
-              }
-            }
-          }
+      if (resource == null) {
+        return Stream.empty();
+      }
+      String predicate = null;
+      try {
+        predicate = tp.getPredicate() != null ? translateUri(tp.getPredicate(), tx, graphConfig) : null;
+      } catch (UriNamespaceHasNoAssociatedPrefix e) {
+        //graph is in shorten mode but the uri in the filter is not in use in the graph
+        predicate = tp.getPredicate();
+        //ugly way of making the filter not return anything.
+        //TODO: Check this has no unexpected result in rare corner cases
+      }
+      Iterable<Relationship> relationships =
+              tp.getPredicate() == null ? resource.getRelationships(Direction.OUTGOING) : resource.getRelationships(
+                      Direction.OUTGOING, RelationshipType.withName(predicate));
+      if (tp.getObject() == null) {
+        //labels and properties, then relationships
+        return Stream.concat(processNode(resource, null, predicate).stream(),
+                lazyStream(relationships).flatMap(r -> processRelationshipOnce(r, null).stream()));
+      } else {
+        //filter on value (object)
+        Value object = getValueFromTriplePatternObject(tp);
+        Stream<Statement> properties = processNode(resource, null, predicate).stream()
+                .filter(st -> st.getObject().equals(object));
+
+        //if filter on object  is of type literal then we  can skip the rels, it will be a prop
+        if (tp.getLiteral()) {
+          return properties;
         }
+        return Stream.concat(properties, lazyStream(relationships)
+                .filter(r -> r.getOtherNode(resource).getProperty("uri").equals(object.stringValue()))
+                .flatMap(r -> processRelationshipOnce(r, null).stream()));
       }
-      return allStatements.stream();
     }
     else {
       String predicate = null;
@@ -412,26 +401,25 @@ public class LPGRDFToRDFProcesssor extends ExportProcessor {
           }  else {
             result = tx.execute(String
                 .format("MATCH (r:Resource) WHERE exists(r.`%s`) RETURN r\n"
-                        + "UNION \n"
+                        + "UNION ALL \n"
                         + "MATCH (:Resource)-[r:`%s`]->() RETURN r",
                     predicate, predicate));
           }
         } else {
           //no subject, pred, no object: null, null, null -> return all triples
           result = tx.execute("MATCH (r:Resource) RETURN r\n"
-                      + "UNION \n"
+                      + "UNION ALL \n"
                       + "MATCH (:Resource)-[r]->() RETURN r");
         }
+        //both parts return distinct elements, UNION ALL saves the planner an eager distinct
         String finalPredicate = predicate;
         return result.stream().flatMap(row -> {
-          Set<Statement> rowResult = new HashSet<>();
           Object r = row.get("r");
           if (r instanceof Node) {
-            rowResult.addAll(processNode((Node) r, null, finalPredicate));
-          } else if (r instanceof Relationship) {
-            rowResult.addAll(processRelationship((Relationship) r, null));
+            return processNode((Node) r, null, finalPredicate).stream();
+          } else {
+            return processRelationshipOnce((Relationship) r, null).stream();
           }
-          return rowResult.stream();
         });
       } else {
         //filter on value (object)
@@ -502,15 +490,13 @@ public class LPGRDFToRDFProcesssor extends ExportProcessor {
         //refactor with previous section
         String finalPredicate1 = predicate;
         return result.stream().flatMap(row -> {
-          Set<Statement> rowResult = new HashSet<>();
           Object r = row.get("r");
           if(r instanceof Node){
-            rowResult.addAll(processNode((Node)r, null,
-                (finalPredicate1!=null?finalPredicate1:(String)row.get("propName"))));
-          } else if(r instanceof Relationship){
-            rowResult.addAll(processRelationship((Relationship)r,null));
+            return processNode((Node)r, null,
+                (finalPredicate1!=null?finalPredicate1:(String)row.get("propName"))).stream();
+          } else {
+            return processRelationshipOnce((Relationship)r,null).stream();
           }
-          return rowResult.stream();
         }).filter(st -> st.getObject().equals(object));
         //post filtering on the generated statements.
       }
@@ -14,10 +14,10 @@ import org.neo4j.graphdb.*;
 
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static n10s.graphconfig.Params.*;
+import static n10s.utils.MetadataCache.META_LABELS;
 import static n10s.utils.UriUtils.translateUri;
 
 
@@ -25,6 +25,8 @@ public class LPGToRDFProcesssor extends ExportProcessor {
 
   private final Map<String, String> exportMappings;
   private final boolean exportOnlyMappedElems;
+  // sorted ids of the meta nodes, read on first use. There are only a few of them
+  private long[] metaNodeIds;
 
   public LPGToRDFProcesssor(GraphDatabaseService gds, Transaction tx,
       GraphConfig gc, Map<String, String> exportMappings,
@@ -45,9 +47,7 @@ public class LPGToRDFProcesssor extends ExportProcessor {
     nodeList.forEach(node -> {
       String catName = node.getAllProperties().get("name").toString();
       // Resource and NamespacePrefix should be named _Resource... to avoid conflicts
-      if (!catName.equals("Resource") && !catName.equals("_NsPrefDef")
-          && !catName.equals("_n10sValidatorConfig") && !catName.equals("_MapNs")
-          && !catName.equals("_MapDef") && !catName.equals("_GraphConfig")) {
+      if (!catName.equals("Resource") && !META_LABELS.contains(catName)) {
         IRI subject = vf.createIRI(BASE_SCH_NS, catName);
         statements.add(vf.createStatement(subject, RDF.TYPE, OWL.CLASS));
         statements.add(vf
@@ -138,11 +138,25 @@ public class LPGToRDFProcesssor extends ExportProcessor {
     return filterNode(rel.getStartNode(), ontologyEntitiesUris) || filterNode(rel.getEndNode(), ontologyEntitiesUris);
   }
 
+  /**
+   * Meta nodes are looked up by label once, after that telling them apart takes no label reads.
+   */
   @Override
   protected boolean filterNode(Node node, Map<Long, IRI> ontologyEntitiesUris) {
-    return node.hasLabel(Label.label("_MapDef")) || node.hasLabel(Label.label("_MapNs"))||
-        node.hasLabel(Label.label("_NsPrefDef")) || node.hasLabel(Label.label("_n10sValidatorConfig"))
-        || node.hasLabel(Label.label("_GraphConfig"));
+    if (metaNodeIds == null) {
+      metaNodeIds = findMetaNodeIds();
+    }
+    return metaNodeIds.length > 0 && Arrays.binarySearch(metaNodeIds, node.getId()) >= 0;
+  }
+
+  private long[] findMetaNodeIds() {
+    List<Long> ids = new ArrayList<>();
+    for (String label : META_LABELS) {
+      try (ResourceIterator<Node> metaNodes = tx.findNodes(Label.label(label))) {
+        metaNodes.forEachRemaining(metaNode -> ids.add(metaNode.getId()));
+      }
+    }
+    return ids.stream().mapToLong(Long::longValue).sorted().toArray();
   }
 
   @Override
@@ -293,47 +307,38 @@ public class LPGToRDFProcesssor extends ExportProcessor {
           throws InvalidNamespacePrefixDefinitionInDB {
     //Do we take mappings into account when filtering by prop/label/etc? NO
     // When we query via cypher the mappings are applied to the results but not used in the query
+    //Every branch streams from a cursor, nothing is collected beyond the statements of one element
     if (tp.getSubject() != null) {
-      Set<Statement> allStatements = new HashSet<>();
       Node resource = getNodeByUri(tp.getSubject());
-      if (resource != null) {
-        String predicate = tp.getPredicate();
-        if (tp.getObject() == null) {
-          //labels and properties applying predicate filter
-          allStatements.addAll(processNode(resource, null, predicate));
-          //relationships
-          Iterable<Relationship> relationships =
-                  predicate == null ? resource.getRelationships(Direction.OUTGOING) : resource.getRelationships(
-                          Direction.OUTGOING, RelationshipType.withName(vf.createIRI(predicate).getLocalName()));
-          for (Relationship r : relationships) {
-            allStatements.addAll(processRelationship(r, null));
-          }
-        } else {
-          //filter on value (object)
-          Value object = getValueFromTriplePatternObject(tp);
-          allStatements.addAll(processNode(resource, null, predicate).stream()
-                  .filter(st -> st.getObject().equals(object)).collect(Collectors.toSet()));
-
-          //if filter on object  is of type literal then we  can skip the rels, it will be a prop
-          if (!tp.getLiteral()) {
-            Iterable<Relationship> relationships =
-                    predicate == null ? resource.getRelationships(Direction.OUTGOING)
-                            : resource.getRelationships(
-                            Direction.OUTGOING, RelationshipType.withName(vf.createIRI(predicate).getLocalName()));
-            //watch out, if filter on predicate is rdf:type, it will match things like ()-[:type]->({uri:$obj})
-            //what are the chances?? TODO: create unit test
-            for (Relationship r : relationships) {
-              if (getResourceUri(r.getEndNode()).stringValue().equals(object.stringValue())) {
-                allStatements.addAll(processRelationship(r, null));
-              }
-            }
-          }
+      if (resource == null) {
+        return Stream.empty();
+      }
+      String predicate = tp.getPredicate();
+      Iterable<Relationship> relationships =
+              predicate == null ? resource.getRelationships(Direction.OUTGOING) : resource.getRelationships(
+                      Direction.OUTGOING, RelationshipType.withName(vf.createIRI(predicate).getLocalName()));
+      if (tp.getObject() == null) {
+        //labels and properties applying predicate filter, then relationships
+        return Stream.concat(processNode(resource, null, predicate).stream(),
+                lazyStream(relationships).flatMap(r -> processRelationshipOnce(r, null).stream()));
+      } else {
+        //filter on value (object)
+        Value object = getValueFromTriplePatternObject(tp);
+        Stream<Statement> properties = processNode(resource, null, predicate).stream()
+                .filter(st -> st.getObject().equals(object));
+
+        //if filter on object  is of type literal then we  can skip the rels, it will be a prop
+        if (tp.getLiteral()) {
+          return properties;
         }
+        //watch out, if filter on predicate is rdf:type, it will match things like ()-[:type]->({uri:$obj})
+        //what are the chances?? TODO: create unit test
+        return Stream.concat(properties, lazyStream(relationships)
+                .filter(r -> getResourceUri(r.getEndNode()).stringValue().equals(object.stringValue()))
+                .flatMap(r -> processRelationshipOnce(r, null).stream()));
       }
-      return allStatements.stream();
     } else {
       //subject is null
-      Set<Statement> allStatements = new HashSet<>();
       String predicate = null;
       try {
         //what if predicate is not a URI TODO: test
@@ -351,74 +356,72 @@ public class LPGToRDFProcesssor extends ExportProcessor {
           //null, pred, null
           if (tp.getPredicate().equals(RDF.TYPE.stringValue())) {
             result = tx.execute("MATCH (r) RETURN r");
-            while (result.hasNext()) {
-              Map<String, Object> next = result.next();
-              Node node = (Node) next.get("r");
+            return result.stream().flatMap(row -> {
+              Node node = (Node) row.get("r");
+              List<Statement> rowResult = new ArrayList<>();
               for (Label label : node.getLabels()) {
                   //TODO: we also need to take into account the TYPES AS NODES here
                   // should we in the case of IGNORE (graphconfig!=null) query for nodes of type Resource???
                   if(graphConfig!=null){
                     if (!label.name().equals("Resource")&&!label.name().equals("_GraphConfig")) {
-                      allStatements.add(vf.createStatement(getResourceUri(node),
+                      rowResult.add(vf.createStatement(getResourceUri(node),
                               RDF.TYPE, vf.createIRI(BASE_SCH_NS, label.name())));
                     }
                   } else {
                     if (!exportOnlyMappedElems || exportMappings.containsKey(label.name())) {
-                      allStatements.add(vf.createStatement(getResourceUri(node),
+                      rowResult.add(vf.createStatement(getResourceUri(node),
                               RDF.TYPE, exportMappings.containsKey(label.name()) ? vf
                                       .createIRI(exportMappings.get(label.name()))
                                       : vf.createIRI(BASE_SCH_NS, label.name())));
                     }
                   }
               }
-            }
-            return allStatements.stream();
+              return rowResult.stream();
+            });
           } else {
             //CHECK IF predicate is <NONE>, in which case there's no point in running the query
-            if (!predicate.equals(NOT_MATCHING_NS)) {
-              result = tx.execute(String
-                      .format("MATCH (s) WHERE exists(s.`%s`) RETURN s, s.`%s` as o\n"
-                                      + "UNION \n"
-                                      + "MATCH (s)-[:`%s`]->(o) RETURN s, o",
-                              predicate, predicate, predicate));
-
-              while (result.hasNext()) {
-                Map<String, Object> next = result.next();
-                Node subjectNode = (Node) next.get("s");
-                Object objectThing = next.get("o");
-                if (!exportOnlyMappedElems || exportMappings.containsKey(predicate)) {
-                  if (objectThing instanceof Node) {
-                    allStatements.add(vf.createStatement(getResourceUri(subjectNode),
-                            exportMappings.containsKey(predicate) ? vf
-                                    .createIRI(exportMappings.get(predicate))
-                                    : vf.createIRI(BASE_SCH_NS, predicate),
-                            getResourceUri((Node) objectThing)));
-                  } else {
-                    addStatementsForPotentiallyMultivalLiteral(allStatements, getResourceUri(subjectNode), exportMappings.containsKey(predicate) ? vf
-                            .createIRI(exportMappings.get(predicate))
-                            : vf.createIRI(BASE_SCH_NS, predicate), objectThing);
-                  }
+            if (predicate.equals(NOT_MATCHING_NS)
+                    || (exportOnlyMappedElems && !exportMappings.containsKey(predicate))) {
+              return Stream.empty();
+            }
+            IRI exportedPredicate = exportedPredicate(predicate);
+            //both parts return distinct elements, UNION ALL saves the planner an eager distinct
+            result = tx.execute(String
+                    .format("MATCH (s) WHERE exists(s.`%s`) RETURN s, s.`%s` as o, null as r\n"
+                                    + "UNION ALL \n"
+                                    + "MATCH (s)-[r:`%s`]->(o) RETURN s, o, r",
+                            predicate, predicate, predicate));
+
+            return result.stream().flatMap(row -> {
+              Node subjectNode = (Node) row.get("s");
+              Object objectThing = row.get("o");
+              if (objectThing instanceof Node) {
+                if (!earlierParallelRelationships((Relationship) row.get("r")).isEmpty()) {
+                  return Stream.empty();
                 }
+                return Stream.of(vf.createStatement(getResourceUri(subjectNode),
+                        exportedPredicate, getResourceUri((Node) objectThing)));
               }
-            }
-            return allStatements.stream();
+              Set<Statement> rowResult = new HashSet<>();
+              addStatementsForPotentiallyMultivalLiteral(rowResult, getResourceUri(subjectNode),
+                      exportedPredicate, objectThing);
+              return rowResult.stream();
+            });
           }
         } else {
           //no subject, no pred, no object: null, null, null -> return all triples
           //TODO: Exclude other control elements like mappings. Will be solved when all that stuff is moved to the
           // admin DB.
           result = tx.execute("MATCH (r) WHERE NOT r:_GraphConfig RETURN r\n"
-                  + "UNION \n"
+                  + "UNION ALL \n"
                   + "MATCH ()-[r]->() RETURN r");
           return result.stream().flatMap(row -> {
-            Set<Statement> rowResult = new HashSet<>();
             Object r = row.get("r");
             if (r instanceof Node) {
-              rowResult.addAll(processNode((Node) r, null, null));
-            } else if (r instanceof Relationship) {
-              rowResult.addAll(processRelationship((Relationship) r, null));
+              return processNode((Node) r, null, null).stream();
+            } else {
+              return processRelationshipOnce((Relationship) r, null).stream();
             }
-            return rowResult.stream();
           });
         }
       } else {
@@ -436,15 +439,17 @@ public class LPGToRDFProcesssor extends ExportProcessor {
             } else {
               objectAsLabel = "____";
             }
-            result = tx.execute(String.format("MATCH (r:`%s`) RETURN r", objectAsLabel));
-            while(result.hasNext()){
-              if (!exportOnlyMappedElems || exportMappings.containsKey(objectAsLabel)) {
-                allStatements.add(vf.createStatement(getResourceUri((Node)result.next().get("r")),
-                        RDF.TYPE, object));
-              }
+            if (exportOnlyMappedElems && !exportMappings.containsKey(objectAsLabel)) {
+              return Stream.empty();
             }
-            return allStatements.stream();
+            result = tx.execute(String.format("MATCH (r:`%s`) RETURN r", objectAsLabel));
+            return result.stream().map(row -> vf.createStatement(getResourceUri((Node) row.get("r")),
+                    RDF.TYPE, object));
           } else {
+            if (exportOnlyMappedElems && !exportMappings.containsKey(predicate)) {
+              return Stream.empty();
+            }
+            IRI exportedPredicate = exportedPredicate(predicate);
             if (object instanceof IRI) {
               params.put("uri", object.stringValue());
               //query for relationships
@@ -452,16 +457,11 @@ public class LPGToRDFProcesssor extends ExportProcessor {
               result = tx.execute(String
                       .format("MATCH (:Resource)-[r:`%s`]->(o:Resource { uri:  $uri }) RETURN r",
                               predicate), params);
-
-              while(result.hasNext()){
-                if (!exportOnlyMappedElems || exportMappings.containsKey(predicate)) {
-                  allStatements.add(vf.createStatement(getResourceUri((Node)result.next().get("r")),
-                          exportMappings.containsKey(predicate) ? vf
-                                  .createIRI(exportMappings.get(predicate))
-                                  : vf.createIRI(BASE_SCH_NS, predicate), object));
-                }
-              }
-              return allStatements.stream();
+              return result.stream()
+                      .map(row -> (Relationship) row.get("r"))
+                      .filter(r -> earlierParallelRelationships(r).isEmpty())
+                      .map(r -> vf.createStatement(getResourceUri(r.getStartNode()),
+                              exportedPredicate, object));
 
             } else {
               //it's a Literal
@@ -471,15 +471,8 @@ public class LPGToRDFProcesssor extends ExportProcessor {
               result = tx.execute(String
                         .format("MATCH (r) WHERE $propVal in r.`%s` + [] RETURN r",
                                 predicate), params);
-              while(result.hasNext()){
-                if (!exportOnlyMappedElems || exportMappings.containsKey(predicate)) {
-                  allStatements.add(vf.createStatement(getResourceUri((Node)result.next().get("r")),
-                          exportMappings.containsKey(predicate) ? vf
-                                  .createIRI(exportMappings.get(predicate))
-                                  : vf.createIRI(BASE_SCH_NS, predicate), object));
-                }
-              }
-              return allStatements.stream();
+              return result.stream().map(row -> vf.createStatement(
+                      getResourceUri((Node) row.get("r")), exportedPredicate, object));
             }
           }
 
@@ -491,14 +484,13 @@ public class LPGToRDFProcesssor extends ExportProcessor {
             Node objectNode = getNodeByUri(object.stringValue());
             params.put("objectNodeInternalId", objectNode.getId());
             result = tx.execute("MATCH ()-[r]->(o) WHERE id(o) = $objectNodeInternalId RETURN r", params);
-            return result.stream().flatMap(row -> {
-              Set<Statement> rowResult = new HashSet<>();
-              Object r = row.get("r");
-              rowResult.addAll(processRelationship((Relationship) r, null));
-              return rowResult.stream();
-            });
+            return result.stream().flatMap(
+                    row -> processRelationshipOnce((Relationship) row.get("r"), null).stream());
           } else {
             //it's a Literal
+            if (exportOnlyMappedElems && !exportMappings.containsKey(predicate)) {
+              return Stream.empty();
+            }
             params.put("propVal",
                     castValueFromXSDType((Literal) object));
             //this is expensive...
@@ -506,42 +498,19 @@ public class LPGToRDFProcesssor extends ExportProcessor {
                     + "WITH r, propName\n"
                     + "WHERE $propVal in [] + r[propName] \n"
                     + "RETURN r, propName", params);
-
-            while (result.hasNext()) {
-              Map<String, Object> next = result.next();
-              if (!exportOnlyMappedElems || exportMappings.containsKey(predicate)) {
-                allStatements.add(vf.createStatement(getResourceUri((Node) next.get("r")),
-                        exportMappings.containsKey((String)next.get("propName")) ? vf
-                                .createIRI(exportMappings.get((String)next.get("propName")))
-                                : vf.createIRI(BASE_SCH_NS, (String)next.get("propName")),
-                        object));
-              }
-            }
-            return allStatements.stream();
+            return result.stream().map(row -> vf.createStatement(getResourceUri((Node) row.get("r")),
+                    exportedPredicate((String) row.get("propName")), object));
           }
 
         }
-//        //refactor with previous section
-//        String finalPredicate1 = predicate;
-//        return result.stream().flatMap(row -> {
-//          Set<Statement> rowResult = new HashSet<>();
-//          Object r = row.get("r");
-//          if(r instanceof Node){
-//            rowResult.addAll(processNode((Node)r, null,
-//                    (finalPredicate1!=null?finalPredicate1:(String)row.get("propName"))));
-//          } else if(r instanceof Relationship){
-//            rowResult.add(processRelationship((Relationship)r,null));
-//          }
-//          return rowResult.stream();
-//        }).filter(
-//                st ->
-//                        st.getObject().equals(object));
-//        //post filtering on the generated statements.
-//      }
       }
     }
   }
 
+  private IRI exportedPredicate(String name) {
+    return exportMappings.containsKey(name) ? vf.createIRI(exportMappings.get(name))
+            : vf.createIRI(BASE_SCH_NS, name);
+  }
 
   private Node getNodeByUri(String uri) {
     // what if it is a mixed graph where one part is the result of importing RDF using the 'IGNORE' setup
@@ -0,0 +1,79 @@
+package n10s.rdf.export;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Tells a Cypher export whether a node returned by the query has been serialised already, so that
+ * a node appearing in several rows (typically the shared ends of paths) is only serialised once.
+ * Set in the export params with nodeDedup:
+ * <ul>
+ *   <li>'bitmap' (default): exact, the ids seen are kept in a compressed bitmap</li>
+ *   <li>'lru': only the nodeDedupWindow nodes seen most recently are remembered, so memory
+ *   is bounded but a node can be serialised again once it has left the window</li>
+ *   <li>'off': nodes are serialised every time they are returned</li>
+ * </ul>
+ */
+public abstract class NodeDedup {
+
+  private static final long DEFAULT_WINDOW = 100000;
+
+  /**
+   * @return whether the node has not been seen before. It counts as seen from then on.
+   */
+  abstract boolean firstSeen(long nodeId);
+
+  public static NodeDedup fromParams(Map<String, Object> params) {
+    String strategy = (params.containsKey("nodeDedup") ? (String) params.get("nodeDedup")
+        : "bitmap");
+    switch (strategy) {
+      case "bitmap":
+        return new BitmapDedup();
+      case "lru":
+        return new LruDedup(params.containsKey("nodeDedupWindow")
+            ? ((Number) params.get("nodeDedupWindow")).longValue() : DEFAULT_WINDOW);
+      case "off":
+        return new NoDedup();
+      default:
+        throw new IllegalArgumentException("Unknown nodeDedup strategy: " + strategy
+            + ". Valid values are 'bitmap', 'lru' and 'off'");
+    }
+  }
+
+  private static class BitmapDedup extends NodeDedup {
+
+    private final NodeIdBitmap seen = new NodeIdBitmap();
+
+    @Override
+    boolean firstSeen(long nodeId) {
+      return seen.add(nodeId);
+    }
+  }
+
+  private static class LruDedup extends NodeDedup {
+
+    private final Map<Long, Boolean> seen;
+
+    LruDedup(long window) {
+      seen = new LinkedHashMap<Long, Boolean>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+          return size() > window;
+        }
+      };
+    }
+
+    @Override
+    boolean firstSeen(long nodeId) {
+      return seen.put(nodeId, Boolean.TRUE) == null;
+    }
+  }
+
+  private static class NoDedup extends NodeDedup {
+
+    @Override
+    boolean firstSeen(long nodeId) {
+      return true;
+    }
+  }
+}
@@ -0,0 +1,94 @@
+package n10s.rdf.export;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Set of node ids kept as bits, split in chunks of 2^16 consecutive ids (same layout as roaring
+ * bitmaps). A chunk holds a sorted array of the low 16 bits of its ids while it has few of them
+ * and switches to a plain 8KB bitmap once it has more, so sparse and dense id ranges both take
+ * little memory: at most 2 bytes per id, and a single bit in dense ranges.
+ */
+class NodeIdBitmap {
+
+  private static final int CHUNK_BITS = 16;
+  // beyond this many ids an array takes more room than the bitmap
+  private static final int ARRAY_CHUNK_MAX = 4096;
+
+  private final Map<Long, Chunk> chunks = new HashMap<>();
+  // ids returned by a query tend to be close to each other
+  private long lastKey = -1;
+  private Chunk lastChunk;
+
+  /**
+   * @return false if the id was already in the set
+   */
+  boolean add(long id) {
+    long key = id >>> CHUNK_BITS;
+    if (key != lastKey || lastChunk == null) {
+      lastChunk = chunks.computeIfAbsent(key, k -> new Chunk());
+      lastKey = key;
+    }
+    return lastChunk.add((char) id);
+  }
+
+  private static final class Chunk {
+
+    private char[] values = new char[4];
+    private int size;
+    private long[] bits;
+
+    boolean add(char low) {
+      if (bits != null) {
+        long mask = 1L << low;
+        if ((bits[low >>> 6] & mask) != 0) {
+          return false;
+        }
+        bits[low >>> 6] |= mask;
+        return true;
+      }
+      int pos = binarySearch(low);
+      if (pos >= 0) {
+        return false;
+      }
+      if (size == ARRAY_CHUNK_MAX) {
+        toBitmap();
+        return add(low);
+      }
+      int insertAt = -pos - 1;
+      if (size == values.length) {
+        char[] grown = new char[Math.min(values.length * 2, ARRAY_CHUNK_MAX)];
+        System.arraycopy(values, 0, grown, 0, size);
+        values = grown;
+      }
+      System.arraycopy(values, insertAt, values, insertAt + 1, size - insertAt);
+      values[insertAt] = low;
+      size++;
+      return true;
+    }
+
+    private int binarySearch(char low) {
+      int from = 0;
+      int to = size - 1;
+      while (from <= to) {
+        int mid = (from + to) >>> 1;
+        if (values[mid] < low) {
+          from = mid + 1;
+        } else if (values[mid] > low) {
+          to = mid - 1;
+        } else {
+          return mid;
+        }
+      }
+      return -(from + 1);
+    }
+
+    private void toBitmap() {
+      bits = new long[1 << (CHUNK_BITS - 6)];
+      for (int i = 0; i < size; i++) {
+        bits[values[i] >>> 6] |= 1L << values[i];
+      }
+      values = null;
+    }
+  }
+}
@@ -0,0 +1,266 @@
+package n10s.rdf.export;
+
+import static n10s.graphconfig.GraphConfig.GRAPHCONF_VOC_URI_IGNORE;
+import static n10s.graphconfig.GraphConfig.GRAPHCONF_VOC_URI_MAP;
+import static n10s.mapping.MappingUtils.getExportMappingsFromDB;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import n10s.graphconfig.GraphConfig;
+import n10s.utils.InvalidNamespacePrefixDefinitionInDB;
+import n10s.utils.MetadataCache;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.rio.ntriples.NTriplesUtil;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.NotFoundException;
+import org.neo4j.graphdb.Transaction;
+
+/**
+ * Serialises a whole database as N-Triples or N-Quads. The node id space is cut in partitions that
+ * worker threads take in turn, each one scanned in a read transaction of its own with its own
+ * export processor. Every node is written along with its outgoing relationships, so every
+ * relationship is written once. Each line of these formats is a statement on its own, which is
+ * what lets the workers write in any order, to a single output or to a file each.
+ *
+ * Relationship properties are left out (they need RDF-star).
+ */
+public class PartitionedDump {
+
+  public static final String FILE_PREFIX = "n10s-dump-";
+  public static final long DEFAULT_PARTITION_SIZE = 100000;
+  // each thread holds a transaction (and a file) open, more than this only adds contention
+  public static final int MAX_THREADS = 4 * Runtime.getRuntime().availableProcessors();
+  // serialised statements a worker holds before writing them out
+  private static final int FLUSH_SIZE = 1 << 20;
+  private static final AtomicInteger dumpCount = new AtomicInteger();
+
+  private final GraphDatabaseService db;
+  private final ProcessorFactory processors;
+  private final boolean quads;
+  private final int threads;
+  private final long partitionSize;
+  private final AtomicLong nextPartitionStart = new AtomicLong();
+  private final AtomicLong nodesWritten = new AtomicLong();
+  private final AtomicLong triplesWritten = new AtomicLong();
+  private final AtomicLong partitionsScanned = new AtomicLong();
+
+  public interface ProcessorFactory {
+
+    ExportProcessor create(Transaction tx) throws InvalidNamespacePrefixDefinitionInDB;
+  }
+
+  /**
+   * @param quads whether to write N-Quads (statements keep their named graph) or N-Triples
+   * @param threads number of partitions scanned at the same time
+   * @param partitionSize number of node ids in a partition
+   */
+  public PartitionedDump(GraphDatabaseService db, ProcessorFactory processors, boolean quads,
+      int threads, long partitionSize) {
+    if (threads < 1 || partitionSize < 1) {
+      throw new IllegalArgumentException("threads and partitionSize need to be positive");
+    }
+    this.db = db;
+    this.processors = processors;
+    this.quads = quads;
+    this.threads = threads;
+    this.partitionSize = partitionSize;
+  }
+
+  /**
+   * Processors for the graph as it is exported everywhere else: LPGToRDFProcesssor unless the
+   * graph config says the graph holds imported RDF with its vocabulary uris kept or shortened.
+   */
+  public static ProcessorFactory processorsFor(GraphDatabaseService db, boolean mappedElemsOnly) {
+    GraphConfig gc = getGraphConfig(db);
+    if (gc == null || gc.getHandleVocabUris() == GRAPHCONF_VOC_URI_IGNORE
+        || gc.getHandleVocabUris() == GRAPHCONF_VOC_URI_MAP) {
+      Map<String, String> exportMappings = getExportMappingsFromDB(db);
+      return tx -> new LPGToRDFProcesssor(db, tx, gc, exportMappings, mappedElemsOnly, false);
+    } else {
+      return tx -> new LPGRDFToRDFProcesssor(db, tx, gc, false);
+    }
+  }
+
+  /**
+   * @return the number of threads to scan with when the given one is requested: as many as
+   * processors when none is, and never more than MAX_THREADS
+   */
+  public static int threads(Number requested) {
+    return (requested == null ? Runtime.getRuntime().availableProcessors()
+        : Math.min(requested.intValue(), MAX_THREADS));
+  }
+
+  private static GraphConfig getGraphConfig(GraphDatabaseService db) {
+    try (Transaction tx = db.beginTx()) {
+      return MetadataCache.getGraphConfig(db, tx);
+    }
+  }
+
+  /**
+   * Writes the statements of all partitions to the stream, which is not closed.
+   */
+  public void writeTo(OutputStream out) throws IOException {
+    Writer shared = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+    List<Writer> outputs = new ArrayList<>();
+    for (int i = 0; i < threads; i++) {
+      outputs.add(shared);
+    }
+    run(outputs);
+    shared.flush();
+  }
+
+  /**
+   * Writes the statements of each worker to a file of its own in the directory.
+   *
+   * @return the paths of the files written
+   */
+  public List<String> writeToFiles(File dir) throws IOException {
+    List<Writer> outputs = new ArrayList<>();
+    List<String> files = new ArrayList<>();
+    try {
+      for (int i = 0; i < threads; i++) {
+        File file = new File(dir, FILE_PREFIX + i + (quads ? ".nq" : ".nt"));
+        outputs.add(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file),
+            StandardCharsets.UTF_8), 1 << 16));
+        files.add(file.getAbsolutePath());
+      }
+      run(outputs);
+    } finally {
+      for (Writer output : outputs) {
+        output.close();
+      }
+    }
+    return files;
+  }
+
+  public long getNodesWritten() {
+    return nodesWritten.get();
+  }
+
+  public long getTriplesWritten() {
+    return triplesWritten.get();
+  }
+
+  public long getPartitionsScanned() {
+    return partitionsScanned.get();
+  }
+
+  private void run(List<Writer> outputs) throws IOException {
+    long highestNodeId = highestNodeId();
+    int dumpId = dumpCount.incrementAndGet();
+    AtomicInteger threadCount = new AtomicInteger();
+    ExecutorService workers = Executors.newFixedThreadPool(threads, r -> {
+      Thread t = new Thread(r, "n10s-dump-" + dumpId + "-" + threadCount.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    });
+    try {
+      List<Future<?>> scans = new ArrayList<>();
+      for (Writer output : outputs) {
+        scans.add(workers.submit(() -> {
+          scanPartitions(output, highestNodeId);
+          return null;
+        }));
+      }
+      for (Future<?> scan : scans) {
+        scan.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while dumping the database", e);
+    } catch (ExecutionException e) {
+      throw new IOException("Dump failed: " + e.getCause().getMessage(), e.getCause());
+    } finally {
+      // stops the other workers when one of them fails
+      workers.shutdownNow();
+    }
+  }
+
+  /**
+   * Only the node ids are read, not the nodes. Nodes created after this are left out of the dump,
+   * like nodes created after the partitions holding them are scanned.
+   */
+  private long highestNodeId() {
+    return db.executeTransactionally("MATCH (n) RETURN max(id(n)) AS highest", new HashMap<>(),
+        r -> {
+          Object highest = r.next().get("highest");
+          return highest == null ? -1L : (Long) highest;
+        });
+  }
+
+  private void scanPartitions(Writer output, long highestNodeId) throws Exception {
+    StringBuilder buffer = new StringBuilder();
+    long from;
+    while ((from = nextPartitionStart.getAndAdd(partitionSize)) <= highestNodeId) {
+      if (Thread.currentThread().isInterrupted()) {
+        throw new InterruptedException();
+      }
+      long to = Math.min(from + partitionSize, highestNodeId + 1);
+      long nodes = 0;
+      long triples = 0;
+      try (Transaction tx = db.beginTx()) {
+        ExportProcessor proc = processors.create(tx);
+        for (long id = from; id < to; id++) {
+          Node node;
+          try {
+            node = tx.getNodeById(id);
+          } catch (NotFoundException e) {
+            // unused id
+            continue;
+          }
+          Iterator<Statement> statements = proc.streamNodeForDump(node).iterator();
+          if (statements.hasNext()) {
+            nodes++;
+          }
+          while (statements.hasNext()) {
+            append(buffer, statements.next());
+            triples++;
+          }
+          if (buffer.length() >= FLUSH_SIZE) {
+            flush(buffer, output);
+          }
+        }
+      }
+      nodesWritten.addAndGet(nodes);
+      triplesWritten.addAndGet(triples);
+      partitionsScanned.incrementAndGet();
+    }
+    flush(buffer, output);
+  }
+
+  private void append(StringBuilder buffer, Statement st) {
+    buffer.append(NTriplesUtil.toNTriplesString(st.getSubject())).append(' ')
+        .append(NTriplesUtil.toNTriplesString(st.getPredicate())).append(' ')
+        .append(NTriplesUtil.toNTriplesString(st.getObject()));
+    if (quads && st.getContext() != null) {
+      buffer.append(' ').append(NTriplesUtil.toNTriplesString(st.getContext()));
+    }
+    buffer.append(" .\n");
+  }
+
+  private void flush(StringBuilder buffer, Writer output) throws IOException {
+    // the output can be shared by all workers, and a buffer only holds whole lines
+    synchronized (output) {
+      output.append(buffer);
+    }
+    buffer.setLength(0);
+  }
+}
@@ -4,17 +4,21 @@ import static n10s.graphconfig.GraphConfig.GRAPHCONF_VOC_URI_IGNORE;
 import static n10s.graphconfig.GraphConfig.GRAPHCONF_VOC_URI_MAP;
 import static n10s.mapping.MappingUtils.getExportMappingsFromDB;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import n10s.graphconfig.GraphConfig;
-import n10s.graphconfig.GraphConfig.GraphConfigNotFound;
 import n10s.rdf.RDFProcedures;
 import n10s.result.StreamedStatement;
 import n10s.utils.InvalidNamespacePrefixDefinitionInDB;
+import n10s.utils.MetadataCache;
+import n10s.utils.N10sSettings;
 import org.eclipse.rdf4j.model.Literal;
 import org.eclipse.rdf4j.model.Triple;
+import org.eclipse.rdf4j.rio.RDFFormat;
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Transaction;
 import org.neo4j.logging.Log;
@@ -48,7 +52,7 @@ public class RDFExportProcedures extends RDFProcedures {
 
     //by default we return props in rels as rdf-star
     boolean returnPropsInRels = (props.containsKey("includeRelProperties")? (boolean)props.get("includeRelProperties"):true);
-    GraphConfig gc = getGraphConfig(tx);
+    GraphConfig gc = MetadataCache.getGraphConfig(db, tx);
     if (gc == null || gc.getHandleVocabUris() == GRAPHCONF_VOC_URI_IGNORE
             || gc.getHandleVocabUris() == GRAPHCONF_VOC_URI_MAP) {
       proc = new LPGToRDFProcesssor(db, tx, gc,
@@ -59,7 +63,7 @@ public class RDFExportProcedures extends RDFProcedures {
     }
     return proc.streamTriplesFromCypher(cypher,
         (props.containsKey("cypherParams") ? (Map<String, Object>) props.get("cypherParams") :
-            new HashMap<>())).map(st -> new StreamedStatement(
+            new HashMap<>()), NodeDedup.fromParams(props)).map(st -> new StreamedStatement(
         st.getSubject().stringValue(), st.getPredicate().stringValue(),
         st.getObject().stringValue(), st.getObject() instanceof Literal,
         (st.getObject() instanceof Literal ? ((Literal) st.getObject()).getDatatype().stringValue()
@@ -91,7 +95,7 @@ public class RDFExportProcedures extends RDFProcedures {
 
     boolean rdfstar = (props.containsKey("includeRelProperties")? (boolean)props.get("includeRelProperties"):true);
 
-    GraphConfig gc = getGraphConfig(tx);
+    GraphConfig gc = MetadataCache.getGraphConfig(db, tx);
     if (gc == null || gc.getHandleVocabUris() == GRAPHCONF_VOC_URI_IGNORE
             || gc.getHandleVocabUris() == GRAPHCONF_VOC_URI_MAP) {
       proc = new LPGToRDFProcesssor(db, tx, gc,
@@ -119,14 +123,49 @@ public class RDFExportProcedures extends RDFProcedures {
   }
 
 
-  private GraphConfig getGraphConfig(Transaction tx) {
-    GraphConfig result = null;
+  @Procedure(mode = Mode.READ)
+  @Description("Serialises the whole database as N-Triples or N-Quads, scanning partitions of the "
+      + "node id space in parallel, and writes it to the given directory as one file per thread")
+  public Stream<DumpResults> dump(@Name("outputDir") String outputDir,
+      @Name(value = "params", defaultValue = "{}") Map<String, Object> props) {
+
+    DumpResults results = new DumpResults();
+    String format = (props.containsKey("format") ? (String) props.get("format")
+        : RDFFormat.NTRIPLES.getName());
+    File dir;
     try {
-      result = new GraphConfig(tx);
-    } catch (GraphConfigNotFound graphConfigNotFound) {
-      //it's an LPG (no RDF import config)
+      dir = N10sSettings.exportDirectory(db, outputDir);
+    } catch (IllegalArgumentException e) {
+      results.setTerminationKO(e.getMessage());
+      return Stream.of(results);
+    }
+    if (!format.equals(RDFFormat.NTRIPLES.getName()) && !format.equals(RDFFormat.NQUADS.getName())) {
+      results.setTerminationKO("Unsupported dump format: " + format
+          + ". Valid values are 'N-Triples' and 'N-Quads'");
+    } else if (new File(dir, PartitionedDump.FILE_PREFIX + "0.nt").exists()
+        || new File(dir, PartitionedDump.FILE_PREFIX + "0.nq").exists()) {
+      results.setTerminationKO("The output directory " + outputDir
+          + " already contains a dump. Please remove it or use a different directory.");
+    } else if (!dir.isDirectory() && !dir.mkdirs()) {
+      results.setTerminationKO("Could not create the output directory " + outputDir);
+    } else {
+      try {
+        PartitionedDump dump = new PartitionedDump(db,
+            PartitionedDump.processorsFor(db, props.containsKey("mappedElemsOnly") &&
+                props.get("mappedElemsOnly").equals(true)),
+            format.equals(RDFFormat.NQUADS.getName()),
+            PartitionedDump.threads((Number) props.get("threads")),
+            (props.containsKey("partitionSize") ? ((Number) props.get("partitionSize")).longValue()
+                : PartitionedDump.DEFAULT_PARTITION_SIZE));
+        results.files = dump.writeToFiles(dir);
+        results.nodesWritten = dump.getNodesWritten();
+        results.triplesWritten = dump.getTriplesWritten();
+        results.partitionsScanned = dump.getPartitionsScanned();
+      } catch (IOException | IllegalArgumentException e) {
+        results.setTerminationKO(e.getMessage());
+      }
     }
-    return result;
+    return Stream.of(results);
   }
 
 }
@@ -0,0 +1,112 @@
+package n10s.rdf.load;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.kernel.impl.coreapi.InternalTransaction;
+
+/**
+ * Picks the size of the next partial commit of an import from how the previous one went
+ * (adaptiveCommit mode). After every commit it looks at three things:
+ *
+ * - commit latency: the size is scaled towards the one that would take targetCommitMillis, by at
+ * most a factor of two either way so that a single slow (or fast) commit doesn't swing it.
+ * - transaction state: the size is capped so that the state of the next transaction, estimated
+ * from the bytes per triple of the last one, stays under a fraction of the heap.
+ * - heap headroom: when little of the heap is left after the commit the size is halved whatever
+ * the latency.
+ *
+ * The result is always kept within [minCommitSize, maxCommitSize]. Commits can be reported from
+ * writer threads while the parser thread reads the size, which it only does between batches.
+ */
+class AdaptiveCommitSize {
+
+  private static final double MAX_FACTOR = 2.0;
+  private static final double MIN_FACTOR = 0.5;
+  // below this fraction of free heap the size is halved
+  private static final double LOW_HEAP_HEADROOM = 0.15;
+  // fraction of the heap the state of a single transaction is allowed to take
+  private static final double MAX_TX_STATE_HEAP_FRACTION = 0.1;
+
+  private final long minSize;
+  private final long maxSize;
+  private final long targetMillis;
+  private volatile long size;
+  // chosen sizes, for the import results
+  private long batches = 0;
+  private long smallest = Long.MAX_VALUE;
+  private long largest = 0;
+  private long total = 0;
+
+  AdaptiveCommitSize(long initialSize, long minSize, long maxSize, long targetMillis) {
+    this.minSize = Math.max(minSize, 1);
+    this.maxSize = Math.max(maxSize, this.minSize);
+    this.targetMillis = Math.max(targetMillis, 1);
+    this.size = clamp(initialSize);
+  }
+
+  long getSize() {
+    return size;
+  }
+
+  /**
+   * @param triples triples in the committed batch
+   * @param millis time taken to write and commit it
+   * @param txStateBytes estimated heap taken by the transaction state before the commit, or a
+   * negative value when unknown
+   */
+  synchronized void batchCommitted(long triples, long millis, long txStateBytes) {
+    batches++;
+    total += size;
+    smallest = Math.min(smallest, size);
+    largest = Math.max(largest, size);
+    if (triples <= 0) {
+      return;
+    }
+
+    double factor = Math.max(MIN_FACTOR,
+        Math.min(MAX_FACTOR, (double) targetMillis / Math.max(millis, 1)));
+    Runtime runtime = Runtime.getRuntime();
+    long maxHeap = runtime.maxMemory();
+    long usedHeap = runtime.totalMemory() - runtime.freeMemory();
+    if ((double) (maxHeap - usedHeap) / maxHeap < LOW_HEAP_HEADROOM) {
+      factor = MIN_FACTOR;
+    }
+    long next = (long) (triples * factor);
+    if (txStateBytes > 0) {
+      double bytesPerTriple = (double) txStateBytes / triples;
+      next = Math.min(next, (long) (maxHeap * MAX_TX_STATE_HEAP_FRACTION / bytesPerTriple));
+    }
+    size = clamp(next);
+  }
+
+  /**
+   * @return the smallest, largest, average and last size chosen and the number of batches
+   * committed
+   */
+  synchronized Map<String, Object> getSummary() {
+    Map<String, Object> summary = new HashMap<>();
+    summary.put("batches", batches);
+    summary.put("min", batches > 0 ? smallest : size);
+    summary.put("max", batches > 0 ? largest : size);
+    summary.put("avg", batches > 0 ? total / batches : size);
+    summary.put("next", size);
+    return summary;
+  }
+
+  private long clamp(long value) {
+    return Math.max(minSize, Math.min(maxSize, value));
+  }
+
+  /**
+   * @return the heap estimated to be taken by the state of the transaction, -1 when it can't be
+   * told
+   */
+  static long txStateBytes(Transaction tx) {
+    if (tx instanceof InternalTransaction) {
+      return ((InternalTransaction) tx).kernelTransaction().memoryTracker()
+          .estimatedHeapMemory();
+    }
+    return -1;
+  }
+}
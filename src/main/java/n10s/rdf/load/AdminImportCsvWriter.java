@@ -0,0 +1,681 @@
+package n10s.rdf.load;
+
+import static n10s.rdf.load.RunFiles.readString;
+import static n10s.rdf.load.RunFiles.writeString;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.reflect.Array;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetTime;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import n10s.RDFToLPGStatementProcessor;
+import n10s.graphconfig.RDFParserConfig;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.rio.RDFHandlerException;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.logging.Log;
+import org.neo4j.values.storable.CoordinateReferenceSystem;
+import org.neo4j.values.storable.DurationValue;
+import org.neo4j.values.storable.PointValue;
+import org.neo4j.values.storable.Values;
+
+/**
+ * Writes the graph that n10s.rdf.import.fetch would produce as a set of CSV files for
+ * neo4j-admin import, applying the same GraphConfig rules. Nothing is written to the DB.
+ *
+ * Every partial commit spills the buffered nodes and relationships to a run file sorted by uri
+ * (by start, type and end for relationships). At the end, runs are merged so that every node and
+ * relationship appears once, with the labels and properties collected from all the batches it
+ * showed up in. Memory use is bounded by commitSize whatever the size of the input.
+ */
+public class AdminImportCsvWriter extends RDFToLPGStatementProcessor {
+
+  public static final String ARRAY_DELIMITER = "\u001F";
+  public static final String NODES_FILE = "nodes.csv";
+  public static final String RELATIONSHIPS_FILE = "relationships.csv";
+  public static final String GRAPHCONFIG_FILE = "graphconfig.csv";
+  public static final String NSPREFDEF_FILE = "nsprefdef.csv";
+
+  private static final String KEY_SEPARATOR = "\u0000";
+
+  private final File outputDir;
+  private final RunFiles<Fragment> runFiles;
+  private final List<File> nodeRuns = new ArrayList<>();
+  private final List<File> relRuns = new ArrayList<>();
+  // property name -> type of the first value found for it
+  private final Map<String, String> nodeColumns = new TreeMap<>();
+  private final Map<String, String> relColumns = new TreeMap<>();
+  private final List<String> filesWritten = new ArrayList<>();
+  // header and data file of each group of rows
+  private final List<String[]> nodeGroups = new ArrayList<>();
+  private final List<String[]> relationshipGroups = new ArrayList<>();
+  private long nodesWritten = 0;
+  private long relationshipsWritten = 0;
+
+  public AdminImportCsvWriter(GraphDatabaseService db, Transaction tx, RDFParserConfig conf,
+      Log l, File outputDir) {
+    super(db, tx, conf, l);
+    this.outputDir = outputDir;
+    this.runFiles = new RunFiles<>(outputDir, "n10s-runs-", new RunFiles.Codec<Fragment>() {
+      @Override
+      public void write(DataOutputStream out, Fragment fragment) throws IOException {
+        fragment.write(out);
+      }
+
+      @Override
+      public Fragment read(DataInputStream in) throws IOException {
+        return Fragment.read(in);
+      }
+    }, f -> f.key);
+  }
+
+  @Override
+  public void endRDF() throws RDFHandlerException {
+    try {
+      periodicOperation();
+      long discarded = writeNodes();
+      discarded += writeRelationships();
+      totalTriplesMapped -= discarded;
+      writeGraphConfig();
+      writeNamespacePrefixes();
+      log.debug("CSV export complete: " + nodesWritten + " nodes and " + relationshipsWritten
+          + " relationships written to " + outputDir);
+    } catch (IOException e) {
+      throw new RDFHandlerException("Problems writing the CSV files. " + e.getMessage(), e);
+    } finally {
+      deleteTemporaryFiles();
+    }
+  }
+
+  @Override
+  protected void periodicOperation() {
+    try {
+      if (!resourceLabels.isEmpty()) {
+        nodeRuns.add(spillNodes());
+      }
+      if (!statements.isEmpty()) {
+        relRuns.add(spillRelationships());
+      }
+      totalTriplesMapped += mappedTripleCounter;
+    } catch (IOException e) {
+      throw new PartialCommitException("Problems writing temporary run file. ", e);
+    } finally {
+      statements.clear();
+      resourceLabels.clear();
+      resourceProps.clear();
+      relProps.clear();
+      mappedTripleCounter = 0;
+    }
+  }
+
+  private File spillNodes() throws IOException {
+    List<Fragment> fragments = new ArrayList<>(resourceLabels.size());
+    for (Entry<String, Set<String>> entry : resourceLabels.entrySet()) {
+      Map<String, Object> props = resourceProps.get(entry.getKey());
+      props.forEach((k, v) -> nodeColumns.putIfAbsent(k, csvType(v)));
+      fragments.add(new Fragment(entry.getKey(), entry.getValue(), props));
+    }
+    return runFiles.writeRun(fragments);
+  }
+
+  private File spillRelationships() throws IOException {
+    List<Fragment> fragments = new ArrayList<>(statements.size());
+    for (Statement st : statements) {
+      Map<String, Object> props = relProps.getOrDefault(st, new LinkedHashMap<>());
+      props.forEach((k, v) -> relColumns.putIfAbsent(k, csvType(v)));
+      String key = st.getSubject().stringValue() + KEY_SEPARATOR
+          + handleIRI(st.getPredicate(), RELATIONSHIP) + KEY_SEPARATOR
+          + st.getObject().stringValue();
+      fragments.add(new Fragment(key, new LinkedHashSet<>(), props));
+    }
+    return runFiles.writeRun(fragments);
+  }
+
+  /**
+   * @return the next fragment combined with the ones with the same key from later runs, so in
+   * the order the batches were parsed
+   */
+  private static Fragment nextMerged(RunFiles<Fragment>.Merger merger) throws IOException {
+    Fragment merged = merger.next();
+    while (merged.key.equals(merger.peekKey())) {
+      merged.append(merger.next());
+    }
+    return merged;
+  }
+
+  /**
+   * @return the number of values discarded because of datatype heterogeneity
+   */
+  private long writeNodes() throws IOException {
+    long discarded = 0;
+    try (CsvGroups out = new CsvGroups(NODES_FILE, Arrays.asList("uri:ID", ":LABEL"),
+        nodeColumns, nodeGroups)) {
+      for (RunFiles<Fragment>.Merger merger = runFiles.merge(nodeRuns); merger.hasNext(); ) {
+        Fragment node = nextMerged(merger);
+        Map<String, Object> props = new LinkedHashMap<>();
+        discarded += resolveValues(node.props, props);
+
+        List<String> labels = new ArrayList<>();
+        labels.add("Resource");
+        labels.addAll(node.labels);
+        out.write(quote(node.key) + "," + quote(String.join(ARRAY_DELIMITER, labels)), props);
+        nodesWritten++;
+      }
+    }
+    return discarded;
+  }
+
+  private long writeRelationships() throws IOException {
+    long discarded = 0;
+    try (CsvGroups out = new CsvGroups(RELATIONSHIPS_FILE,
+        Arrays.asList(":START_ID", ":END_ID", ":TYPE"), relColumns, relationshipGroups)) {
+      for (RunFiles<Fragment>.Merger merger = runFiles.merge(relRuns); merger.hasNext(); ) {
+        Fragment rel = nextMerged(merger);
+        Map<String, Object> props = new LinkedHashMap<>();
+        discarded += resolveValues(rel.props, props);
+
+        String[] startTypeEnd = rel.key.split(KEY_SEPARATOR, 3);
+        out.write(quote(startTypeEnd[0]) + "," + quote(startTypeEnd[2]) + ","
+            + quote(startTypeEnd[1]), props);
+        relationshipsWritten++;
+      }
+    }
+    return discarded;
+  }
+
+  /**
+   * Multivalued properties accumulated from all runs are merged in one go. Discarding (or
+   * stringifying) values of a different type only depends on the order they were parsed in, so
+   * the result is the same as when they're merged one partial commit at a time.
+   */
+  private long resolveValues(Map<String, Object> accumulated, Map<String, Object> resolved) {
+    long discarded = 0;
+    for (Entry<String, Object> entry : accumulated.entrySet()) {
+      if (entry.getValue() instanceof List) {
+        discarded += mergeMultivalued(entry.getKey(), null, (List<Object>) entry.getValue(),
+            merged -> resolved.put(entry.getKey(), merged));
+      } else {
+        resolved.put(entry.getKey(), entry.getValue());
+      }
+    }
+    return discarded;
+  }
+
+  /**
+   * A column has a single type in neo4j-admin import but property types can vary from node to
+   * node, so rows are split in files (each one with its own header) according to the columns
+   * where their values are not of the type of the column. Also, an empty field in a temporal or
+   * point array column is read as an empty array rather than as a missing property, so whether
+   * those columns have a value is part of what decides the file. The rest of the rows, usually
+   * most of them, go to the main file.
+   */
+  private class CsvGroups implements Closeable {
+
+    private static final int MAX_OPEN_FILES = 128;
+
+    private final String fileName;
+    private final List<String> fixedColumns;
+    private final Map<String, String> columns;
+    private final List<String[]> groups;
+    private final Map<String, String> dataFiles = new HashMap<>();
+    private final Map<String, Writer> writers = new LinkedHashMap<String, Writer>(16, .75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Entry<String, Writer> eldest) {
+        if (size() > MAX_OPEN_FILES) {
+          try {
+            eldest.getValue().close();
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+          return true;
+        }
+        return false;
+      }
+    };
+
+    CsvGroups(String fileName, List<String> fixedColumns, Map<String, String> columns,
+        List<String[]> groups) {
+      this.fileName = fileName;
+      this.fixedColumns = fixedColumns;
+      this.columns = columns;
+      this.groups = groups;
+    }
+
+    void write(String fixedFields, Map<String, Object> props) throws IOException {
+      Map<String, String> rowTypes = new TreeMap<>();
+      for (Entry<String, Object> prop : props.entrySet()) {
+        String type = csvType(prop.getValue());
+        if (!type.equals(columns.get(prop.getKey())) || isEmptyWhenMissing(type)) {
+          rowTypes.put(prop.getKey(), type);
+        }
+      }
+      String signature = rowTypes.toString();
+      Writer out = writers.get(signature);
+      if (out == null) {
+        out = openGroup(signature, rowTypes);
+      }
+      out.write(fixedFields);
+      for (Entry<String, String> column : columns.entrySet()) {
+        Object value = props.get(column.getKey());
+        if (value != null) {
+          out.write(',');
+          out.write(csvValue(value));
+        } else if (!isEmptyWhenMissing(column.getValue())) {
+          out.write(',');
+        }
+      }
+      out.write('\n');
+    }
+
+    private Writer openGroup(String signature, Map<String, String> rowTypes) throws IOException {
+      String dataFile = dataFiles.get(signature);
+      if (dataFile != null) {
+        // closed earlier because too many were open
+        Writer out = newWriter(dataFile, true);
+        writers.put(signature, out);
+        return out;
+      }
+      String baseName = fileName.substring(0, fileName.length() - ".csv".length())
+          + (dataFiles.isEmpty() ? "" : "-" + dataFiles.size());
+      List<String> header = new ArrayList<>(fixedColumns);
+      // the type is always explicit: property names (i.e. full uris) can contain ':'
+      columns.forEach((name, type) -> {
+        if (rowTypes.containsKey(name)) {
+          header.add(name + ":" + rowTypes.get(name));
+        } else if (!isEmptyWhenMissing(type)) {
+          header.add(name + ":" + type);
+        }
+      });
+      try (Writer headerOut = newWriter(baseName + "-header.csv", false)) {
+        headerOut.write(String.join(",", header));
+        headerOut.write('\n');
+      }
+      Writer out = newWriter(baseName + ".csv", false);
+      dataFiles.put(signature, baseName + ".csv");
+      writers.put(signature, out);
+      groups.add(new String[]{baseName + "-header.csv", baseName + ".csv"});
+      return out;
+    }
+
+    @Override
+    public void close() throws IOException {
+      for (Writer out : writers.values()) {
+        out.close();
+      }
+    }
+  }
+
+  private void writeGraphConfig() throws IOException {
+    List<String> header = new ArrayList<>();
+    List<String> row = new ArrayList<>();
+    header.add(":LABEL");
+    row.add("_GraphConfig");
+    for (Entry<String, Object> entry :
+        new TreeMap<>(parserConfig.getGraphConf().serialiseConfig()).entrySet()) {
+      Object value = entry.getValue();
+      if (value instanceof Collection) {
+        value = ((Collection<?>) value).toArray(new String[0]);
+      }
+      if (value != null) {
+        // ints (not longs) because that's what the graph config is read back as
+        header.add(entry.getKey() + ":" + csvType(value));
+        row.add(csvValue(value));
+      }
+    }
+    try (Writer out = newWriter(GRAPHCONFIG_FILE, false)) {
+      out.write(String.join(",", header) + "\n" + String.join(",", row) + "\n");
+    }
+  }
+
+  private void writeNamespacePrefixes() throws IOException {
+    if (namespaces == null || namespaces.getPrefixToNs().isEmpty()) {
+      return;
+    }
+    List<String> header = new ArrayList<>();
+    List<String> row = new ArrayList<>();
+    header.add(":LABEL");
+    row.add("_NsPrefDef");
+    for (Entry<String, String> entry : new TreeMap<>(namespaces.getPrefixToNs()).entrySet()) {
+      header.add(entry.getKey() + ":string");
+      row.add(quote(entry.getValue()));
+    }
+    try (Writer out = newWriter(NSPREFDEF_FILE, false)) {
+      out.write(String.join(",", header) + "\n" + String.join(",", row) + "\n");
+    }
+  }
+
+  private Writer newWriter(String fileName, boolean append) throws IOException {
+    File file = new File(outputDir, fileName);
+    if (!append) {
+      filesWritten.add(file.getAbsolutePath());
+    }
+    return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, append),
+        StandardCharsets.UTF_8), 1 << 16);
+  }
+
+  /**
+   * Removes the run files. Called when the export completes and when parsing fails.
+   */
+  public void deleteTemporaryFiles() {
+    runFiles.delete();
+  }
+
+  public long getNodesWritten() {
+    return nodesWritten;
+  }
+
+  public long getRelationshipsWritten() {
+    return relationshipsWritten;
+  }
+
+  public List<String> getFilesWritten() {
+    return filesWritten;
+  }
+
+  public String getImportCommand() {
+    StringBuilder sb = new StringBuilder("neo4j-admin import --id-type=STRING");
+    sb.append(" --array-delimiter=U+001F --multiline-fields=true");
+    for (String[] group : nodeGroups) {
+      sb.append(" --nodes=").append(new File(outputDir, group[0]).getAbsolutePath())
+          .append(",").append(new File(outputDir, group[1]).getAbsolutePath());
+    }
+    sb.append(" --nodes=").append(new File(outputDir, GRAPHCONFIG_FILE).getAbsolutePath());
+    if (filesWritten.contains(new File(outputDir, NSPREFDEF_FILE).getAbsolutePath())) {
+      sb.append(" --nodes=").append(new File(outputDir, NSPREFDEF_FILE).getAbsolutePath());
+    }
+    for (String[] group : relationshipGroups) {
+      sb.append(" --relationships=").append(new File(outputDir, group[0]).getAbsolutePath())
+          .append(",").append(new File(outputDir, group[1]).getAbsolutePath());
+    }
+    return sb.toString();
+  }
+
+  static String quote(String s) {
+    return "\"" + s.replace("\"", "\"\"") + "\"";
+  }
+
+  static String csvValue(Object value) {
+    if (value.getClass().isArray()) {
+      List<String> items = new ArrayList<>();
+      for (int i = 0; i < Array.getLength(value); i++) {
+        items.add(csvAtom(Array.get(value, i)));
+      }
+      return quote(String.join(ARRAY_DELIMITER, items));
+    } else if (value instanceof Long || value instanceof Double || value instanceof Boolean
+        || value instanceof Integer) {
+      return value.toString();
+    } else {
+      return quote(csvAtom(value));
+    }
+  }
+
+  private static String csvAtom(Object value) {
+    if (value instanceof PointValue) {
+      PointValue point = (PointValue) value;
+      double[] coords = point.coordinate();
+      StringBuilder sb = new StringBuilder("{crs:'").append(point.getCoordinateReferenceSystem()
+          .getName()).append("',x:").append(coords[0]).append(",y:").append(coords[1]);
+      if (coords.length > 2) {
+        sb.append(",z:").append(coords[2]);
+      }
+      return sb.append("}").toString();
+    } else if (value instanceof DurationValue) {
+      return ((DurationValue) value).prettyPrint();
+    }
+    return value.toString();
+  }
+
+  /**
+   * @return the neo4j-admin import type for a property value (or list of values)
+   */
+  static String csvType(Object value) {
+    boolean array = value instanceof List || value.getClass().isArray();
+    Object atom = value;
+    if (value instanceof List) {
+      atom = ((List<?>) value).get(0);
+    } else if (array) {
+      atom = Array.getLength(value) > 0 ? Array.get(value, 0) : "";
+    }
+    String name = "string";
+    if (atom instanceof Long) {
+      name = "long";
+    } else if (atom instanceof Integer) {
+      name = "int";
+    } else if (atom instanceof Double) {
+      name = "double";
+    } else if (atom instanceof Boolean) {
+      name = "boolean";
+    } else if (atom instanceof Byte) {
+      name = "byte";
+    } else if (atom instanceof LocalDate) {
+      name = "date";
+    } else if (atom instanceof LocalDateTime) {
+      name = "localdatetime";
+    } else if (atom instanceof ZonedDateTime) {
+      name = "datetime";
+    } else if (atom instanceof LocalTime) {
+      name = "localtime";
+    } else if (atom instanceof OffsetTime) {
+      name = "time";
+    } else if (atom instanceof DurationValue) {
+      name = "duration";
+    } else if (atom instanceof PointValue) {
+      name = "point";
+    }
+    return array ? name + "[]" : name;
+  }
+
+  // temporal and point arrays are not read as java arrays, so empty ones are not skipped
+  private static boolean isEmptyWhenMissing(String csvType) {
+    return csvType.endsWith("[]") && (csvType.startsWith("date") || csvType.startsWith("local")
+        || csvType.startsWith("time") || csvType.startsWith("duration")
+        || csvType.startsWith("point"));
+  }
+
+  /**
+   * The labels and properties of a node (or the properties of a relationship) collected in one
+   * batch, or in several consecutive ones once runs are merged.
+   */
+  static class Fragment {
+
+    private static final byte STRING = 0;
+    private static final byte LONG = 1;
+    private static final byte DOUBLE = 2;
+    private static final byte BOOLEAN = 3;
+    private static final byte DATE = 4;
+    private static final byte LOCAL_DATETIME = 5;
+    private static final byte DATETIME = 6;
+    private static final byte POINT = 7;
+    private static final byte LIST = 8;
+    private static final byte LOCAL_TIME = 9;
+    private static final byte TIME = 10;
+    private static final byte DURATION = 11;
+    private static final byte BYTES = 12;
+
+    final String key;
+    final Set<String> labels;
+    final Map<String, Object> props;
+
+    Fragment(String key, Set<String> labels, Map<String, Object> props) {
+      this.key = key;
+      this.labels = labels;
+      this.props = props;
+    }
+
+    /**
+     * Adds the fragment from a later batch. Atomic values overwrite the existing ones and
+     * multivalued ones are appended, as partial commits would do.
+     */
+    void append(Fragment later) {
+      labels.addAll(later.labels);
+      for (Entry<String, Object> entry : later.props.entrySet()) {
+        Object current = props.get(entry.getKey());
+        if (entry.getValue() instanceof List && current != null) {
+          List<Object> values = new ArrayList<>();
+          if (current instanceof List) {
+            values.addAll((List<Object>) current);
+          } else {
+            values.add(current);
+          }
+          values.addAll((List<Object>) entry.getValue());
+          props.put(entry.getKey(), values);
+        } else {
+          props.put(entry.getKey(), entry.getValue());
+        }
+      }
+    }
+
+    void write(DataOutputStream out) throws IOException {
+      writeString(out, key);
+      out.writeInt(labels.size());
+      for (String label : labels) {
+        writeString(out, label);
+      }
+      out.writeInt(props.size());
+      for (Entry<String, Object> entry : props.entrySet()) {
+        writeString(out, entry.getKey());
+        writeValue(out, entry.getValue());
+      }
+    }
+
+    static Fragment read(DataInputStream in) throws IOException {
+      String key;
+      try {
+        key = readString(in);
+      } catch (EOFException e) {
+        return null;
+      }
+      Set<String> labels = new LinkedHashSet<>();
+      for (int i = in.readInt(); i > 0; i--) {
+        labels.add(readString(in));
+      }
+      Map<String, Object> props = new LinkedHashMap<>();
+      for (int i = in.readInt(); i > 0; i--) {
+        props.put(readString(in), readValue(in));
+      }
+      return new Fragment(key, labels, props);
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+      if (value instanceof List) {
+        out.writeByte(LIST);
+        out.writeInt(((List<?>) value).size());
+        for (Object item : (List<?>) value) {
+          writeValue(out, item);
+        }
+      } else if (value instanceof Long) {
+        out.writeByte(LONG);
+        out.writeLong((Long) value);
+      } else if (value instanceof Double) {
+        out.writeByte(DOUBLE);
+        out.writeDouble((Double) value);
+      } else if (value instanceof Boolean) {
+        out.writeByte(BOOLEAN);
+        out.writeBoolean((Boolean) value);
+      } else if (value instanceof LocalDate) {
+        out.writeByte(DATE);
+        out.writeLong(((LocalDate) value).toEpochDay());
+      } else if (value instanceof LocalDateTime) {
+        out.writeByte(LOCAL_DATETIME);
+        writeString(out, value.toString());
+      } else if (value instanceof ZonedDateTime) {
+        out.writeByte(DATETIME);
+        writeString(out, value.toString());
+      } else if (value instanceof LocalTime) {
+        out.writeByte(LOCAL_TIME);
+        writeString(out, value.toString());
+      } else if (value instanceof OffsetTime) {
+        out.writeByte(TIME);
+        writeString(out, value.toString());
+      } else if (value instanceof DurationValue) {
+        out.writeByte(DURATION);
+        writeString(out, ((DurationValue) value).prettyPrint());
+      } else if (value instanceof byte[]) {
+        out.writeByte(BYTES);
+        out.writeInt(((byte[]) value).length);
+        out.write((byte[]) value);
+      } else if (value instanceof PointValue) {
+        PointValue point = (PointValue) value;
+        out.writeByte(POINT);
+        writeString(out, point.getCoordinateReferenceSystem().getName());
+        double[] coords = point.coordinate();
+        out.writeInt(coords.length);
+        for (double c : coords) {
+          out.writeDouble(c);
+        }
+      } else {
+        out.writeByte(STRING);
+        writeString(out, value.toString());
+      }
+    }
+
+    private static Object readValue(DataInputStream in) throws IOException {
+      byte type = in.readByte();
+      switch (type) {
+        case LIST:
+          int size = in.readInt();
+          List<Object> values = new ArrayList<>(size);
+          for (int i = 0; i < size; i++) {
+            values.add(readValue(in));
+          }
+          return values;
+        case LONG:
+          return in.readLong();
+        case DOUBLE:
+          return in.readDouble();
+        case BOOLEAN:
+          return in.readBoolean();
+        case DATE:
+          return LocalDate.ofEpochDay(in.readLong());
+        case LOCAL_DATETIME:
+          return LocalDateTime.parse(readString(in));
+        case DATETIME:
+          return ZonedDateTime.parse(readString(in));
+        case LOCAL_TIME:
+          return LocalTime.parse(readString(in));
+        case TIME:
+          return OffsetTime.parse(readString(in));
+        case DURATION:
+          return DurationValue.parse(readString(in));
+        case BYTES:
+          byte[] bytes = new byte[in.readInt()];
+          in.readFully(bytes);
+          return bytes;
+        case POINT:
+          CoordinateReferenceSystem crs = CoordinateReferenceSystem.byName(readString(in));
+          double[] coords = new double[in.readInt()];
+          for (int i = 0; i < coords.length; i++) {
+            coords[i] = in.readDouble();
+          }
+          return Values.pointValue(crs, coords);
+        default:
+          return readString(in);
+      }
+    }
+  }
+}
@@ -0,0 +1,60 @@
+package n10s.rdf.load;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Nodes and relationships written by an import that skips unchanged values (skipUnchanged),
+ * split by whether they were created, had some label or property changed, or were left as they
+ * were, along with the values discarded because of datatype heterogeneity (always counted). Safe
+ * to update from several writer threads.
+ */
+class ChangeCounts {
+
+  private final AtomicLong nodesAdded = new AtomicLong();
+  private final AtomicLong nodesChanged = new AtomicLong();
+  private final AtomicLong nodesUnchanged = new AtomicLong();
+  private final AtomicLong relationshipsAdded = new AtomicLong();
+  private final AtomicLong relationshipsChanged = new AtomicLong();
+  private final AtomicLong relationshipsUnchanged = new AtomicLong();
+  private final AtomicLong discardedTriples = new AtomicLong();
+
+  void nodeWritten(boolean created, boolean changed) {
+    (created ? nodesAdded : changed ? nodesChanged : nodesUnchanged).incrementAndGet();
+  }
+
+  void relationshipWritten(boolean created, boolean changed) {
+    (created ? relationshipsAdded : changed ? relationshipsChanged : relationshipsUnchanged)
+        .incrementAndGet();
+  }
+
+  void triplesDiscarded(long count) {
+    discardedTriples.addAndGet(count);
+  }
+
+  long getDiscardedTriples() {
+    return discardedTriples.get();
+  }
+
+  void add(ChangeCounts other) {
+    nodesAdded.addAndGet(other.nodesAdded.get());
+    nodesChanged.addAndGet(other.nodesChanged.get());
+    nodesUnchanged.addAndGet(other.nodesUnchanged.get());
+    relationshipsAdded.addAndGet(other.relationshipsAdded.get());
+    relationshipsChanged.addAndGet(other.relationshipsChanged.get());
+    relationshipsUnchanged.addAndGet(other.relationshipsUnchanged.get());
+    discardedTriples.addAndGet(other.discardedTriples.get());
+  }
+
+  Map<String, Object> asMap() {
+    Map<String, Object> counts = new HashMap<>();
+    counts.put("nodesAdded", nodesAdded.get());
+    counts.put("nodesChanged", nodesChanged.get());
+    counts.put("nodesUnchanged", nodesUnchanged.get());
+    counts.put("relationshipsAdded", relationshipsAdded.get());
+    counts.put("relationshipsChanged", relationshipsChanged.get());
+    counts.put("relationshipsUnchanged", relationshipsUnchanged.get());
+    return counts;
+  }
+}
@@ -5,16 +5,19 @@ import static n10s.graphconfig.GraphConfig.GRAPHCONF_VOC_URI_SHORTEN;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 
-import java.lang.reflect.Array;
-import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
 import n10s.RDFToLPGStatementProcessor;
 import n10s.graphconfig.RDFParserConfig;
+import n10s.rdf.load.PipelinedBatchWriter.BatchProgress;
+import n10s.utils.CompactStatementSet;
+import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.Statement;
 import org.eclipse.rdf4j.rio.RDFHandlerException;
 import org.neo4j.graphdb.*;
@@ -28,19 +31,65 @@ public class DirectStatementLoader extends RDFToLPGStatementProcessor {
 
   private static final Label RESOURCE = Label.label("Resource");
   private Cache<String, Node> nodeCache;
+  // unlike nodeCache, this one survives partial commits. Null (like relIndex) when the loader
+  // only parses for a shared pipeline
+  private final NodeIdCache nodeIds;
+  private final RelationshipIndex relIndex;
+  // what the partial transaction in progress has written, if any
+  private WriteAttempt uncommittedWrites;
+  private PipelinedBatchWriter writerPipeline;
+  // false when the pipeline is shared with the loaders of other sources
+  private final boolean ownsWriterPipeline;
+  // null unless the import is in adaptiveCommit mode
+  private final AdaptiveCommitSize adaptiveCommit;
+  // size of the batch being filled, only changes between batches
+  private long batchCommitSize;
+  // committed batches only, and only counted when unchanged values are skipped
+  private final ChangeCounts changes = new ChangeCounts();
+  // null unless the import has an importId
+  private ImportCheckpoint checkpoint;
+  // mapped triples of the batch being filled per writer partition, for its node phase then its
+  // relationship phase. Null unless batches are written by more than one writer thread
+  private long[] partitionTriples;
 
   public DirectStatementLoader(GraphDatabaseService db, Transaction tx, RDFParserConfig conf,
       Log l) {
+    this(db, tx, conf, l, null);
+  }
+
+  /**
+   * @param sharedPipeline when not null, the loader only parses and hands its batches over to
+   * this pipeline, shared with the loaders of other sources, instead of writing them itself. The
+   * owner of the pipeline waits for it to drain. No write side caches are allocated then.
+   */
+  DirectStatementLoader(GraphDatabaseService db, Transaction tx, RDFParserConfig conf, Log l,
+      PipelinedBatchWriter sharedPipeline) {
 
     super(db, tx, conf, l);
     nodeCache = CacheBuilder.newBuilder()
         .maximumSize(conf.getNodeCacheSize())
         .build();
+    if (sharedPipeline == null) {
+      nodeIds = new NodeIdCache(conf.getNodeIdCacheSize());
+      relIndex = new RelationshipIndex(conf.getRelIndexSize(), conf.isFreshImport());
+      ownsWriterPipeline = true;
+    } else {
+      nodeIds = null;
+      relIndex = null;
+      writerPipeline = sharedPipeline;
+      ownsWriterPipeline = false;
+    }
+    adaptiveCommit = (conf.isAdaptiveCommit() ? new AdaptiveCommitSize(conf.getCommitSize(),
+        conf.getMinCommitSize(), conf.getMaxCommitSize(), conf.getTargetCommitMillis()) : null);
+    partitionTriples = (conf.getWriterThreads() > 1 ? new long[2 * conf.getWriterThreads()] : null);
+    batchCommitSize = (adaptiveCommit != null ? adaptiveCommit.getSize() : conf.getCommitSize());
   }
 
   @Override
   public void endRDF() throws RDFHandlerException {
     periodicOperation();
+    awaitPendingWrites();
+    checkWriterFailure();
     log.debug("Import complete: " + totalTriplesMapped + "  triples ingested out of "
         + totalTriplesParsed + " parsed");
   }
@@ -48,91 +97,20 @@ public class DirectStatementLoader extends RDFToLPGStatementProcessor {
   public Integer runPartialTx(Transaction inThreadTransaction) {
 
     try {
-      for (Map.Entry<String, Set<String>> entry : resourceLabels.entrySet()) {
-        try {
-          final Node node;
-          node = nodeCache.get(entry.getKey(), () -> {
-            Node node1 = inThreadTransaction.findNode(RESOURCE, "uri", entry.getKey());
-            if (node1 == null) {
-              node1 = inThreadTransaction.createNode(RESOURCE);
-              node1.setProperty("uri", entry.getKey());
-            }
-            return node1;
-          });
-
-          entry.getValue().forEach(l -> node.addLabel(Label.label(l)));
-          resourceProps.get(entry.getKey()).forEach((k, v) -> setProperty(node,k,v));
-        } catch (ExecutionException e) {
-          e.printStackTrace();
-        }
-      }
-
-      for (Statement st : statements) {
-        try {
-
-          final Node fromNode = nodeCache
-                  .get(st.getSubject().stringValue(), () -> {  //throws AnyException
-                    return inThreadTransaction.findNode(RESOURCE, "uri", st.getSubject().stringValue());
-                  });
-
-          final Node toNode = nodeCache
-                  .get(st.getObject().stringValue(), () -> {  //throws AnyException
-                    return inThreadTransaction.findNode(RESOURCE, "uri", st.getObject().stringValue());
-                  });
-
-          // check if the rel is already present. If so, don't recreate.
-          // explore the node with the lowest degree
-          boolean found = false;
-          Relationship theRel = null;
-          if (fromNode
-                  .getDegree(RelationshipType.withName(handleIRI(st.getPredicate(), RELATIONSHIP)),
-                          Direction.OUTGOING) <
-                  toNode.getDegree(RelationshipType.withName(handleIRI(st.getPredicate(), RELATIONSHIP)),
-                          Direction.INCOMING)) {
-            for (Relationship rel : fromNode
-                    .getRelationships(Direction.OUTGOING,
-                            RelationshipType.withName(handleIRI(st.getPredicate(), RELATIONSHIP)))) {
-              if (rel.getEndNode().equals(toNode)) {
-                found = true;
-                theRel = rel;
-                break;
-              }
-            }
-          } else {
-            for (Relationship rel : toNode
-                    .getRelationships(Direction.INCOMING,
-                            RelationshipType.withName(handleIRI(st.getPredicate(), RELATIONSHIP)))) {
-              if (rel.getStartNode().equals(fromNode)) {
-                found = true;
-                theRel = rel;
-                break;
-              }
-            }
-          }
-
-          if (!found) {
-            theRel = fromNode.createRelationshipTo(
-                    toNode,
-                    RelationshipType.withName(handleIRI(st.getPredicate(), RELATIONSHIP)));
-          }
-
-          Map<String, Object> relProps = this.relProps.get(st);
-          if (relProps != null) {
-            for (Entry<String, Object> entry : relProps.entrySet()) {
-
-              setProperty(theRel, entry.getKey(), entry.getValue());
-            }
-          }
-
-        } catch (ExecutionException e) {
-          e.printStackTrace();
-        }
+      ImportBatch batch = currentBatch();
+      if (uncommittedWrites == null) {
+        uncommittedWrites = newWriteAttempt();
       }
-
+      long discardedBefore = uncommittedWrites.changes.getDiscardedTriples();
+      writeNodes(inThreadTransaction, batch, nodeCache, uncommittedWrites);
+      writeRelationships(inThreadTransaction, batch, nodeCache, uncommittedWrites);
+      mappedTripleCounter -= uncommittedWrites.changes.getDiscardedTriples() - discardedBefore;
 
       Integer result = 0;
       if (parserConfig.getGraphConf().getHandleVocabUris() == GRAPHCONF_VOC_URI_SHORTEN) {
-        result = namespaces.partialRefresh(inThreadTransaction);
+        synchronized (namespaces) {
+          result = namespaces.partialRefresh(inThreadTransaction);
+        }
       }
 
       return result;
@@ -146,90 +124,422 @@ public class DirectStatementLoader extends RDFToLPGStatementProcessor {
     }
   }
 
-  private void setProperty(Entity node, String k, Object v) {
-    if (v instanceof List) {
-      Object currentValue = node.getProperty(k, null);
-      List<Object> newList = new ArrayList<>();
-      if (currentValue != null) {
-        //initialise with existing values
-        if (currentValue.getClass().isArray()) {
-          int length = Array.getLength(currentValue);
-          for (int i = 0; i < length; i ++) {
-            Object atomicValue = Array.get(currentValue, i);
-            newList.add(atomicValue);
+  private ImportBatch currentBatch() {
+    // relationship types are resolved here (on the parser thread) because resolving them
+    // may add namespace prefixes
+    Map<IRI, RelationshipType> relTypes = new HashMap<>();
+    for (Statement st : statements) {
+      relTypes.computeIfAbsent(st.getPredicate(), this::relationshipType);
+    }
+    return new ImportBatch(resourceLabels, resourceProps, statements, relProps, relTypes,
+        mappedTripleCounter, partitionTriples);
+  }
+
+  @Override
+  protected void tripleMapped(String subjectUri, boolean relationship) {
+    super.tripleMapped(subjectUri, relationship);
+    if (partitionTriples != null) {
+      int partition = ImportBatch.partitionFor(subjectUri, partitionTriples.length / 2);
+      partitionTriples[2 * partition + (relationship ? 1 : 0)]++;
+    }
+  }
+
+  void writeNodes(Transaction inThreadTransaction, ImportBatch batch,
+      Cache<String, Node> nodeCache, WriteAttempt attempt) {
+    boolean skipUnchanged = parserConfig.isSkipUnchanged();
+    for (Map.Entry<String, Set<String>> entry : batch.resourceLabels.entrySet()) {
+      try {
+        final Node node;
+        boolean[] created = {false};
+        node = nodeCache.get(entry.getKey(), () -> {
+          Node node1 = findNode(inThreadTransaction, entry.getKey());
+          if (node1 == null) {
+            node1 = inThreadTransaction.createNode(RESOURCE);
+            node1.setProperty("uri", entry.getKey());
+            nodeIds.put(entry.getKey(), node1.getId());
+            created[0] = true;
           }
-        } else {
-          //TODO: this logic could go because now it's not possible to change
-          // from atomic to multival without emptying the DB
-          newList.add(node.getProperty(k));
+          return node1;
+        });
+
+        boolean changed = false;
+        for (String l : entry.getValue()) {
+          Label label = label(l);
+          if (!skipUnchanged || !node.hasLabel(label)) {
+            node.addLabel(label);
+            changed = true;
+          }
+        }
+        for (Entry<String, Object> prop : batch.resourceProps.get(entry.getKey()).entrySet()) {
+          changed |= setProperty(node, prop.getKey(), prop.getValue(), attempt);
         }
+        if (skipUnchanged) {
+          attempt.changes.nodeWritten(created[0], changed);
+        }
+      } catch (ExecutionException e) {
+        e.printStackTrace();
       }
+    }
+  }
+
+  void writeRelationships(Transaction inThreadTransaction, ImportBatch batch,
+      Cache<String, Node> nodeCache, WriteAttempt attempt) {
+    for (Statement st : batch.statements) {
+      try {
 
-      Class<?> currentDatatype = newList.isEmpty()?((List) v).get(0).getClass():newList.get(0).getClass();
+        final Node fromNode = nodeCache
+                .get(st.getSubject().stringValue(), () -> {  //throws AnyException
+                  return findNode(inThreadTransaction, st.getSubject().stringValue());
+                });
 
-      List<Object> discardedItems = new ArrayList<>();
+        final Node toNode = nodeCache
+                .get(st.getObject().stringValue(), () -> {  //throws AnyException
+                  return findNode(inThreadTransaction, st.getObject().stringValue());
+                });
 
-      for(Object x:(List)v) {
-        if (x.getClass().equals(currentDatatype)){
-          newList.add(x);
-        }  else {
-          discardedItems.add(x);
+        RelationshipType relType = batch.relTypes.get(st.getPredicate());
+
+        // check if the rel is already present. If so, don't recreate.
+        Relationship theRel = null;
+        if (relIndex.mightExist(fromNode.getId(), relType.name(), toNode.getId(),
+            attempt.relationships)) {
+          theRel = findRelationship(inThreadTransaction, fromNode, toNode, relType);
         }
-      }
 
-      if(!discardedItems.isEmpty()){
-        this.datatypeConflictFound |= true;
-        if (getParserConfig().isStrictDataTypeCheck()){
-          this.mappedTripleCounter-= discardedItems.size();
-          log.warn("The following values for property '" + k + "' have been discarded because of datatype heterogeneity (previously stored values are of type " + currentDatatype + ") : " + discardedItems );
-          node.setProperty(k, toPropertyValue(newList.stream().collect(Collectors.toSet())));
-        } else {
-          //default all to string if they're not already return defaultToString(it.iterator());
-          newList.addAll(discardedItems);
-          node.setProperty(k, toPropertyValue(defaultToString(newList.iterator()).stream().collect(Collectors.toSet())));
+        boolean created = (theRel == null);
+        if (created) {
+          theRel = fromNode.createRelationshipTo(toNode, relType);
+          attempt.relationships.add(fromNode.getId(), relType.name(), toNode.getId());
+        }
+
+        boolean changed = false;
+        Map<String, Object> relProps = batch.relProps.get(st);
+        if (relProps != null) {
+          for (Entry<String, Object> entry : relProps.entrySet()) {
+            changed |= setProperty(theRel, entry.getKey(), entry.getValue(), attempt);
+          }
         }
-      } else {
-        //no discarded elements. all good, newlist contains all the values. nothing to do
-        node.setProperty(k, toPropertyValue(newList.stream().collect(Collectors.toSet())));
+        if (parserConfig.isSkipUnchanged()) {
+          attempt.changes.relationshipWritten(created, changed);
+        }
+
+      } catch (ExecutionException e) {
+        e.printStackTrace();
       }
+    }
+  }
 
+  /**
+   * Exact check, explores the relationships of the endpoint with the lowest degree.
+   */
+  private Relationship findRelationship(Transaction tx, Node fromNode, Node toNode,
+      RelationshipType relType) {
+    int outDegree = fromNode.getDegree(relType, Direction.OUTGOING);
+    int inDegree = toNode.getDegree(relType, Direction.INCOMING);
+    relIndex.explored(tx, relType, Math.min(outDegree, inDegree));
+    if (outDegree < inDegree) {
+      for (Relationship rel : fromNode.getRelationships(Direction.OUTGOING, relType)) {
+        if (rel.getEndNode().equals(toNode)) {
+          return rel;
+        }
+      }
     } else {
-      node.setProperty(k, v);
+      for (Relationship rel : toNode.getRelationships(Direction.INCOMING, relType)) {
+        if (rel.getStartNode().equals(fromNode)) {
+          return rel;
+        }
+      }
     }
+    return null;
+  }
+
+  /**
+   * Looks up the Resource node with the given uri, trying the id remembered from previous
+   * partial commits before going to the uniqueness index. Remembered ids can be stale (node
+   * created in a rolled back transaction, deleted, or its id reused), hence the uri check.
+   */
+  private Node findNode(Transaction inThreadTransaction, String uri) {
+    long id = nodeIds.get(uri);
+    if (id != NodeIdCache.NOT_FOUND) {
+      try {
+        Node node = inThreadTransaction.getNodeById(id);
+        if (uri.equals(node.getProperty("uri", null))) {
+          return node;
+        }
+      } catch (NotFoundException e) {
+        // stale entry, falls back to the index
+      }
+      nodeIds.remove(uri);
+    }
+    Node node = inThreadTransaction.findNode(RESOURCE, "uri", uri);
+    if (node != null) {
+      nodeIds.put(uri, node.getId());
+    }
+    return node;
+  }
+
+  /**
+   * Values discarded because of datatype heterogeneity are added to the count of the attempt. When
+   * unchanged values are skipped, a value equal to the one stored is not written again.
+   *
+   * @return whether the property was written
+   */
+  private boolean setProperty(Entity entity, String k, Object v, WriteAttempt attempt) {
+    boolean skipUnchanged = parserConfig.isSkipUnchanged();
+    if (v instanceof List) {
+      Object current = entity.getProperty(k, null);
+      boolean[] written = {false};
+      attempt.changes.triplesDiscarded(mergeMultivalued(k, current, (List<Object>) v,
+          merged -> {
+            if (!skipUnchanged || !Objects.deepEquals(current, merged)) {
+              entity.setProperty(k, merged);
+              written[0] = true;
+            }
+          }));
+      return written[0];
+    } else if (skipUnchanged && Objects.deepEquals(entity.getProperty(k, null), v)) {
+      return false;
+    }
+    entity.setProperty(k, v);
+    return true;
   }
 
 
   @Override
   protected void periodicOperation() {
 
+    if (parserConfig.getWriterThreads() > 0 || writerPipeline != null) {
+      handOverToWriters();
+      return;
+    }
+
     if (parserConfig.getGraphConf().getHandleVocabUris() == GRAPHCONF_VOC_URI_SHORTEN) {
-      try (Transaction tempTransaction = graphdb.beginTx()) {
-        namespaces.partialRefresh(tempTransaction);
-        tempTransaction.commit();
-        log.debug("namespace prefixes synced: " + namespaces.toString());
-      } catch (Exception e) {
-        log.error("Problems syncing up namespace prefixes in partial commit. ", e);
-        if (getParserConfig().isAbortOnError()){
-          throw new NamespacePrefixConflict("Problems syncing up namespace prefixes in partial commit. ", e);
-        }
-      }
+      syncNamespacePrefixes();
     }
 
+    long batchTriples = mappedTripleCounter;
+    long start = System.nanoTime();
     try (Transaction tempTransaction = graphdb.beginTx()) {
       this.runPartialTx(tempTransaction);
+      long txStateBytes = (adaptiveCommit != null ? AdaptiveCommitSize
+          .txStateBytes(tempTransaction) : -1);
+      if (checkpoint != null) {
+        checkpoint.save(tempTransaction, totalTriplesParsed,
+            totalTriplesMapped + mappedTripleCounter);
+      }
       tempTransaction.commit();
+      partialTxCommitted();
+      if (checkpoint != null) {
+        checkpoint.committed();
+      }
       log.debug("partial commit: " + mappedTripleCounter + " triples ingested. Total so far: "
           + totalTriplesMapped);
       totalTriplesMapped += mappedTripleCounter;
+      if (adaptiveCommit != null) {
+        adaptiveCommit.batchCommitted(batchTriples,
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), txStateBytes);
+      }
     } catch (Exception e) {
+      partialTxRolledBack();
       log.error("Problems when running partial commit. Partial transaction rolled back. "  + mappedTripleCounter + " triples lost.", e);
       if (getParserConfig().isAbortOnError()){
         throw new PartialCommitException("Problems when running partial commit. Partial transaction rolled back. " , e);
       }
+      if (checkpoint != null) {
+        recordLostBatch();
+      }
     }
 
     mappedTripleCounter = 0;
+    nextBatch();
 
   }
 
+  /**
+   * To be called once the transaction passed to runPartialTx has committed, so that what it
+   * wrote is taken into account by the import.
+   */
+  public void partialTxCommitted() {
+    if (uncommittedWrites != null) {
+      writeCommitted(uncommittedWrites);
+      uncommittedWrites = null;
+    }
+  }
+
+  /**
+   * To be called when the transaction passed to runPartialTx has been rolled back.
+   */
+  public void partialTxRolledBack() {
+    uncommittedWrites = null;
+  }
+
+  WriteAttempt newWriteAttempt() {
+    return new WriteAttempt(relIndex.new Pending());
+  }
+
+  /**
+   * The counts of the attempt are left to the caller, which adds them up per batch.
+   */
+  void relationshipsCommitted(WriteAttempt attempt) {
+    relIndex.committed(attempt.relationships);
+  }
+
+  private void writeCommitted(WriteAttempt attempt) {
+    relIndex.committed(attempt.relationships);
+    changes.add(attempt.changes);
+  }
+
+  private void recordLostBatch() {
+    try {
+      checkpoint.batchLost(graphdb, totalTriplesParsed);
+    } catch (Exception e) {
+      log.error("Problems when recording the lost batch in the import state. ", e);
+    }
+  }
+
+  private void nextBatch() {
+    if (adaptiveCommit != null) {
+      batchCommitSize = adaptiveCommit.getSize();
+    }
+  }
+
+  @Override
+  protected long currentCommitSize() {
+    return batchCommitSize;
+  }
+
+  /**
+   * Makes every partial commit save the offset reached in the source along with the batch, so
+   * that the import can be resumed from there. Not available when the import is pipelined.
+   */
+  public void setCheckpoint(ImportCheckpoint checkpoint) {
+    this.checkpoint = checkpoint;
+  }
+
+  /**
+   * @return the sizes chosen for the partial commits in adaptiveCommit mode, null otherwise
+   */
+  public Map<String, Object> getCommitSizes() {
+    return adaptiveCommit != null ? adaptiveCommit.getSummary() : null;
+  }
+
+  /**
+   * @return the nodes and relationships added, changed and left unchanged by the committed
+   * batches when unchanged values are skipped, null otherwise
+   */
+  public Map<String, Object> getChanges() {
+    return parserConfig.isSkipUnchanged() ? changes.asMap() : null;
+  }
+
+  private void syncNamespacePrefixes() {
+    try (Transaction tempTransaction = graphdb.beginTx()) {
+      synchronized (namespaces) {
+        namespaces.partialRefresh(tempTransaction);
+        tempTransaction.commit();
+      }
+      log.debug("namespace prefixes synced: " + namespaces.toString());
+    } catch (Exception e) {
+      log.error("Problems syncing up namespace prefixes in partial commit. ", e);
+      if (getParserConfig().isAbortOnError()){
+        throw new NamespacePrefixConflict("Problems syncing up namespace prefixes in partial commit. ", e);
+      }
+    }
+  }
+
+  /**
+   * Pipelined mode: detaches the current batch from the parser buffers and queues it for the
+   * writer threads. The parser carries on filling fresh buffers while the batch is committed.
+   */
+  private void handOverToWriters() {
+    checkWriterFailure();
+    if (writerPipeline == null) {
+      writerPipeline = new PipelinedBatchWriter(this, graphdb, log,
+          parserConfig.getWriterThreads(), parserConfig.getWriterQueueSize(),
+          parserConfig.getNodeCacheSize());
+    }
+
+    ImportBatch batch = null;
+    try {
+      batch = currentBatch();
+    } catch (Exception e) {
+      log.error("Problems when running partial commit. Partial transaction rolled back. "  + mappedTripleCounter + " triples lost.", e);
+      if (getParserConfig().isAbortOnError()){
+        throw new PartialCommitException("Problems when running partial commit. Partial transaction rolled back. " , e);
+      }
+    } finally {
+      statements = new CompactStatementSet();
+      resourceLabels = new HashMap<>();
+      resourceProps = new HashMap<>();
+      relProps = new HashMap<>();
+      mappedTripleCounter = 0;
+      if (partitionTriples != null) {
+        partitionTriples = new long[partitionTriples.length];
+      }
+      nextBatch();
+    }
+
+    if (batch != null) {
+      // prefixes added while parsing this batch must be in the DB before it's written
+      if (parserConfig.getGraphConf().getHandleVocabUris() == GRAPHCONF_VOC_URI_SHORTEN) {
+        syncNamespacePrefixes();
+      }
+      try {
+        writerPipeline.submit(batch, this);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new PartialCommitException("Interrupted while waiting for the writer threads. ", e);
+      }
+    }
+  }
+
+  void batchCommitted(ImportBatch batch, BatchProgress progress, long millis,
+      long txStateBytes) {
+    if (adaptiveCommit != null) {
+      adaptiveCommit.batchCommitted(batch.getMappedTriples(), millis, txStateBytes);
+    }
+    changes.add(progress.committed);
+    long ingested = batch.getMappedTriples() - progress.committed.getDiscardedTriples();
+    totalTriplesMapped += ingested;
+    log.debug("partial commit: " + ingested + " triples ingested. Total so far: "
+        + totalTriplesMapped);
+  }
+
+  void batchFailed(ImportBatch batch, BatchProgress progress, Exception e) {
+    // what got committed before the failure is part of the graph, so it is still counted
+    changes.add(progress.committed);
+    totalTriplesMapped += progress.committedTriples.get()
+        - progress.committed.getDiscardedTriples();
+    if (progress.nodePartitions.get() == 0) {
+      log.error("Problems when running partial commit. Partial transaction rolled back. "
+          + batch.getMappedTriples() + " triples lost.", e);
+    } else {
+      log.error("Problems when running partial commit. Batch of " + batch.getMappedTriples()
+          + " triples partly committed: the nodes of " + progress.nodePartitions.get()
+          + " and the relationships of " + progress.relationshipPartitions.get() + " out of "
+          + progress.partitions + " partitions were written, the rest was lost.", e);
+    }
+  }
+
+  /**
+   * Blocks until every batch handed over to the writer threads has been committed (or has
+   * failed). No-op when the import is not pipelined or the pipeline is shared.
+   */
+  public void awaitPendingWrites() {
+    if (writerPipeline != null && ownsWriterPipeline) {
+      writerPipeline.shutdown();
+    }
+  }
+
+  private void checkWriterFailure() {
+    if (writerPipeline != null && writerPipeline.getFailure() != null) {
+      throw new PartialCommitException(
+          "Problems when running partial commit. Partial transaction rolled back. ",
+          writerPipeline.getFailure());
+    }
+  }
+
+  @Override
+  protected boolean storesNamespaces() {
+    return true;
+  }
 }
@@ -0,0 +1,94 @@
+package n10s.rdf.load;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import n10s.utils.CompactStatementSet;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Statement;
+import org.neo4j.graphdb.RelationshipType;
+
+/**
+ * The labels, properties and relationships accumulated by the parser between two partial commits.
+ * A batch is detached from the statement processor buffers so that it can be written by a thread
+ * other than the one running the parser.
+ */
+public class ImportBatch {
+
+  final Map<String, Set<String>> resourceLabels;
+  final Map<String, Map<String, Object>> resourceProps;
+  final Set<Statement> statements;
+  final Map<Statement, Map<String, Object>> relProps;
+  final Map<IRI, RelationshipType> relTypes;
+  final long mappedTriples;
+  // mapped triples per partition the batch may be split in, for the node phase then the
+  // relationship phase of each. Null when not known
+  final long[] partitionTriples;
+
+  ImportBatch(Map<String, Set<String>> resourceLabels,
+      Map<String, Map<String, Object>> resourceProps, Set<Statement> statements,
+      Map<Statement, Map<String, Object>> relProps, Map<IRI, RelationshipType> relTypes,
+      long mappedTriples, long[] partitionTriples) {
+    this.resourceLabels = resourceLabels;
+    this.resourceProps = resourceProps;
+    this.statements = statements;
+    this.relProps = relProps;
+    this.relTypes = relTypes;
+    this.mappedTriples = mappedTriples;
+    this.partitionTriples = partitionTriples;
+  }
+
+  public long getMappedTriples() {
+    return mappedTriples;
+  }
+
+  /**
+   * @return for a partition, the mapped triples written by its node phase. 0 when not known
+   */
+  long getNodeTriples() {
+    return partitionTriples != null && partitionTriples.length == 2 ? partitionTriples[0] : 0;
+  }
+
+  /**
+   * @return for a partition, the mapped triples written by its relationship phase. 0 when not
+   * known
+   */
+  long getRelationshipTriples() {
+    return partitionTriples != null && partitionTriples.length == 2 ? partitionTriples[1] : 0;
+  }
+
+  /**
+   * Splits the batch in n partitions by hash of the subject uri. Nodes are assigned to the
+   * partition of their uri and relationships (with their properties) to the partition of their
+   * start node, so no two partitions ever write the same node's labels or properties.
+   */
+  List<ImportBatch> partition(int n) {
+    List<ImportBatch> partitions = new ArrayList<>(n);
+    boolean counted = partitionTriples != null && partitionTriples.length == 2 * n;
+    for (int i = 0; i < n; i++) {
+      long[] triples = (counted ? new long[]{partitionTriples[2 * i], partitionTriples[2 * i + 1]}
+          : null);
+      partitions.add(new ImportBatch(new HashMap<>(), new HashMap<>(), new CompactStatementSet(),
+          new HashMap<>(), relTypes, counted ? triples[0] + triples[1] : 0, triples));
+    }
+    for (Map.Entry<String, Set<String>> entry : resourceLabels.entrySet()) {
+      ImportBatch part = partitions.get(partitionFor(entry.getKey(), n));
+      part.resourceLabels.put(entry.getKey(), entry.getValue());
+      part.resourceProps.put(entry.getKey(), resourceProps.get(entry.getKey()));
+    }
+    for (Statement st : statements) {
+      ImportBatch part = partitions.get(partitionFor(st.getSubject().stringValue(), n));
+      part.statements.add(st);
+      if (relProps.containsKey(st)) {
+        part.relProps.put(st, relProps.get(st));
+      }
+    }
+    return partitions;
+  }
+
+  static int partitionFor(String uri, int n) {
+    return Math.floorMod(uri.hashCode(), n);
+  }
+}
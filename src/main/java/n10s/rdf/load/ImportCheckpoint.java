@@ -0,0 +1,163 @@
+package n10s.rdf.load;
+
+import java.util.Arrays;
+import n10s.PrefixedBNodeFactory;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
+
+/**
+ * Progress of an import run with an importId, kept in a _n10sImportState node. The offset saved
+ * is the number of statements parsed from the source when the last partial commit was cut, and it
+ * is written in the transaction of that commit, so it never runs ahead of what is in the DB.
+ *
+ * Blank nodes are named after their label in the source under a prefix kept with the state
+ * (bnodePrefix), so a resumed run gives a blank node met before the offset the same id again.
+ *
+ * Batches rolled back when the import does not abort on errors are recorded as ranges of
+ * statement offsets (failedRanges, flattened start and end pairs) so that they can be reloaded.
+ */
+public class ImportCheckpoint {
+
+  public static final Label IMPORT_STATE = Label.label("_n10sImportState");
+  public static final String STATUS_RUNNING = "RUNNING";
+  public static final String STATUS_COMPLETE = "COMPLETE";
+  public static final String STATUS_FAILED = "FAILED";
+
+  private final String importId;
+  private final String source;
+  // offsets reached by previous runs, this run starts from there
+  private final long resumedParsed;
+  private final long resumedLoaded;
+  private final String bnodePrefix;
+  private long committedParsed;
+  private long pendingParsed;
+  // whether what earlier runs recorded has been dealt with in a committed write
+  private boolean stateReset;
+
+  private ImportCheckpoint(String importId, String source, long resumedParsed,
+      long resumedLoaded, String bnodePrefix) {
+    this.importId = importId;
+    this.bnodePrefix = bnodePrefix;
+    this.source = source;
+    this.resumedParsed = resumedParsed;
+    this.resumedLoaded = resumedLoaded;
+    this.committedParsed = resumedParsed;
+    // a resumed run keeps them
+    this.stateReset = (resumedParsed > 0);
+  }
+
+  /**
+   * @param resume whether to carry on from the offset saved by a previous run. Otherwise the
+   * import starts from the beginning and the saved state is overwritten with the first commit.
+   * @throws IllegalArgumentException if the saved state belongs to a different source
+   */
+  public static ImportCheckpoint start(Transaction tx, String importId, String source,
+      boolean resume) {
+    Node state = tx.findNode(IMPORT_STATE, "importId", importId);
+    if (!resume || state == null) {
+      return new ImportCheckpoint(importId, source, 0, 0, PrefixedBNodeFactory.newPrefix());
+    }
+    Object savedSource = state.getProperty("source", null);
+    if (savedSource != null && !savedSource.equals(source)) {
+      throw new IllegalArgumentException("Import '" + importId + "' was started on a different "
+          + "source (" + savedSource + "). It can't be resumed on " + source);
+    }
+    return new ImportCheckpoint(importId, source, (long) state.getProperty("triplesParsed", 0L),
+        (long) state.getProperty("triplesLoaded", 0L),
+        (String) state.getProperty("bnodePrefix", PrefixedBNodeFactory.newPrefix()));
+  }
+
+  /**
+   * @return the number of statements of the source to skip because a previous run already
+   * committed them
+   */
+  public long getResumeOffset() {
+    return resumedParsed;
+  }
+
+  /**
+   * @return the prefix of the blank node ids of every run of the import
+   */
+  public String getBNodePrefix() {
+    return bnodePrefix;
+  }
+
+  /**
+   * Saves the offsets reached at the end of a batch in the transaction that writes the batch.
+   *
+   * @param triplesParsed statements parsed by this run when the batch was cut
+   * @param triplesLoaded triples loaded by this run, including the ones of the batch
+   */
+  void save(Transaction batchTransaction, long triplesParsed, long triplesLoaded) {
+    pendingParsed = resumedParsed + triplesParsed;
+    Node state = getOrCreateState(batchTransaction);
+    state.setProperty("triplesParsed", pendingParsed);
+    state.setProperty("triplesLoaded", resumedLoaded + triplesLoaded);
+    state.setProperty("status", STATUS_RUNNING);
+    state.setProperty("lastUpdate", System.currentTimeMillis());
+  }
+
+  /**
+   * The transaction passed to the last save has been committed.
+   */
+  void committed() {
+    committedParsed = pendingParsed;
+    stateReset = true;
+  }
+
+  /**
+   * Records the statements parsed since the last commit as lost, in a transaction of its own,
+   * and moves the offset past them.
+   *
+   * @param triplesParsed statements parsed by this run when the failed batch was cut
+   */
+  void batchLost(GraphDatabaseService db, long triplesParsed) {
+    long end = resumedParsed + triplesParsed;
+    try (Transaction tx = db.beginTx()) {
+      Node state = getOrCreateState(tx);
+      long[] ranges = (long[]) state.getProperty("failedRanges", new long[0]);
+      long[] updated = Arrays.copyOf(ranges, ranges.length + 2);
+      updated[ranges.length] = committedParsed;
+      updated[ranges.length + 1] = end;
+      state.setProperty("failedRanges", updated);
+      state.setProperty("lastUpdate", System.currentTimeMillis());
+      tx.commit();
+    }
+    committedParsed = end;
+    stateReset = true;
+  }
+
+  /**
+   * Saves the final status of the run in a transaction of its own.
+   */
+  public void finish(GraphDatabaseService db, String status) {
+    try (Transaction tx = db.beginTx()) {
+      Node state = getOrCreateState(tx);
+      state.setProperty("status", status);
+      state.setProperty("lastUpdate", System.currentTimeMillis());
+      tx.commit();
+    }
+    stateReset = true;
+  }
+
+  private Node getOrCreateState(Transaction tx) {
+    Node state = tx.findNode(IMPORT_STATE, "importId", importId);
+    if (state == null) {
+      state = tx.createNode(IMPORT_STATE);
+      state.setProperty("importId", importId);
+    }
+    if (!stateReset) {
+      // a run from the beginning replaces whatever an earlier one recorded
+      state.setProperty("triplesParsed", resumedParsed);
+      state.setProperty("triplesLoaded", resumedLoaded);
+      state.setProperty("failedRanges", new long[0]);
+    }
+    if (source != null) {
+      state.setProperty("source", source);
+    }
+    state.setProperty("bnodePrefix", bnodePrefix);
+    return state;
+  }
+}
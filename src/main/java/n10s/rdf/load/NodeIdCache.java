@@ -0,0 +1,123 @@
+package n10s.rdf.load;
+
+/**
+ * Bounded uri to node id map that lives for the duration of an import. Unlike the per transaction
+ * node cache it keeps ids (not Node handles) so it survives partial commits, and hub resources
+ * (shared classes, popular objects) are looked up in the uniqueness index only once.
+ *
+ * Open addressing over parallel arrays, so ids are kept as primitive longs. When full, an entry is
+ * evicted following the clock (second chance) policy: entries hit since the hand last went past
+ * them are spared. Ids are only hints, callers must check the node they point to is still the
+ * one with the expected uri.
+ */
+class NodeIdCache {
+
+  static final long NOT_FOUND = -1L;
+
+  private final int maxEntries;
+  private final int mask;
+  private final String[] keys;
+  private final long[] ids;
+  private final boolean[] referenced;
+  private int size;
+  private int hand;
+
+  NodeIdCache(long maxEntries) {
+    this.maxEntries = (int) Math.min(Math.max(maxEntries, 0), 1 << 29);
+    // load factor of at most .5 keeps probe sequences short
+    int capacity = this.maxEntries == 0 ? 0 : Integer.highestOneBit(this.maxEntries * 2 - 1) << 1;
+    this.mask = capacity - 1;
+    this.keys = new String[capacity];
+    this.ids = new long[capacity];
+    this.referenced = new boolean[capacity];
+  }
+
+  synchronized long get(String uri) {
+    if (maxEntries == 0) {
+      return NOT_FOUND;
+    }
+    for (int i = slotFor(uri); keys[i] != null; i = (i + 1) & mask) {
+      if (keys[i].equals(uri)) {
+        referenced[i] = true;
+        return ids[i];
+      }
+    }
+    return NOT_FOUND;
+  }
+
+  synchronized void put(String uri, long id) {
+    if (maxEntries == 0) {
+      return;
+    }
+    int i = slotFor(uri);
+    for (; keys[i] != null; i = (i + 1) & mask) {
+      if (keys[i].equals(uri)) {
+        ids[i] = id;
+        return;
+      }
+    }
+    if (size == maxEntries) {
+      evictOne();
+      // the eviction may have shifted entries into the probe sequence
+      put(uri, id);
+      return;
+    }
+    keys[i] = uri;
+    ids[i] = id;
+    referenced[i] = false;
+    size++;
+  }
+
+  synchronized void remove(String uri) {
+    if (maxEntries == 0) {
+      return;
+    }
+    for (int i = slotFor(uri); keys[i] != null; i = (i + 1) & mask) {
+      if (keys[i].equals(uri)) {
+        removeAt(i);
+        return;
+      }
+    }
+  }
+
+  synchronized int size() {
+    return size;
+  }
+
+  private void evictOne() {
+    while (true) {
+      hand = (hand + 1) & mask;
+      if (keys[hand] != null) {
+        if (referenced[hand]) {
+          referenced[hand] = false;
+        } else {
+          removeAt(hand);
+          return;
+        }
+      }
+    }
+  }
+
+  // backward shift deletion: moves up the entries in the cluster that would otherwise become
+  // unreachable from their home slot
+  private void removeAt(int slot) {
+    int gap = slot;
+    for (int i = (slot + 1) & mask; keys[i] != null; i = (i + 1) & mask) {
+      int home = slotFor(keys[i]);
+      if (((i - home) & mask) >= ((i - gap) & mask)) {
+        keys[gap] = keys[i];
+        ids[gap] = ids[i];
+        referenced[gap] = referenced[i];
+        gap = i;
+      }
+    }
+    keys[gap] = null;
+    referenced[gap] = false;
+    size--;
+  }
+
+  private int slotFor(String uri) {
+    int h = uri.hashCode() * 0x9E3779B9;
+    return (h ^ (h >>> 16)) & mask;
+  }
+}
@@ -0,0 +1,236 @@
+package n10s.rdf.load;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.TransientFailureException;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.logging.Log;
+
+/**
+ * Writes the batches produced by a DirectStatementLoader (or by several of them, when sources are
+ * parsed concurrently) on background threads so that parsing and writing overlap. Batches are
+ * committed in the order they are handed over: a batch is only started once the previous one is
+ * fully committed, so relationships can always find nodes created by earlier batches.
+ *
+ * With more than one writer thread each batch is partitioned by subject uri and written in two
+ * phases (nodes first, then relationships), each partition in its own transaction. Such a batch is
+ * not atomic: its nodes are committed before its relationships are written, and a failed partition
+ * leaves the ones that committed in place.
+ */
+class PipelinedBatchWriter {
+
+  // relationship partitions can deadlock on shared end nodes. Neo4j detects it and we retry.
+  private static final int MAX_ATTEMPTS = 5;
+  private static final long IDLE_TIMEOUT_SECONDS = 60;
+  private static final AtomicInteger pipelineCount = new AtomicInteger();
+
+  private final DirectStatementLoader loader;
+  private final GraphDatabaseService graphdb;
+  private final Log log;
+  private final int writerThreads;
+  private final long nodeCacheSize;
+  private final Semaphore queueSlots;
+  private final ExecutorService coordinator;
+  private final ExecutorService writers;
+  private volatile Exception failure;
+
+  PipelinedBatchWriter(DirectStatementLoader loader, GraphDatabaseService graphdb, Log log,
+      int writerThreads, int queueSize, long nodeCacheSize) {
+    this.loader = loader;
+    this.graphdb = graphdb;
+    this.log = log;
+    this.writerThreads = writerThreads;
+    this.nodeCacheSize = nodeCacheSize;
+    // one batch being written plus queueSize waiting. The parser blocks when all are taken.
+    this.queueSlots = new Semaphore(queueSize + 1);
+    int pipelineId = pipelineCount.incrementAndGet();
+    this.coordinator = idleTimingOutPool(1, new ArrayBlockingQueue<>(queueSize + 1),
+        namedThreads("n10s-import-" + pipelineId));
+    this.writers = writerThreads > 1 ? idleTimingOutPool(writerThreads,
+        new LinkedBlockingQueue<>(), namedThreads("n10s-import-" + pipelineId + "-writer"))
+        : null;
+  }
+
+  /**
+   * Hands a batch over to the writer threads. Blocks while the queue is full. The outcome is
+   * reported to the loader that produced the batch, which is not necessarily the one writing it.
+   */
+  void submit(ImportBatch batch, DirectStatementLoader origin) throws InterruptedException {
+    queueSlots.acquire();
+    BatchProgress progress = new BatchProgress();
+    coordinator.execute(() -> {
+      try {
+        if (failure == null) {
+          long start = System.nanoTime();
+          long txStateBytes = write(batch, progress);
+          origin.batchCommitted(batch, progress,
+              TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), txStateBytes);
+        }
+      } catch (Exception e) {
+        origin.batchFailed(batch, progress, e);
+        if (loader.getParserConfig().isAbortOnError()) {
+          failure = e;
+        }
+      } finally {
+        queueSlots.release();
+      }
+    });
+  }
+
+  Exception getFailure() {
+    return failure;
+  }
+
+  /**
+   * Waits for all submitted batches to be committed and releases the threads.
+   */
+  void shutdown() {
+    coordinator.shutdown();
+    try {
+      coordinator.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      coordinator.shutdownNow();
+      Thread.currentThread().interrupt();
+    } finally {
+      if (writers != null) {
+        writers.shutdownNow();
+      }
+    }
+  }
+
+  /**
+   * @return the heap estimated to be taken by the state of the transactions that wrote the batch
+   * (the largest phase when partitioned), -1 when it can't be told
+   */
+  private long write(ImportBatch batch, BatchProgress progress) throws Exception {
+    if (writers == null) {
+      long txStateBytes = commitWithRetry(batch, progress, (tx, b, cache, attempt) -> {
+        loader.writeNodes(tx, b, cache, attempt);
+        loader.writeRelationships(tx, b, cache, attempt);
+      });
+      progress.nodePartitions.incrementAndGet();
+      progress.relationshipPartitions.incrementAndGet();
+      return txStateBytes;
+    } else {
+      List<ImportBatch> partitions = batch.partition(writerThreads);
+      progress.partitions = partitions.size();
+      // all nodes need to be committed before any partition looks them up to link them
+      long nodesState = writeInParallel(partitions, progress, progress.nodePartitions,
+          ImportBatch::getNodeTriples, loader::writeNodes);
+      long relsState = writeInParallel(partitions, progress, progress.relationshipPartitions,
+          ImportBatch::getRelationshipTriples, loader::writeRelationships);
+      return Math.max(nodesState, relsState);
+    }
+  }
+
+  private long writeInParallel(List<ImportBatch> partitions, BatchProgress progress,
+      AtomicInteger committedPartitions, ToLongFunction<ImportBatch> phaseTriples,
+      BatchWriteOperation op) throws Exception {
+    List<Future<Long>> pending = new ArrayList<>();
+    for (ImportBatch partition : partitions) {
+      pending.add(writers.submit(() -> {
+        long txStateBytes = commitWithRetry(partition, progress, op);
+        committedPartitions.incrementAndGet();
+        progress.committedTriples.addAndGet(phaseTriples.applyAsLong(partition));
+        return txStateBytes;
+      }));
+    }
+    Exception firstError = null;
+    long txStateBytes = 0;
+    for (Future<Long> f : pending) {
+      try {
+        long partitionState = f.get();
+        txStateBytes = (txStateBytes < 0 || partitionState < 0 ? -1
+            : txStateBytes + partitionState);
+      } catch (ExecutionException e) {
+        if (firstError == null) {
+          firstError = (e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
+        }
+      }
+    }
+    if (firstError != null) {
+      throw firstError;
+    }
+    return txStateBytes;
+  }
+
+  private long commitWithRetry(ImportBatch batch, BatchProgress progress,
+      BatchWriteOperation op) {
+    for (int attempt = 1; ; attempt++) {
+      //node handles are bound to the transaction, so every attempt gets its own cache
+      Cache<String, Node> nodeCache = CacheBuilder.newBuilder().maximumSize(nodeCacheSize).build();
+      // and its own record of what it wrote, only taken into account once committed
+      WriteAttempt written = loader.newWriteAttempt();
+      try (Transaction tx = graphdb.beginTx()) {
+        op.write(tx, batch, nodeCache, written);
+        long txStateBytes = AdaptiveCommitSize.txStateBytes(tx);
+        tx.commit();
+        loader.relationshipsCommitted(written);
+        progress.committed.add(written.changes);
+        return txStateBytes;
+      } catch (TransientFailureException e) {
+        if (attempt == MAX_ATTEMPTS) {
+          throw e;
+        }
+        log.debug("Transient failure writing partition (attempt " + attempt + "). Retrying. "
+            + e.getMessage());
+      }
+    }
+  }
+
+  // threads go away on their own if the import is abandoned without a shutdown
+  private static ExecutorService idleTimingOutPool(int threads, BlockingQueue<Runnable> queue,
+      ThreadFactory threadFactory) {
+    ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, IDLE_TIMEOUT_SECONDS,
+        TimeUnit.SECONDS, queue, threadFactory);
+    pool.allowCoreThreadTimeOut(true);
+    return pool;
+  }
+
+  private static ThreadFactory namedThreads(String prefix) {
+    AtomicInteger count = new AtomicInteger();
+    return r -> {
+      Thread t = new Thread(r, prefix + "-" + count.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    };
+  }
+
+  interface BatchWriteOperation {
+
+    void write(Transaction tx, ImportBatch batch, Cache<String, Node> nodeCache,
+        WriteAttempt attempt);
+  }
+
+  /**
+   * What has been committed of a batch, which with more than one writer thread can be only part
+   * of it when it fails.
+   */
+  static class BatchProgress {
+
+    // counts of the transactions that committed
+    final ChangeCounts committed = new ChangeCounts();
+    final AtomicInteger nodePartitions = new AtomicInteger();
+    final AtomicInteger relationshipPartitions = new AtomicInteger();
+    // mapped triples written by the partition phases that committed
+    final AtomicLong committedTriples = new AtomicLong();
+    volatile int partitions = 1;
+  }
+}
@@ -1,5 +1,6 @@
 package n10s.rdf.load;
 
+import java.util.List;
 import java.util.Map;
 import java.util.stream.Stream;
 import n10s.rdf.RDFProcedures;
@@ -19,6 +20,18 @@ public class RDFLoadProcedures extends RDFProcedures {
     return Stream.of(doImport(format, url, null, props, null));
   }
 
+  @Procedure(name = "n10s.rdf.import.fetchAll", mode = Mode.WRITE)
+  @Description("Imports RDF from a list of urls (file or http, file names can contain * and ? "
+      + "wildcards). Sources are fetched and parsed concurrently and written through a single "
+      + "writer stage. Returns one result per source. Requires a unique constraint on "
+      + ":Resource(uri)")
+  public Stream<SourceImportResults> fetchAll(@Name("urls") List<String> urls,
+      @Name("format") String format,
+      @Name(value = "params", defaultValue = "{}") Map<String, Object> props) {
+
+    return doMultiImport(format, urls, props).stream();
+  }
+
   @Procedure(name = "n10s.rdf.import.inline", mode = Mode.WRITE)
   @Description("Imports an RDF snippet passed as parameter and stores it in Neo4j as a property "
       + "graph. Requires a unique constraint on :Resource(uri)")
@@ -29,4 +42,14 @@ public class RDFLoadProcedures extends RDFProcedures {
     return Stream.of(doImport(format, null, rdfFragment, props, null));
   }
 
+  @Procedure(name = "n10s.rdf.import.toAdminCsv", mode = Mode.READ)
+  @Description("Maps RDF from an url (file or http) to a property graph following the graph "
+      + "config and writes it to the given directory as CSV files for neo4j-admin import")
+  public Stream<AdminCsvResults> toAdminCsv(@Name("url") String url, @Name("format") String format,
+      @Name("outputDir") String outputDir,
+      @Name(value = "params", defaultValue = "{}") Map<String, Object> props) {
+
+    return Stream.of(doAdminCsvExport(format, url, outputDir, props));
+  }
+
 }
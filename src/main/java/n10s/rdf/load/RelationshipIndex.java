@@ -0,0 +1,246 @@
+package n10s.rdf.load;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.neo4j.graphdb.RelationshipType;
+import org.neo4j.graphdb.Result;
+import org.neo4j.graphdb.Transaction;
+
+/**
+ * Import scoped answer to "does (s)-[p]->(o) already exist?" that avoids walking the relationship
+ * chain of the endpoints. It keeps a bloom filter over the (start id, type, end id) of every
+ * relationship written by the import.
+ *
+ * A negative from the filter only proves that the import has not written the relationship. It
+ * is trusted for every type when the import is declared fresh: the graph held none of the
+ * relationships being imported and nothing else writes them while the import runs. With a fresh
+ * import and the filter disabled the check is skipped altogether.
+ *
+ * Otherwise a type gets the exact check until the relationships explored by those checks add up
+ * to as many as the graph has of the type (see {@link #explored}). The existing relationships of
+ * the type are then scanned into the filter, which is trusted for that type from then on: a
+ * supernode pays for one scan instead of one walk per statement. A type with more relationships
+ * than the filter has room for keeps the exact check. Relationships written by others after the
+ * scan are not in the filter.
+ *
+ * Relationships are added once the transaction writing them has committed (see {@link Pending}),
+ * so a rolled back or retried write leaves nothing behind. Once the filter saturates it keeps
+ * answering "maybe", so the index degrades to the exact check rather than giving wrong answers.
+ */
+class RelationshipIndex {
+
+  // ~1% false positives at the nominal capacity
+  private static final int BITS_PER_ENTRY = 10;
+  private static final int HASHES = 7;
+
+  private final boolean freshImport;
+  private final long maxEntries;
+  private final long numBits;
+  private AtomicLongArray bits;
+  // entries added to the filter, by commits and scans
+  private final AtomicLong entries = new AtomicLong();
+  // types met by a non fresh import
+  private final Map<String, TypeScan> scans = new ConcurrentHashMap<>();
+
+  RelationshipIndex(long maxEntries, boolean freshImport) {
+    this.freshImport = freshImport;
+    this.maxEntries = Math.min(Math.max(maxEntries, 0), 1L << 29);
+    this.numBits = Math.max(this.maxEntries * BITS_PER_ENTRY, 64);
+  }
+
+  boolean isEnabled() {
+    return maxEntries > 0;
+  }
+
+  /**
+   * @param pending the relationships written so far by the (uncommitted) transaction asking
+   * @return false when the relationship is known not to exist, true when the caller has to check
+   * the graph. With a fresh import and the filter disabled nothing is ever checked.
+   */
+  boolean mightExist(long startId, String type, long endId, Pending pending) {
+    if (!freshImport && !isScanned(type)) {
+      return true;
+    }
+    if (pending.contains(startId, type, endId)) {
+      return true;
+    }
+    if (!isEnabled()) {
+      return false;
+    }
+    AtomicLongArray bits = bitArray();
+    long h1 = mix(startId * 31 + type.hashCode());
+    long h2 = mix(h1 ^ endId) | 1;
+    for (int i = 0; i < HASHES; i++) {
+      long bit = Long.remainderUnsigned(h1 + i * h2, numBits);
+      if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Adds the relationships of a transaction that has committed.
+   */
+  void committed(Pending pending) {
+    if (!isEnabled()) {
+      return;
+    }
+    for (PendingRelationship rel : pending.relationships) {
+      add(rel.startId, rel.type, rel.endId);
+    }
+  }
+
+  /**
+   * Reports an exact check on a non fresh import. Once the checks on a type have explored as many
+   * relationships as the graph has of that type, these are scanned into the filter (with the
+   * transaction passed) and the type no longer needs the exact check.
+   *
+   * @param relationshipsExplored relationships of the type walked by the check
+   */
+  void explored(Transaction tx, RelationshipType type, long relationshipsExplored) {
+    if (freshImport || !isEnabled()) {
+      return;
+    }
+    TypeScan scan = scans.computeIfAbsent(type.name(), t -> new TypeScan());
+    if (scan.state != TypeScan.EXPLORING) {
+      return;
+    }
+    synchronized (scan) {
+      if (scan.state != TypeScan.EXPLORING) {
+        return;
+      }
+      if (scan.existing < 0) {
+        scan.existing = count(tx, type);
+      }
+      scan.explored += relationshipsExplored;
+      if (scan.explored < scan.existing) {
+        return;
+      }
+      if (entries.get() + scan.existing > maxEntries) {
+        scan.state = TypeScan.TOO_BIG;
+        return;
+      }
+      try (Result rels = tx.execute("MATCH (s)-[r:" + quote(type.name()) + "]->(e) "
+          + "RETURN id(s) AS s, id(e) AS e")) {
+        while (rels.hasNext()) {
+          Map<String, Object> rel = rels.next();
+          add((Long) rel.get("s"), type.name(), (Long) rel.get("e"));
+        }
+      }
+      scan.state = TypeScan.SCANNED;
+    }
+  }
+
+  private boolean isScanned(String type) {
+    TypeScan scan = scans.get(type);
+    return scan != null && scan.state == TypeScan.SCANNED;
+  }
+
+  // answered from the counts store, no relationship is read
+  private static long count(Transaction tx, RelationshipType type) {
+    try (Result result = tx.execute("MATCH ()-[r:" + quote(type.name()) + "]->() "
+        + "RETURN count(r) AS ct")) {
+      return (Long) result.next().get("ct");
+    }
+  }
+
+  private static String quote(String name) {
+    return "`" + name.replace("`", "``") + "`";
+  }
+
+  private void add(long startId, String type, long endId) {
+    entries.incrementAndGet();
+    AtomicLongArray bits = bitArray();
+    long h1 = mix(startId * 31 + type.hashCode());
+    long h2 = mix(h1 ^ endId) | 1;
+    for (int i = 0; i < HASHES; i++) {
+      long bit = Long.remainderUnsigned(h1 + i * h2, numBits);
+      int word = (int) (bit >>> 6);
+      long mask = 1L << bit;
+      long current;
+      while (((current = bits.get(word)) & mask) == 0
+          && !bits.compareAndSet(word, current, current | mask)) {
+        // retry, another writer thread updated the same word
+      }
+    }
+  }
+
+  // allocated on first use so that small imports don't pay for it
+  private synchronized AtomicLongArray bitArray() {
+    if (bits == null) {
+      bits = new AtomicLongArray((int) ((numBits + 63) >>> 6));
+    }
+    return bits;
+  }
+
+  // splitmix64 finalizer
+  private static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+  /**
+   * Relationships created by a transaction that has not committed yet. Only recorded when the
+   * filter is trusted for some type, or may come to be.
+   */
+  class Pending {
+
+    private final Set<PendingRelationship> relationships = new HashSet<>();
+
+    void add(long startId, String type, long endId) {
+      if (freshImport || isEnabled()) {
+        relationships.add(new PendingRelationship(startId, type, endId));
+      }
+    }
+
+    private boolean contains(long startId, String type, long endId) {
+      return !relationships.isEmpty()
+          && relationships.contains(new PendingRelationship(startId, type, endId));
+    }
+  }
+
+  private static final class TypeScan {
+
+    static final int EXPLORING = 0;
+    static final int SCANNED = 1;
+    static final int TOO_BIG = 2;
+
+    volatile int state = EXPLORING;
+    // relationships of the type in the graph when first checked, -1 until then
+    long existing = -1;
+    long explored = 0;
+  }
+
+  private static final class PendingRelationship {
+
+    private final long startId;
+    private final String type;
+    private final long endId;
+
+    PendingRelationship(long startId, String type, long endId) {
+      this.startId = startId;
+      this.type = type;
+      this.endId = endId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof PendingRelationship)) {
+        return false;
+      }
+      PendingRelationship other = (PendingRelationship) o;
+      return startId == other.startId && endId == other.endId && type.equals(other.type);
+    }
+
+    @Override
+    public int hashCode() {
+      return (int) mix(startId * 31 + type.hashCode() ^ endId);
+    }
+  }
+}
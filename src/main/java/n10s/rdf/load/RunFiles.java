@@ -0,0 +1,202 @@
+package n10s.rdf.load;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Function;
+
+/**
+ * External sort shared by the handlers that can't keep their whole input in memory
+ * (SubjectSortingHandler, AdminImportCsvWriter). Records are written in runs sorted by key to a
+ * temporary directory, created on first use, and the runs are merged back in key order. The merge
+ * is stable: records with the same key come out in the order their runs were written.
+ */
+class RunFiles<T> {
+
+  // max number of run files open at the same time when merging
+  private static final int MAX_MERGE_FAN_IN = 64;
+
+  interface Codec<T> {
+
+    void write(DataOutputStream out, T record) throws IOException;
+
+    /**
+     * @return the next record in the stream or null if there are no more
+     */
+    T read(DataInputStream in) throws IOException;
+  }
+
+  private final File parentDir;
+  private final String prefix;
+  private final Codec<T> codec;
+  private final Function<T, String> key;
+  private File runsDir;
+  private int runCount = 0;
+
+  /**
+   * @param parentDir where the temporary directory is created, null for the default one
+   * @param prefix of the name of the temporary directory
+   */
+  RunFiles(File parentDir, String prefix, Codec<T> codec, Function<T, String> key) {
+    this.parentDir = parentDir;
+    this.prefix = prefix;
+    this.codec = codec;
+    this.key = key;
+  }
+
+  /**
+   * Sorts the records by key (List.sort is stable, so records with the same key keep their
+   * order) and writes them as a new run.
+   */
+  File writeRun(List<T> records) throws IOException {
+    records.sort(Comparator.comparing(key));
+    File run = newRunFile();
+    try (DataOutputStream out = open(run)) {
+      for (T record : records) {
+        codec.write(out, record);
+      }
+    }
+    return run;
+  }
+
+  /**
+   * @return the records of all the runs in key order. Runs are merged (keeping their order) into
+   * fewer, bigger ones first if there are too many to be merged at once.
+   */
+  Merger merge(List<File> runs) throws IOException {
+    List<File> current = new ArrayList<>(runs);
+    while (current.size() > MAX_MERGE_FAN_IN) {
+      List<File> next = new ArrayList<>();
+      for (int i = 0; i < current.size(); i += MAX_MERGE_FAN_IN) {
+        List<File> group = current.subList(i, Math.min(i + MAX_MERGE_FAN_IN, current.size()));
+        File merged = newRunFile();
+        try (DataOutputStream out = open(merged)) {
+          for (Merger merger = new Merger(group); merger.hasNext(); ) {
+            codec.write(out, merger.next());
+          }
+        }
+        group.forEach(File::delete);
+        next.add(merged);
+      }
+      current = next;
+    }
+    return new Merger(current);
+  }
+
+  /**
+   * Removes the run files and their directory.
+   */
+  void delete() {
+    if (runsDir != null) {
+      File[] files = runsDir.listFiles();
+      if (files != null) {
+        for (File run : files) {
+          run.delete();
+        }
+      }
+      runsDir.delete();
+      runsDir = null;
+    }
+  }
+
+  private File newRunFile() throws IOException {
+    if (runsDir == null) {
+      runsDir = (parentDir == null ? Files.createTempDirectory(prefix)
+          : Files.createTempDirectory(parentDir.toPath(), prefix)).toFile();
+    }
+    return new File(runsDir, "run-" + (runCount++));
+  }
+
+  private static DataOutputStream open(File run) throws IOException {
+    return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run), 1 << 16));
+  }
+
+  // writeUTF is limited to 64K
+  static void writeString(DataOutputStream out, String s) throws IOException {
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  static String readString(DataInputStream in) throws IOException {
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * K-way merge of sorted runs. Records with the same key come out in run order.
+   */
+  class Merger {
+
+    private final PriorityQueue<RunReader> queue = new PriorityQueue<>(
+        Comparator.<RunReader, String>comparing(r -> r.currentKey)
+            .thenComparingInt(r -> r.index));
+
+    private Merger(List<File> runs) throws IOException {
+      for (int i = 0; i < runs.size(); i++) {
+        RunReader reader = new RunReader(runs.get(i), i);
+        if (reader.advance()) {
+          queue.add(reader);
+        }
+      }
+    }
+
+    boolean hasNext() {
+      return !queue.isEmpty();
+    }
+
+    /**
+     * @return the key of the record next() would return, null if there are no more
+     */
+    String peekKey() {
+      return queue.isEmpty() ? null : queue.peek().currentKey;
+    }
+
+    T next() throws IOException {
+      RunReader reader = queue.poll();
+      if (reader == null) {
+        return null;
+      }
+      T record = reader.current;
+      if (reader.advance()) {
+        queue.add(reader);
+      }
+      return record;
+    }
+  }
+
+  private class RunReader {
+
+    private final DataInputStream in;
+    private final int index;
+    private T current;
+    private String currentKey;
+
+    RunReader(File run, int index) throws IOException {
+      this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(run), 1 << 16));
+      this.index = index;
+    }
+
+    boolean advance() throws IOException {
+      current = codec.read(in);
+      if (current == null) {
+        in.close();
+        return false;
+      }
+      currentKey = key.apply(current);
+      return true;
+    }
+  }
+}
@@ -0,0 +1,71 @@
+package n10s.rdf.load;
+
+import static n10s.graphconfig.GraphConfig.GRAPHCONF_VOC_URI_SHORTEN;
+import static n10s.graphconfig.GraphConfig.GRAPHCONF_VOC_URI_SHORTEN_STRICT;
+
+import n10s.graphconfig.RDFParserConfig;
+import n10s.utils.InvalidNamespacePrefixDefinitionInDB;
+import n10s.utils.NsPrefixMap;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.logging.Log;
+
+/**
+ * Single write path for several sources parsed at the same time. Every source gets its own
+ * loader (and parser thread), but all their batches go through one pipeline and are committed one
+ * after the other, partitioned by subject when there's more than one writer thread. Two sources
+ * can therefore never race to create the same node. The loaders also share the namespace prefix
+ * map so that they agree on the prefix of every namespace.
+ */
+public class SharedWriterStage {
+
+  private final GraphDatabaseService graphdb;
+  private final Transaction tx;
+  private final RDFParserConfig conf;
+  private final Log log;
+  // does the writing (node id cache, relationship index) but parses nothing
+  private final DirectStatementLoader writer;
+  private final PipelinedBatchWriter pipeline;
+  private final NsPrefixMap namespaces;
+
+  public SharedWriterStage(GraphDatabaseService db, Transaction tx, RDFParserConfig conf, Log l)
+      throws InvalidNamespacePrefixDefinitionInDB {
+    this.graphdb = db;
+    this.tx = tx;
+    this.conf = conf;
+    this.log = l;
+    this.writer = new DirectStatementLoader(db, tx, conf, l);
+    this.pipeline = new PipelinedBatchWriter(writer, db, l, Math.max(conf.getWriterThreads(), 1),
+        conf.getWriterQueueSize(), conf.getNodeCacheSize());
+    int handleVocabUris = conf.getGraphConf().getHandleVocabUris();
+    this.namespaces = (handleVocabUris == GRAPHCONF_VOC_URI_SHORTEN
+        || handleVocabUris == GRAPHCONF_VOC_URI_SHORTEN_STRICT ? new NsPrefixMap(db, tx, false)
+        : null);
+  }
+
+  /**
+   * @return a loader for one more source. It only parses, so it is cheap, and can be created and
+   * used on any thread.
+   */
+  public DirectStatementLoader newSourceLoader() {
+    DirectStatementLoader loader = new DirectStatementLoader(graphdb, tx, conf, log, pipeline);
+    if (namespaces != null) {
+      loader.shareNamespaces(namespaces);
+    }
+    return loader;
+  }
+
+  /**
+   * Blocks until the batches of all sources have been committed (or have failed).
+   */
+  public void awaitPendingWrites() {
+    pipeline.shutdown();
+  }
+
+  /**
+   * @return the warnings raised while writing (datatype conflicts on multivalued properties)
+   */
+  public String getWarnings() {
+    return writer.getWarnings();
+  }
+}
@@ -0,0 +1,221 @@
+package n10s.rdf.load;
+
+import static n10s.rdf.load.RunFiles.readString;
+import static n10s.rdf.load.RunFiles.writeString;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import n10s.ConfiguredStatementHandler;
+import n10s.graphconfig.RDFParserConfig;
+import org.eclipse.rdf4j.model.BNode;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Triple;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.rio.RDFHandlerException;
+
+/**
+ * Sits between the parser and a statement handler and hands the statements over grouped by
+ * subject. Parsed statements are spilled to disk in sorted runs (in a compact binary form) and
+ * the runs are merged once the whole input has been parsed, so the delegate sees every triple
+ * about a subject in one go and (with sortBySubject) never splits them across partial commits.
+ *
+ * The sort is stable: triples about the same subject keep the order in which they were parsed.
+ */
+public class SubjectSortingHandler extends ConfiguredStatementHandler {
+
+  // statements kept in memory before a run is written to disk
+  private static final int RUN_SIZE = 200000;
+
+  private static final byte IRI_TERM = 0;
+  private static final byte BNODE_TERM = 1;
+  private static final byte LITERAL_TERM = 2;
+  private static final byte LANG_LITERAL_TERM = 3;
+  private static final byte TRIPLE_TERM = 4;
+  private static final byte NO_TERM = 5;
+
+  private static final ValueFactory vf = SimpleValueFactory.getInstance();
+
+  private final ConfiguredStatementHandler delegate;
+  private final List<Statement> buffer = new ArrayList<>();
+  private final List<File> runs = new ArrayList<>();
+  private final RunFiles<Statement> runFiles = new RunFiles<>(null, "n10s-sort-",
+      new RunFiles.Codec<Statement>() {
+        @Override
+        public void write(DataOutputStream out, Statement st) throws IOException {
+          writeStatement(out, st);
+        }
+
+        @Override
+        public Statement read(DataInputStream in) throws IOException {
+          return readStatement(in);
+        }
+      }, st -> subjectKey(st.getSubject()));
+
+  public SubjectSortingHandler(ConfiguredStatementHandler delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public RDFParserConfig getParserConfig() {
+    return delegate.getParserConfig();
+  }
+
+  @Override
+  public void startRDF() throws RDFHandlerException {
+    delegate.startRDF();
+  }
+
+  @Override
+  public void handleNamespace(String prefix, String uri) throws RDFHandlerException {
+    delegate.handleNamespace(prefix, uri);
+  }
+
+  @Override
+  public void handleComment(String comment) throws RDFHandlerException {
+    delegate.handleComment(comment);
+  }
+
+  @Override
+  public void handleStatement(Statement st) throws RDFHandlerException {
+    buffer.add(st);
+    if (buffer.size() == RUN_SIZE) {
+      try {
+        runs.add(writeRun());
+      } catch (IOException e) {
+        throw new RDFHandlerException("Problems writing temporary run file. " + e.getMessage(), e);
+      }
+    }
+  }
+
+  @Override
+  public void endRDF() throws RDFHandlerException {
+    try {
+      if (runs.isEmpty()) {
+        // everything fits in memory, no need to go to disk
+        buffer.sort(Comparator.comparing(st -> subjectKey(st.getSubject())));
+        for (Statement st : buffer) {
+          delegate.handleStatement(st);
+        }
+        buffer.clear();
+      } else {
+        if (!buffer.isEmpty()) {
+          runs.add(writeRun());
+        }
+        RunFiles<Statement>.Merger merger = runFiles.merge(runs);
+        for (Statement st = merger.next(); st != null; st = merger.next()) {
+          delegate.handleStatement(st);
+        }
+      }
+    } catch (IOException e) {
+      throw new RDFHandlerException("Problems reading temporary run files. " + e.getMessage(), e);
+    } finally {
+      deleteTemporaryFiles();
+    }
+    delegate.endRDF();
+  }
+
+  /**
+   * Removes the run files. Called when the import completes and when parsing fails.
+   */
+  public void deleteTemporaryFiles() {
+    buffer.clear();
+    runFiles.delete();
+    runs.clear();
+  }
+
+  private File writeRun() throws IOException {
+    // the sort is stable so the parse order is kept within a subject
+    File run = runFiles.writeRun(buffer);
+    buffer.clear();
+    return run;
+  }
+
+  // same key the statement processor uses to identify the subject's node
+  static String subjectKey(Resource subject) {
+    return subject instanceof BNode ? "bnode://" + subject.stringValue() : subject.stringValue();
+  }
+
+  static void writeStatement(DataOutputStream out, Statement st) throws IOException {
+    writeTerm(out, st.getSubject());
+    writeTerm(out, st.getPredicate());
+    writeTerm(out, st.getObject());
+    writeTerm(out, st.getContext());
+  }
+
+  /**
+   * @return the next statement in the stream or null if there are no more
+   */
+  static Statement readStatement(DataInputStream in) throws IOException {
+    Resource subject;
+    try {
+      subject = (Resource) readTerm(in);
+    } catch (EOFException e) {
+      return null;
+    }
+    IRI predicate = (IRI) readTerm(in);
+    Value object = readTerm(in);
+    Resource context = (Resource) readTerm(in);
+    return context == null ? vf.createStatement(subject, predicate, object)
+        : vf.createStatement(subject, predicate, object, context);
+  }
+
+  private static void writeTerm(DataOutputStream out, Value value) throws IOException {
+    if (value == null) {
+      out.writeByte(NO_TERM);
+    } else if (value instanceof IRI) {
+      out.writeByte(IRI_TERM);
+      writeString(out, value.stringValue());
+    } else if (value instanceof BNode) {
+      out.writeByte(BNODE_TERM);
+      writeString(out, value.stringValue());
+    } else if (value instanceof Triple) {
+      Triple t = (Triple) value;
+      out.writeByte(TRIPLE_TERM);
+      writeTerm(out, t.getSubject());
+      writeTerm(out, t.getPredicate());
+      writeTerm(out, t.getObject());
+    } else {
+      Literal literal = (Literal) value;
+      if (literal.getLanguage().isPresent()) {
+        out.writeByte(LANG_LITERAL_TERM);
+        writeString(out, literal.getLabel());
+        writeString(out, literal.getLanguage().get());
+      } else {
+        out.writeByte(LITERAL_TERM);
+        writeString(out, literal.getLabel());
+        writeString(out, literal.getDatatype().stringValue());
+      }
+    }
+  }
+
+  private static Value readTerm(DataInputStream in) throws IOException {
+    byte tag = in.readByte();
+    switch (tag) {
+      case NO_TERM:
+        return null;
+      case IRI_TERM:
+        return vf.createIRI(readString(in));
+      case BNODE_TERM:
+        return vf.createBNode(readString(in));
+      case TRIPLE_TERM:
+        return vf.createTriple((Resource) readTerm(in), (IRI) readTerm(in), readTerm(in));
+      case LANG_LITERAL_TERM:
+        return vf.createLiteral(readString(in), readString(in));
+      case LITERAL_TERM:
+        return vf.createLiteral(readString(in), vf.createIRI(readString(in)));
+      default:
+        throw new IOException("Unexpected term type in run file: " + tag);
+    }
+  }
+}
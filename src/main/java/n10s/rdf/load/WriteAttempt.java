@@ -0,0 +1,16 @@
+package n10s.rdf.load;
+
+/**
+ * What a transaction writing import batches has done so far: the relationships it created and
+ * its counts. Only taken into account by the import once the transaction commits, so a rolled
+ * back or retried transaction leaves nothing behind. Written by a single thread.
+ */
+class WriteAttempt {
+
+  final RelationshipIndex.Pending relationships;
+  final ChangeCounts changes = new ChangeCounts();
+
+  WriteAttempt(RelationshipIndex.Pending relationships) {
+    this.relationships = relationships;
+  }
+}
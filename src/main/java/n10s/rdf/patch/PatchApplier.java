@@ -0,0 +1,209 @@
+package n10s.rdf.patch;
+
+import static n10s.graphconfig.GraphConfig.GRAPHCONF_VOC_URI_SHORTEN;
+import static n10s.graphconfig.GraphConfig.GRAPHCONF_VOC_URI_SHORTEN_STRICT;
+
+import java.util.Map;
+import n10s.RDFToLPGStatementProcessor;
+import n10s.graphconfig.RDFParserConfig;
+import n10s.rdf.delete.DirectStatementDeleter;
+import n10s.rdf.load.DirectStatementLoader;
+import n10s.utils.InvalidNamespacePrefixDefinitionInDB;
+import n10s.utils.NsPrefixMap;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.rio.RDFHandlerException;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.logging.Log;
+
+/**
+ * Applies a stream of additions and deletions of triples in a single pass, mapped with the same
+ * graph config rules as n10s.rdf.import and n10s.rdf.delete (it drives a loader and a deleter
+ * sharing the namespace prefix map).
+ *
+ * Changes are buffered by the loader or the deleter and flushed whenever the stream switches
+ * from one kind to the other, so they are applied in stream order, but flushes only write to the
+ * current batch transaction. That one is committed once commitSize changes have gone into it, and
+ * only between changes that can be committed separately (the changes of a patch transaction are
+ * always committed together). A failed batch stops the whole stream, since later changes may
+ * depend on it.
+ */
+class PatchApplier {
+
+  private final GraphDatabaseService graphdb;
+  private final Log log;
+  private final long commitSize;
+  private final DirectStatementLoader adder;
+  private final DirectStatementDeleter deleter;
+  // the handler holding changes not flushed yet, if any
+  private RDFToLPGStatementProcessor buffering = null;
+  private Transaction batchTransaction = null;
+  private long batchChanges = 0;
+  private long batchAdded = 0;
+  private long batchDeleted = 0;
+  private long batchTransactions = 0;
+  private long triplesAdded = 0;
+  private long triplesMappedForDeletion = 0;
+  private long transactionsApplied = 0;
+
+  PatchApplier(GraphDatabaseService db, Transaction tx, RDFParserConfig conf, Log log)
+      throws InvalidNamespacePrefixDefinitionInDB {
+    this.graphdb = db;
+    this.log = log;
+    this.commitSize = conf.getCommitSize();
+    // batches are cut here, never by the handlers themselves
+    this.adder = new DirectStatementLoader(db, tx, conf, log) {
+      @Override
+      protected long currentCommitSize() {
+        return Long.MAX_VALUE;
+      }
+    };
+    this.deleter = new DirectStatementDeleter(db, tx, conf, log) {
+      @Override
+      protected long currentCommitSize() {
+        return Long.MAX_VALUE;
+      }
+    };
+    int handleVocabUris = conf.getGraphConf().getHandleVocabUris();
+    if (handleVocabUris == GRAPHCONF_VOC_URI_SHORTEN
+        || handleVocabUris == GRAPHCONF_VOC_URI_SHORTEN_STRICT) {
+      NsPrefixMap namespaces = new NsPrefixMap(db, tx, false);
+      adder.shareNamespaces(namespaces);
+      deleter.shareNamespaces(namespaces);
+    }
+  }
+
+  void start() {
+    adder.startRDF();
+    deleter.startRDF();
+  }
+
+  void add(Statement st) {
+    bufferIn(adder);
+    adder.handleStatement(st);
+    batchChanges++;
+  }
+
+  void delete(Statement st) {
+    bufferIn(deleter);
+    deleter.handleStatement(st);
+    batchChanges++;
+  }
+
+  /**
+   * A change outside any transaction has been applied. The batch can be committed.
+   */
+  void changeApplied() {
+    commitIfFull();
+  }
+
+  /**
+   * All the changes of a transaction have been applied. The batch can be committed.
+   */
+  void transactionApplied() {
+    batchTransactions++;
+    commitIfFull();
+  }
+
+  /**
+   * Commits whatever is pending.
+   */
+  void finish() {
+    commit();
+  }
+
+  /**
+   * Discards the batch being built after a failure.
+   */
+  void rollback() {
+    if (batchTransaction != null) {
+      batchTransaction.close();
+      batchTransaction = null;
+      adder.partialTxRolledBack();
+    }
+    log.error("Patch batch rolled back. " + batchChanges + " changes lost.");
+  }
+
+  long getTriplesAdded() {
+    return triplesAdded;
+  }
+
+  long getTriplesDeleted() {
+    return triplesMappedForDeletion - deleter.getNotDeletedStatementCount();
+  }
+
+  long getTransactionsApplied() {
+    return transactionsApplied;
+  }
+
+  RDFParserConfig getParserConfig() {
+    return adder.getParserConfig();
+  }
+
+  Map<String, String> getNamespaces() {
+    return adder.getNamespaces();
+  }
+
+  String getWarnings() {
+    return adder.getWarnings() + deleter.getbNodeInfo();
+  }
+
+  private void bufferIn(RDFToLPGStatementProcessor handler) {
+    if (buffering != handler) {
+      flush();
+      buffering = handler;
+    }
+  }
+
+  private void flush() {
+    if (buffering == null) {
+      return;
+    }
+    if (batchTransaction == null) {
+      batchTransaction = graphdb.beginTx();
+    }
+    if (buffering == adder) {
+      adder.runPartialTx(batchTransaction);
+      batchAdded += adder.mappedTripleCounter;
+      adder.mappedTripleCounter = 0;
+    } else {
+      deleter.runPartialTx(batchTransaction);
+      batchDeleted += deleter.mappedTripleCounter;
+      deleter.mappedTripleCounter = 0;
+    }
+    buffering = null;
+  }
+
+  private void commitIfFull() {
+    if (batchChanges >= commitSize) {
+      commit();
+    }
+  }
+
+  private void commit() {
+    flush();
+    if (batchTransaction == null) {
+      return;
+    }
+    try {
+      batchTransaction.commit();
+      adder.partialTxCommitted();
+    } catch (Exception e) {
+      adder.partialTxRolledBack();
+      throw new RDFHandlerException("Problems when committing patch batch. Batch rolled back. "
+          + batchChanges + " changes lost.", e);
+    } finally {
+      batchTransaction.close();
+      batchTransaction = null;
+    }
+    triplesAdded += batchAdded;
+    triplesMappedForDeletion += batchDeleted;
+    transactionsApplied += batchTransactions;
+    log.debug("patch batch committed: " + batchAdded + " triples added, " + batchDeleted
+        + " triples deleted.");
+    batchChanges = 0;
+    batchAdded = 0;
+    batchDeleted = 0;
+    batchTransactions = 0;
+  }
+}
@@ -0,0 +1,344 @@
+package n10s.rdf.patch;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
+import org.eclipse.rdf4j.rio.RDFParseException;
+
+/**
+ * Reader for RDF Patch (https://afs.github.io/rdf-patch/): one change per line, 'A' to add and
+ * 'D' to delete a triple (or quad, whose graph is ignored), 'TX', 'TC' and 'TA' to begin, commit
+ * and abort a transaction, 'PA' and 'PD' to add and remove a prefix usable in the terms of the
+ * following rows, and 'H' for headers, which are ignored.
+ *
+ * Terms are written as in N-Triples plus prefixed names and the Turtle shorthands for numbers
+ * and booleans.
+ */
+class RDFPatchParser {
+
+  private static final ValueFactory vf = SimpleValueFactory.getInstance();
+
+  private final PatchApplier applier;
+  private final Map<String, String> prefixes = new HashMap<>();
+  // changes of the open transaction, only applied when it commits
+  private List<Change> transaction = null;
+  private long lineNumber = 0;
+
+  RDFPatchParser(PatchApplier applier) {
+    this.applier = applier;
+  }
+
+  void parse(InputStream in) throws IOException {
+    BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+    String line;
+    while ((line = reader.readLine()) != null) {
+      lineNumber++;
+      parseRow(line);
+    }
+    if (transaction != null) {
+      throw error("Transaction not committed nor aborted at the end of the patch");
+    }
+  }
+
+  private void parseRow(String line) {
+    Tokenizer row = new Tokenizer(line);
+    String code = row.word();
+    if (code.isEmpty() || code.startsWith("#")) {
+      return;
+    }
+    switch (code) {
+      case "A":
+      case "D":
+        Resource subject = row.resource();
+        IRI predicate = row.iri();
+        Value object = row.value();
+        if (!row.atEnd()) {
+          // graph name, the graph is not mapped
+          row.resource();
+        }
+        row.end();
+        Change change = new Change(code.equals("A"),
+            vf.createStatement(subject, predicate, object));
+        if (transaction != null) {
+          transaction.add(change);
+        } else {
+          change.applyTo(applier);
+          applier.changeApplied();
+        }
+        break;
+      case "TX":
+        row.end();
+        if (transaction != null) {
+          throw error("Nested transaction");
+        }
+        transaction = new ArrayList<>();
+        break;
+      case "TC":
+        row.end();
+        if (transaction == null) {
+          throw error("Commit outside a transaction");
+        }
+        for (Change c : transaction) {
+          c.applyTo(applier);
+        }
+        transaction = null;
+        applier.transactionApplied();
+        break;
+      case "TA":
+        row.end();
+        if (transaction == null) {
+          throw error("Abort outside a transaction");
+        }
+        transaction = null;
+        break;
+      case "PA":
+        String prefix = row.word();
+        String namespace = row.iri().stringValue();
+        row.end();
+        prefixes.put(prefix.endsWith(":") ? prefix.substring(0, prefix.length() - 1) : prefix,
+            namespace);
+        break;
+      case "PD":
+        String removed = row.word();
+        prefixes.remove(removed.endsWith(":") ? removed.substring(0, removed.length() - 1)
+            : removed);
+        break;
+      case "H":
+        break;
+      default:
+        throw error("Unknown row code '" + code + "'");
+    }
+  }
+
+  private RDFParseException error(String message) {
+    return new RDFParseException(message + " (line " + lineNumber + ")", lineNumber, -1);
+  }
+
+  private static class Change {
+
+    private final boolean addition;
+    private final Statement statement;
+
+    Change(boolean addition, Statement statement) {
+      this.addition = addition;
+      this.statement = statement;
+    }
+
+    void applyTo(PatchApplier applier) {
+      if (addition) {
+        applier.add(statement);
+      } else {
+        applier.delete(statement);
+      }
+    }
+  }
+
+  private class Tokenizer {
+
+    private final String line;
+    private int pos = 0;
+
+    Tokenizer(String line) {
+      this.line = line;
+    }
+
+    private void skipSpaces() {
+      while (pos < line.length() && Character.isWhitespace(line.charAt(pos))) {
+        pos++;
+      }
+    }
+
+    boolean atEnd() {
+      skipSpaces();
+      return pos == line.length() || line.charAt(pos) == '.' || line.charAt(pos) == '#';
+    }
+
+    void end() {
+      skipSpaces();
+      if (pos < line.length() && line.charAt(pos) == '.') {
+        pos++;
+        skipSpaces();
+      }
+      if (pos < line.length() && line.charAt(pos) != '#') {
+        throw error("Unexpected '" + line.substring(pos) + "'");
+      }
+    }
+
+    String word() {
+      skipSpaces();
+      int start = pos;
+      while (pos < line.length() && !Character.isWhitespace(line.charAt(pos))) {
+        pos++;
+      }
+      return line.substring(start, pos);
+    }
+
+    // a word ending a row can have the final dot attached
+    private String term() {
+      String word = word();
+      if (word.length() > 1 && word.endsWith(".")) {
+        pos--;
+        return word.substring(0, word.length() - 1);
+      }
+      return word;
+    }
+
+    IRI iri() {
+      Value value = value();
+      if (!(value instanceof IRI)) {
+        throw error("IRI expected, found " + value);
+      }
+      return (IRI) value;
+    }
+
+    Resource resource() {
+      Value value = value();
+      if (!(value instanceof Resource)) {
+        throw error("IRI or blank node expected, found " + value);
+      }
+      return (Resource) value;
+    }
+
+    Value value() {
+      skipSpaces();
+      if (pos == line.length()) {
+        throw error("Term expected");
+      }
+      char c = line.charAt(pos);
+      if (c == '<') {
+        int end = line.indexOf('>', pos);
+        if (end < 0) {
+          throw error("Unterminated IRI");
+        }
+        String iri = unescape(line.substring(pos + 1, end));
+        pos = end + 1;
+        return vf.createIRI(iri);
+      } else if (c == '"') {
+        return literal();
+      } else if (c == '_' && pos + 1 < line.length() && line.charAt(pos + 1) == ':') {
+        pos += 2;
+        return vf.createBNode(term());
+      }
+      String token = term();
+      if (token.equals("true") || token.equals("false")) {
+        return vf.createLiteral(token, XMLSchema.BOOLEAN);
+      } else if (token.matches("[+-]?\\d+")) {
+        return vf.createLiteral(token, XMLSchema.INTEGER);
+      } else if (token.matches("[+-]?\\d*\\.\\d+")) {
+        return vf.createLiteral(token, XMLSchema.DECIMAL);
+      } else if (token.matches("[+-]?(\\d+\\.?\\d*|\\.\\d+)[eE][+-]?\\d+")) {
+        return vf.createLiteral(token, XMLSchema.DOUBLE);
+      }
+      return prefixedName(token);
+    }
+
+    private IRI prefixedName(String token) {
+      int colon = token.indexOf(':');
+      String namespace = (colon < 0 ? null : prefixes.get(token.substring(0, colon)));
+      if (namespace == null) {
+        throw error("Unknown term '" + token + "'");
+      }
+      return vf.createIRI(namespace + token.substring(colon + 1));
+    }
+
+    private Value literal() {
+      StringBuilder label = new StringBuilder();
+      pos++;
+      while (true) {
+        if (pos >= line.length()) {
+          throw error("Unterminated literal");
+        }
+        char c = line.charAt(pos);
+        if (c == '"') {
+          pos++;
+          break;
+        } else if (c == '\\') {
+          pos = unescapeAt(line, pos, label);
+        } else {
+          label.append(c);
+          pos++;
+        }
+      }
+      if (pos < line.length() && line.charAt(pos) == '@') {
+        pos++;
+        return vf.createLiteral(label.toString(), term());
+      } else if (line.startsWith("^^", pos)) {
+        pos += 2;
+        return vf.createLiteral(label.toString(), iri());
+      }
+      return vf.createLiteral(label.toString());
+    }
+
+    private String unescape(String s) {
+      if (s.indexOf('\\') < 0) {
+        return s;
+      }
+      StringBuilder unescaped = new StringBuilder();
+      for (int i = 0; i < s.length(); ) {
+        if (s.charAt(i) == '\\') {
+          i = unescapeAt(s, i, unescaped);
+        } else {
+          unescaped.append(s.charAt(i++));
+        }
+      }
+      return unescaped.toString();
+    }
+
+    // appends the character escaped at i and returns the position after the escape sequence
+    private int unescapeAt(String s, int i, StringBuilder out) {
+      if (i + 1 >= s.length()) {
+        throw error("Invalid escape sequence");
+      }
+      char c = s.charAt(i + 1);
+      switch (c) {
+        case 't':
+          out.append('\t');
+          return i + 2;
+        case 'b':
+          out.append('\b');
+          return i + 2;
+        case 'n':
+          out.append('\n');
+          return i + 2;
+        case 'r':
+          out.append('\r');
+          return i + 2;
+        case 'f':
+          out.append('\f');
+          return i + 2;
+        case '"':
+        case '\'':
+        case '\\':
+          out.append(c);
+          return i + 2;
+        case 'u':
+        case 'U':
+          int digits = (c == 'u' ? 4 : 8);
+          if (i + 2 + digits > s.length()) {
+            throw error("Invalid escape sequence");
+          }
+          try {
+            out.appendCodePoint(Integer.parseInt(s.substring(i + 2, i + 2 + digits), 16));
+          } catch (IllegalArgumentException e) {
+            throw error("Invalid escape sequence");
+          }
+          return i + 2 + digits;
+        default:
+          throw error("Invalid escape sequence \\" + c);
+      }
+    }
+  }
+}
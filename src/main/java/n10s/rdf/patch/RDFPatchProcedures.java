@@ -0,0 +1,182 @@
+package n10s.rdf.patch;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.stream.Stream;
+import n10s.ConfiguredStatementHandler;
+import n10s.graphconfig.GraphConfig;
+import n10s.graphconfig.RDFParserConfig;
+import n10s.rdf.RDFProcedures;
+import n10s.utils.InvalidNamespacePrefixDefinitionInDB;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFHandlerException;
+import org.neo4j.procedure.Description;
+import org.neo4j.procedure.Mode;
+import org.neo4j.procedure.Name;
+import org.neo4j.procedure.Procedure;
+
+public class RDFPatchProcedures extends RDFProcedures {
+
+  @Procedure(name = "n10s.rdf.patch.fetch", mode = Mode.WRITE)
+  @Description("Applies the additions and deletions of an RDF Patch read from an url (file or "
+      + "http) to a graph resulting from n10s.rdf.import. Requires a unique constraint on "
+      + ":Resource(uri)")
+  public Stream<PatchResults> fetch(@Name("url") String url,
+      @Name(value = "params", defaultValue = "{}") Map<String, Object> props) {
+    return Stream.of(doPatch(url, null, props));
+  }
+
+  @Procedure(name = "n10s.rdf.patch.inline", mode = Mode.WRITE)
+  @Description("Applies the additions and deletions of an RDF Patch passed as parameter to a "
+      + "graph resulting from n10s.rdf.import. Requires a unique constraint on :Resource(uri)")
+  public Stream<PatchResults> inline(@Name("patch") String patch,
+      @Name(value = "params", defaultValue = "{}") Map<String, Object> props) {
+    return Stream.of(doPatch(null, patch, props));
+  }
+
+  @Procedure(name = "n10s.rdf.patch.changeset.fetch", mode = Mode.WRITE)
+  @Description("Deletes the triples of a removals graph and then imports the ones of an "
+      + "additions graph (both read from urls, either can be null) in a single pass, with shared "
+      + "partial commits. Requires a unique constraint on :Resource(uri)")
+  public Stream<PatchResults> changesetFetch(@Name("removalsUrl") String removalsUrl,
+      @Name("additionsUrl") String additionsUrl, @Name("format") String format,
+      @Name(value = "params", defaultValue = "{}") Map<String, Object> props) {
+    return Stream.of(doChangeset(format, removalsUrl, null, additionsUrl, null, props));
+  }
+
+  @Procedure(name = "n10s.rdf.patch.changeset.inline", mode = Mode.WRITE)
+  @Description("Deletes the triples of a removals graph and then imports the ones of an "
+      + "additions graph (both passed as parameters, either can be null) in a single pass, with "
+      + "shared partial commits. Requires a unique constraint on :Resource(uri)")
+  public Stream<PatchResults> changesetInline(@Name("removals") String removals,
+      @Name("additions") String additions, @Name("format") String format,
+      @Name(value = "params", defaultValue = "{}") Map<String, Object> props) {
+    return Stream.of(doChangeset(format, null, removals, null, additions, props));
+  }
+
+  private PatchResults doPatch(String url, String patch, Map<String, Object> props) {
+    PatchResults results = new PatchResults();
+    PatchApplier applier = createApplier(props, results);
+    if (applier != null) {
+      try {
+        applier.start();
+        try (InputStream in = (patch != null
+            ? new ByteArrayInputStream(patch.getBytes(StandardCharsets.UTF_8))
+            : getInputStream(url, props))) {
+          new RDFPatchParser(applier).parse(in);
+        }
+        applier.finish();
+      } catch (IOException | RuntimeException e) {
+        applier.rollback();
+        results.setTerminationKO(e.getMessage());
+      }
+      setResults(applier, results, props);
+    }
+    return results;
+  }
+
+  private PatchResults doChangeset(String format, String removalsUrl, String removals,
+      String additionsUrl, String additions, Map<String, Object> props) {
+    PatchResults results = new PatchResults();
+    RDFFormat rdfFormat;
+    try {
+      rdfFormat = getFormat(format);
+    } catch (RDFImportBadParams e) {
+      results.setTerminationKO(e.getMessage());
+      return results;
+    }
+    PatchApplier applier = createApplier(props, results);
+    if (applier != null) {
+      try {
+        applier.start();
+        if (removalsUrl != null || removals != null) {
+          parseRDFPayloadOrFromUrl(rdfFormat, removalsUrl, removals, props,
+              new ChangesetHandler(applier, false));
+        }
+        if (additionsUrl != null || additions != null) {
+          parseRDFPayloadOrFromUrl(rdfFormat, additionsUrl, additions, props,
+              new ChangesetHandler(applier, true));
+        }
+        applier.finish();
+      } catch (IOException | RuntimeException e) {
+        applier.rollback();
+        results.setTerminationKO(e.getMessage());
+      }
+      setResults(applier, results, props);
+    }
+    return results;
+  }
+
+  private PatchApplier createApplier(Map<String, Object> props, PatchResults results) {
+    try {
+      checkConstraintExist();
+      return new PatchApplier(db, tx, new RDFParserConfig(props, new GraphConfig(tx)), log);
+    } catch (RDFImportPreRequisitesNotMet | InvalidNamespacePrefixDefinitionInDB e) {
+      results.setTerminationKO(e.getMessage());
+    } catch (GraphConfig.GraphConfigNotFound e) {
+      results.setTerminationKO("A Graph Config is required for RDF importing procedures to run");
+    }
+    return null;
+  }
+
+  private void setResults(PatchApplier applier, PatchResults results, Map<String, Object> props) {
+    results.setTriplesAdded(applier.getTriplesAdded());
+    results.setTriplesDeleted(applier.getTriplesDeleted());
+    results.setTransactionsApplied(applier.getTransactionsApplied());
+    results.setNamespaces(applier.getNamespaces());
+    results.setConfigSummary(props);
+    if (results.terminationStatus.equals("OK")) {
+      results.setExtraInfo(applier.getWarnings());
+    }
+  }
+
+  /**
+   * Feeds the statements of one of the graphs of a changeset to the applier, as additions or as
+   * deletions.
+   */
+  private static class ChangesetHandler extends ConfiguredStatementHandler {
+
+    private final PatchApplier applier;
+    private final boolean additions;
+
+    ChangesetHandler(PatchApplier applier, boolean additions) {
+      this.applier = applier;
+      this.additions = additions;
+    }
+
+    @Override
+    public RDFParserConfig getParserConfig() {
+      return applier.getParserConfig();
+    }
+
+    @Override
+    public void startRDF() throws RDFHandlerException {
+    }
+
+    @Override
+    public void endRDF() throws RDFHandlerException {
+    }
+
+    @Override
+    public void handleNamespace(String prefix, String uri) throws RDFHandlerException {
+    }
+
+    @Override
+    public void handleStatement(Statement st) throws RDFHandlerException {
+      if (additions) {
+        applier.add(st);
+      } else {
+        applier.delete(st);
+      }
+      applier.changeApplied();
+    }
+
+    @Override
+    public void handleComment(String comment) throws RDFHandlerException {
+    }
+  }
+}
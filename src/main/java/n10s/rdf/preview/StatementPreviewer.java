@@ -61,7 +61,7 @@ public class StatementPreviewer extends RDFToLPGStatementProcessor {
         VirtualRelationship vrel = new VirtualRelationship(
             vNodes.get(st.getSubject().stringValue().replace("'", "\'")),
             vNodes.get(st.getObject().stringValue().replace("'", "\'")),
-            RelationshipType.withName(handleIRI(st.getPredicate(), RELATIONSHIP)));
+            relationshipType(st.getPredicate()));
 
         Map<String, Object> relProps = this.relProps.get(st);
 
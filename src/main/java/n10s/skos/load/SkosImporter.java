@@ -244,7 +244,7 @@ public class SkosImporter extends RDFToLPGStatementProcessor {
             }
           });
 
-          entry.getValue().forEach(l -> node.addLabel(Label.label(l)));
+          entry.getValue().forEach(l -> node.addLabel(label(l)));
 
           resourceProps.get(entry.getKey()).forEach((k, v) -> {
             //node.setProperty(k, v);
@@ -298,13 +298,13 @@ public class SkosImporter extends RDFToLPGStatementProcessor {
         // check if the rel is already present. If so, don't recreate.
         // explore the node with the lowest degree
         boolean found = false;
-        if (fromNode.getDegree(RelationshipType.withName(handleIRI(translateRelName(st.getPredicate()), RELATIONSHIP)),
+        if (fromNode.getDegree(relationshipType(translateRelName(st.getPredicate())),
             Direction.OUTGOING) <
-            toNode.getDegree(RelationshipType.withName(handleIRI(translateRelName(st.getPredicate()), RELATIONSHIP)),
+            toNode.getDegree(relationshipType(translateRelName(st.getPredicate())),
                 Direction.INCOMING)) {
           for (Relationship rel : fromNode
               .getRelationships(Direction.OUTGOING,
-                  RelationshipType.withName(handleIRI(translateRelName(st.getPredicate()), RELATIONSHIP)))) {
+                  relationshipType(translateRelName(st.getPredicate())))) {
             if (rel.getEndNode().equals(toNode)) {
               found = true;
               break;
@@ -313,7 +313,7 @@ public class SkosImporter extends RDFToLPGStatementProcessor {
         } else {
           for (Relationship rel : toNode
               .getRelationships(Direction.INCOMING,
-                  RelationshipType.withName(handleIRI(translateRelName(st.getPredicate()), RELATIONSHIP)))) {
+                  relationshipType(translateRelName(st.getPredicate())))) {
             if (rel.getStartNode().equals(fromNode)) {
               found = true;
               break;
@@ -324,7 +324,7 @@ public class SkosImporter extends RDFToLPGStatementProcessor {
         if (!found) {
           fromNode.createRelationshipTo(
               toNode,
-              RelationshipType.withName(handleIRI(translateRelName(st.getPredicate()), RELATIONSHIP)));
+              relationshipType(translateRelName(st.getPredicate())));
         }
       } catch (ExecutionException e) {
         e.printStackTrace();
@@ -350,4 +350,8 @@ public class SkosImporter extends RDFToLPGStatementProcessor {
     }
   }
 
+  @Override
+  protected boolean storesNamespaces() {
+    return true;
+  }
 }
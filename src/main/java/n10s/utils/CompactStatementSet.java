@@ -0,0 +1,246 @@
+package n10s.utils;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+
+/**
+ * Set of the statements an import buffers between two partial commits.
+ *
+ * Statements linking two IRIs without a context (the relationships of the importers) are
+ * dictionary encoded: the subject and object uris go to one dictionary, the predicates to another,
+ * and every statement takes three ints in a primitive array plus a slot in an open addressing
+ * table used to deduplicate them. That is a few tens of bytes per statement instead of the
+ * hundreds taken by a statement object, its values and a HashSet entry, and the uri strings are
+ * usually the same instances held by the label and property buffers. Any other statement is kept
+ * as is.
+ *
+ * Encoded statements are created again whenever they are read, equal to (but not the same
+ * instance as) the ones added. Iteration returns the encoded statements in insertion order, then
+ * the others. Removing single statements is not supported: remove and the iterator's remove
+ * throw UnsupportedOperationException, only clear() empties the set.
+ */
+public class CompactStatementSet extends AbstractSet<Statement> {
+
+  private static final ValueFactory vf = SimpleValueFactory.getInstance();
+  private static final int INITIAL_CAPACITY = 16;
+  private static final String REMOVE_NOT_SUPPORTED =
+      "CompactStatementSet does not support removing single statements, use clear()";
+
+  private final Dictionary<String> uris = new Dictionary<>();
+  private final Dictionary<IRI> predicates = new Dictionary<>();
+  // subject, predicate and object ids of the i-th encoded statement at 3i, 3i+1 and 3i+2
+  private int[] triples = new int[3 * INITIAL_CAPACITY];
+  private int encodedCount = 0;
+  // index + 1 of the encoded statements by hash, 0 being a free slot
+  private int[] table = new int[2 * INITIAL_CAPACITY];
+  private final Set<Statement> others = new LinkedHashSet<>();
+
+  @Override
+  public boolean add(Statement st) {
+    if (!isEncodable(st)) {
+      return others.add(st);
+    }
+    int s = uris.add(st.getSubject().stringValue());
+    int p = predicates.add(st.getPredicate());
+    int o = uris.add(st.getObject().stringValue());
+    int slot = findSlot(s, p, o);
+    if (table[slot] != 0) {
+      return false;
+    }
+    if (3 * (encodedCount + 1) > triples.length) {
+      triples = Arrays.copyOf(triples, triples.length * 2);
+    }
+    triples[3 * encodedCount] = s;
+    triples[3 * encodedCount + 1] = p;
+    triples[3 * encodedCount + 2] = o;
+    table[slot] = ++encodedCount;
+    if (encodedCount * 2 > table.length) {
+      rehash();
+    }
+    return true;
+  }
+
+  @Override
+  public boolean contains(Object o) {
+    if (!(o instanceof Statement)) {
+      return false;
+    }
+    Statement st = (Statement) o;
+    if (!isEncodable(st)) {
+      return others.contains(st);
+    }
+    int s = uris.find(st.getSubject().stringValue());
+    int p = predicates.find(st.getPredicate());
+    int obj = uris.find(st.getObject().stringValue());
+    return s >= 0 && p >= 0 && obj >= 0 && table[findSlot(s, p, obj)] != 0;
+  }
+
+  /**
+   * Not supported: encoded statements can't be taken out of the table without rebuilding it.
+   */
+  @Override
+  public boolean remove(Object o) {
+    throw new UnsupportedOperationException(REMOVE_NOT_SUPPORTED);
+  }
+
+  @Override
+  public int size() {
+    return encodedCount + others.size();
+  }
+
+  @Override
+  public void clear() {
+    uris.clear();
+    predicates.clear();
+    triples = new int[3 * INITIAL_CAPACITY];
+    table = new int[2 * INITIAL_CAPACITY];
+    encodedCount = 0;
+    others.clear();
+  }
+
+  @Override
+  public Iterator<Statement> iterator() {
+    return new Iterator<Statement>() {
+      private int next = 0;
+      private final Iterator<Statement> othersIterator = others.iterator();
+
+      @Override
+      public boolean hasNext() {
+        return next < encodedCount || othersIterator.hasNext();
+      }
+
+      @Override
+      public Statement next() {
+        if (next < encodedCount) {
+          Statement st = vf.createStatement(vf.createIRI(uris.get(triples[3 * next])),
+              predicates.get(triples[3 * next + 1]), vf.createIRI(uris.get(triples[3 * next + 2])));
+          next++;
+          return st;
+        }
+        if (othersIterator.hasNext()) {
+          return othersIterator.next();
+        }
+        throw new NoSuchElementException();
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException(REMOVE_NOT_SUPPORTED);
+      }
+    };
+  }
+
+  private static boolean isEncodable(Statement st) {
+    return st.getContext() == null && st.getSubject() instanceof IRI
+        && st.getObject() instanceof IRI;
+  }
+
+  // slot holding the statement, or the free slot where it goes
+  private int findSlot(int s, int p, int o) {
+    int mask = table.length - 1;
+    int slot = hash(s, p, o) & mask;
+    for (int entry; (entry = table[slot]) != 0; slot = (slot + 1) & mask) {
+      int i = 3 * (entry - 1);
+      if (triples[i] == s && triples[i + 1] == p && triples[i + 2] == o) {
+        break;
+      }
+    }
+    return slot;
+  }
+
+  private void rehash() {
+    table = new int[table.length * 2];
+    int mask = table.length - 1;
+    for (int n = 0; n < encodedCount; n++) {
+      int slot = hash(triples[3 * n], triples[3 * n + 1], triples[3 * n + 2]) & mask;
+      while (table[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      table[slot] = n + 1;
+    }
+  }
+
+  private static int hash(int s, int p, int o) {
+    int h = (s * 31 + p) * 31 + o;
+    h *= 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  /**
+   * Values numbered in order of first addition.
+   */
+  private static class Dictionary<T> {
+
+    private Object[] values = new Object[INITIAL_CAPACITY];
+    private int size = 0;
+    // id + 1 of the values by hash, 0 being a free slot
+    private int[] table = new int[2 * INITIAL_CAPACITY];
+
+    int add(T value) {
+      int slot = findSlot(value);
+      if (table[slot] != 0) {
+        return table[slot] - 1;
+      }
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+      }
+      values[size] = value;
+      table[slot] = ++size;
+      if (size * 2 > table.length) {
+        rehash();
+      }
+      return size - 1;
+    }
+
+    int find(T value) {
+      return table[findSlot(value)] - 1;
+    }
+
+    @SuppressWarnings("unchecked")
+    T get(int id) {
+      return (T) values[id];
+    }
+
+    void clear() {
+      values = new Object[INITIAL_CAPACITY];
+      table = new int[2 * INITIAL_CAPACITY];
+      size = 0;
+    }
+
+    private int findSlot(T value) {
+      int mask = table.length - 1;
+      int slot = spread(value.hashCode()) & mask;
+      for (int entry; (entry = table[slot]) != 0; slot = (slot + 1) & mask) {
+        if (values[entry - 1].equals(value)) {
+          break;
+        }
+      }
+      return slot;
+    }
+
+    private void rehash() {
+      table = new int[table.length * 2];
+      int mask = table.length - 1;
+      for (int id = 0; id < size; id++) {
+        int slot = spread(values[id].hashCode()) & mask;
+        while (table[slot] != 0) {
+          slot = (slot + 1) & mask;
+        }
+        table[slot] = id + 1;
+      }
+    }
+
+    private static int spread(int h) {
+      h *= 0x9E3779B9;
+      return h ^ (h >>> 16);
+    }
+  }
+}
@@ -0,0 +1,223 @@
+package n10s.utils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import n10s.graphconfig.GraphConfig;
+import n10s.graphconfig.GraphConfig.GraphConfigNotFound;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.ResourceIterator;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.event.LabelEntry;
+import org.neo4j.graphdb.event.PropertyEntry;
+import org.neo4j.graphdb.event.TransactionData;
+import org.neo4j.graphdb.event.TransactionEventListenerAdapter;
+import org.neo4j.kernel.impl.coreapi.InternalTransaction;
+
+/**
+ * Per database cache of the metadata read by every export: the graph config, the export mappings
+ * (_MapDef and _MapNs nodes) and the namespace prefixes (_NsPrefDef). Everything cached for a
+ * database is dropped as soon as a transaction touching any of those nodes commits. Databases
+ * are only cached while {@link MetadataCacheExtensionFactory} has a listener registered on them
+ * to report these changes; otherwise every read goes to the database.
+ *
+ * Cached values reflect what is committed (they are read in a transaction of their own) and are
+ * shared between callers, so they must not be modified. The graph config is read with the
+ * caller's transaction instead when that one has uncommitted changes, so an export sees a config
+ * set earlier in the same transaction.
+ */
+public class MetadataCache {
+
+  // labels of the nodes whose contents are cached
+  static final Set<String> CACHED_LABELS = Collections.unmodifiableSet(new HashSet<>(
+      Arrays.asList("_GraphConfig", "_MapDef", "_MapNs", "_NsPrefDef")));
+  // labels of the nodes where n10s keeps its own config and state, never exported
+  public static final Set<String> META_LABELS;
+
+  static {
+    Set<String> metaLabels = new HashSet<>(CACHED_LABELS);
+    metaLabels.add("_n10sValidatorConfig");
+    metaLabels.add("_n10sImportState");
+    META_LABELS = Collections.unmodifiableSet(metaLabels);
+  }
+
+  // links a _MapDef to the _MapNs of its namespace
+  static final String MAPPING_REL_TYPE = "_IN";
+
+  private static final Map<String, MetadataCache> caches = new ConcurrentHashMap<>();
+  // stands for a value that was read as null (no graph config)
+  private static final Object NONE = new Object();
+
+  private final Map<String, Object> entries = new ConcurrentHashMap<>();
+  // bumped on every invalidation, values read before one are not cached
+  private long generation;
+
+  static void register(String databaseName) {
+    caches.put(databaseName, new MetadataCache());
+  }
+
+  static void unregister(String databaseName) {
+    caches.remove(databaseName);
+  }
+
+  static void invalidate(String databaseName) {
+    MetadataCache cache = caches.get(databaseName);
+    if (cache != null) {
+      cache.invalidate();
+    }
+  }
+
+  /**
+   * @return the cached value for the key or, if there is none or the database is not cached, the
+   * one returned by the loader, which is then cached
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> T get(GraphDatabaseService db, String key, Supplier<T> loader) {
+    MetadataCache cache = caches.get(db.databaseName());
+    if (cache == null) {
+      return loader.get();
+    }
+    Object cached = cache.entries.get(key);
+    if (cached != null) {
+      return (cached == NONE ? null : (T) cached);
+    }
+    long loadedAt = cache.currentGeneration();
+    T value = loader.get();
+    cache.put(key, (value == null ? NONE : value), loadedAt);
+    return value;
+  }
+
+  /**
+   * @return the graph config, or null if the database has none. It is read with the transaction
+   * passed when the database is not cached or the transaction has uncommitted changes (which may
+   * include the config itself).
+   */
+  public static GraphConfig getGraphConfig(GraphDatabaseService db, Transaction tx) {
+    if (!caches.containsKey(db.databaseName()) || hasUncommittedChanges(tx)) {
+      return readGraphConfig(tx);
+    }
+    return get(db, "graphConfig", () -> {
+      try (Transaction readTx = db.beginTx()) {
+        return readGraphConfig(readTx);
+      }
+    });
+  }
+
+  private static boolean hasUncommittedChanges(Transaction tx) {
+    if (tx instanceof InternalTransaction) {
+      return ((InternalTransaction) tx).kernelTransaction().dataRead()
+          .transactionStateHasChanges();
+    }
+    return true;
+  }
+
+  private static GraphConfig readGraphConfig(Transaction tx) {
+    try {
+      return new GraphConfig(tx);
+    } catch (GraphConfigNotFound graphConfigNotFound) {
+      //it's an LPG (no RDF import config)
+      return null;
+    }
+  }
+
+  private synchronized long currentGeneration() {
+    return generation;
+  }
+
+  private synchronized void put(String key, Object value, long loadedAt) {
+    if (generation == loadedAt) {
+      entries.put(key, value);
+    }
+  }
+
+  private synchronized void invalidate() {
+    generation++;
+    entries.clear();
+  }
+
+  /**
+   * Tells, before a transaction commits, whether it changes metadata, and if it does drops the
+   * cache of the database once it has committed.
+   */
+  static class ChangeListener extends TransactionEventListenerAdapter<Boolean> {
+
+    @Override
+    public Boolean beforeCommit(TransactionData data, Transaction transaction,
+        GraphDatabaseService databaseService) {
+      // meta nodes created or deleted get their labels assigned or removed
+      for (LabelEntry entry : data.assignedLabels()) {
+        if (CACHED_LABELS.contains(entry.label().name())) {
+          return true;
+        }
+      }
+      for (LabelEntry entry : data.removedLabels()) {
+        if (CACHED_LABELS.contains(entry.label().name())) {
+          return true;
+        }
+      }
+      if (changesMetaNodeProperties(data, transaction)) {
+        return true;
+      }
+      for (Relationship rel : data.createdRelationships()) {
+        if (rel.getType().name().equals(MAPPING_REL_TYPE)) {
+          return true;
+        }
+      }
+      for (Relationship rel : data.deletedRelationships()) {
+        if (rel.getType().name().equals(MAPPING_REL_TYPE)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    // meta nodes are few, so their ids are looked up (once per transaction at most) rather
+    // than the labels of every node whose properties changed
+    private boolean changesMetaNodeProperties(TransactionData data, Transaction transaction) {
+      if (!data.assignedNodeProperties().iterator().hasNext()
+          && !data.removedNodeProperties().iterator().hasNext()) {
+        return false;
+      }
+      Set<Long> metaNodeIds = metaNodeIds(transaction);
+      if (metaNodeIds.isEmpty()) {
+        return false;
+      }
+      for (PropertyEntry<Node> entry : data.assignedNodeProperties()) {
+        if (metaNodeIds.contains(entry.entity().getId())) {
+          return true;
+        }
+      }
+      for (PropertyEntry<Node> entry : data.removedNodeProperties()) {
+        if (metaNodeIds.contains(entry.entity().getId())) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private Set<Long> metaNodeIds(Transaction transaction) {
+      Set<Long> ids = new HashSet<>();
+      for (String label : CACHED_LABELS) {
+        try (ResourceIterator<Node> nodes = transaction.findNodes(Label.label(label))) {
+          nodes.forEachRemaining(n -> ids.add(n.getId()));
+        }
+      }
+      return ids;
+    }
+
+    @Override
+    public void afterCommit(TransactionData data, Boolean changesMetadata,
+        GraphDatabaseService databaseService) {
+      if (Boolean.TRUE.equals(changesMetadata)) {
+        invalidate(databaseService.databaseName());
+      }
+    }
+  }
+}
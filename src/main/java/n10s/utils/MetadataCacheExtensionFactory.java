@@ -0,0 +1,59 @@
+package n10s.utils;
+
+import static org.neo4j.configuration.GraphDatabaseSettings.SYSTEM_DATABASE_NAME;
+
+import org.neo4j.dbms.api.DatabaseManagementService;
+import org.neo4j.kernel.extension.ExtensionFactory;
+import org.neo4j.kernel.extension.ExtensionType;
+import org.neo4j.kernel.extension.context.ExtensionContext;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
+import org.neo4j.kernel.lifecycle.Lifecycle;
+import org.neo4j.kernel.lifecycle.LifecycleAdapter;
+
+/**
+ * Turns on the {@link MetadataCache} of every database while it runs, by registering the
+ * listener that drops the cache when metadata changes. Also forgets the namespace prefix
+ * registry of a database when it stops, so a database recreated under the same name starts
+ * afresh.
+ */
+public class MetadataCacheExtensionFactory extends
+    ExtensionFactory<MetadataCacheExtensionFactory.Dependencies> {
+
+  public interface Dependencies {
+
+    GraphDatabaseAPI graphdatabaseAPI();
+
+    DatabaseManagementService databaseManagementService();
+  }
+
+  public MetadataCacheExtensionFactory() {
+    super(ExtensionType.DATABASE, "n10sMetadataCache");
+  }
+
+  @Override
+  public Lifecycle newInstance(ExtensionContext context, Dependencies dependencies) {
+    String databaseName = dependencies.graphdatabaseAPI().databaseName();
+    if (SYSTEM_DATABASE_NAME.equals(databaseName)) {
+      // no listeners can be registered on it, and it holds no n10s metadata anyway
+      return new LifecycleAdapter();
+    }
+    DatabaseManagementService managementService = dependencies.databaseManagementService();
+    MetadataCache.ChangeListener listener = new MetadataCache.ChangeListener();
+    return new LifecycleAdapter() {
+
+      @Override
+      public void start() {
+        // registered first, so no change can go unnoticed once the database is cached
+        managementService.registerTransactionEventListener(databaseName, listener);
+        MetadataCache.register(databaseName);
+      }
+
+      @Override
+      public void stop() {
+        MetadataCache.unregister(databaseName);
+        NsPrefixRegistry.forget(databaseName);
+        managementService.unregisterTransactionEventListener(databaseName, listener);
+      }
+    };
+  }
+}
@@ -0,0 +1,99 @@
+package n10s.utils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Merge of new values into the array stored for a multivalued property, for the common
+ * homogeneous cases (long[], double[], String[]) without going through boxed lists and
+ * reflection.
+ *
+ * The result has the distinct values in order of first occurrence: the stored ones first, in
+ * their order, then the new ones not stored yet, in the order they are given. The generic merge
+ * (RDFToLPGStatementProcessor.mergeMultivalued) keeps the same order.
+ */
+public final class MultivalArrays {
+
+  private MultivalArrays() {
+  }
+
+  /**
+   * @param current the stored value or null
+   * @param added new values, not empty
+   * @return the merged array, or null when the values are not a homogeneous long, double or
+   * String case (the caller falls back to the generic merge)
+   */
+  public static Object merge(Object current, List<Object> added) {
+    Class<?> type = added.get(0).getClass();
+    for (Object value : added) {
+      if (value.getClass() != type) {
+        return null;
+      }
+    }
+    if (type == Long.class && (current == null || current instanceof long[])) {
+      long[] values = new long[added.size()];
+      for (int i = 0; i < values.length; i++) {
+        values[i] = (Long) added.get(i);
+      }
+      return merge(current == null ? new long[0] : (long[]) current, values);
+    } else if (type == Double.class && (current == null || current instanceof double[])) {
+      // doubles are compared (and hashed) by their bits, like Double.equals does
+      double[] stored = (current == null ? new double[0] : (double[]) current);
+      long[] storedBits = new long[stored.length];
+      for (int i = 0; i < stored.length; i++) {
+        storedBits[i] = Double.doubleToLongBits(stored[i]);
+      }
+      long[] addedBits = new long[added.size()];
+      for (int i = 0; i < addedBits.length; i++) {
+        addedBits[i] = Double.doubleToLongBits((Double) added.get(i));
+      }
+      long[] mergedBits = merge(storedBits, addedBits);
+      double[] merged = new double[mergedBits.length];
+      for (int i = 0; i < merged.length; i++) {
+        merged[i] = Double.longBitsToDouble(mergedBits[i]);
+      }
+      return merged;
+    } else if (type == String.class && (current == null || current instanceof String[])) {
+      Set<String> merged = new LinkedHashSet<>();
+      if (current != null) {
+        Collections.addAll(merged, (String[]) current);
+      }
+      for (Object value : added) {
+        merged.add((String) value);
+      }
+      return merged.toArray(new String[0]);
+    }
+    return null;
+  }
+
+  private static long[] merge(long[] stored, long[] added) {
+    int total = stored.length + added.length;
+    // distinct values in order of first occurrence
+    long[] distinct = new long[total];
+    int size = 0;
+    int mask = Integer.highestOneBit(Math.max(total, 1) * 2 + 1) * 2 - 1;
+    long[] slots = new long[mask + 1];
+    boolean[] used = new boolean[mask + 1];
+    for (int i = 0; i < total; i++) {
+      long value = (i < stored.length ? stored[i] : added[i - stored.length]);
+      int slot = spread(Long.hashCode(value)) & mask;
+      while (used[slot] && slots[slot] != value) {
+        slot = (slot + 1) & mask;
+      }
+      if (!used[slot]) {
+        used[slot] = true;
+        slots[slot] = value;
+        distinct[size++] = value;
+      }
+    }
+    return (size == total ? distinct : Arrays.copyOf(distinct, size));
+  }
+
+  // as HashMap.hash, so consecutive values don't all probe the same run of slots
+  private static int spread(int h) {
+    return h ^ (h >>> 16);
+  }
+}
@@ -0,0 +1,67 @@
+package n10s.utils;
+
+import static org.neo4j.configuration.GraphDatabaseSettings.neo4j_home;
+import static org.neo4j.configuration.SettingImpl.newBuilder;
+import static org.neo4j.configuration.SettingValueParsers.PATH;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import org.neo4j.configuration.Config;
+import org.neo4j.configuration.Description;
+import org.neo4j.configuration.SettingsDeclaration;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.config.Setting;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
+
+/**
+ * Settings read by n10s from neo4j.conf.
+ */
+public class N10sSettings implements SettingsDeclaration {
+
+  @Description("Directory under which procedures writing files on the server "
+      + "(n10s.rdf.import.toAdminCsv and n10s.rdf.export.dump) can write. Relative paths are "
+      + "resolved against the Neo4j home. These procedures are disabled while it is not set.")
+  public static final Setting<Path> export_root = newBuilder("n10s.export.root", PATH, null)
+      .build();
+
+  /**
+   * @return the directory a procedure was asked to write to, resolved against the export root
+   * (so relative paths are taken as relative to it)
+   * @throws IllegalArgumentException when no export root is configured or the directory is not
+   * inside it
+   */
+  public static File exportDirectory(GraphDatabaseService db, String dir) {
+    Config config = ((GraphDatabaseAPI) db).getDependencyResolver()
+        .resolveDependency(Config.class);
+    Path root = config.get(export_root);
+    if (root == null) {
+      throw new IllegalArgumentException("Writing files to the server is disabled. Set "
+          + export_root.name() + " in neo4j.conf to the directory they can be written to");
+    }
+    root = config.get(neo4j_home).resolve(root);
+    if (!Files.isDirectory(root)) {
+      throw new IllegalArgumentException(export_root.name() + " (" + root
+          + ") is not an existing directory");
+    }
+    try {
+      Path realRoot = root.toRealPath();
+      Path target = realRoot.resolve(dir).normalize();
+      // the part of the path that exists is resolved too, so links can't lead out of the root
+      Path existing = target;
+      while (existing != null && !Files.exists(existing)) {
+        existing = existing.getParent();
+      }
+      if (existing == null || !target.startsWith(realRoot)
+          || !existing.toRealPath().startsWith(realRoot)) {
+        throw new IllegalArgumentException("The directory " + dir + " is outside of "
+            + export_root.name() + " (" + root + ")");
+      }
+      return target.toFile();
+    } catch (IOException | InvalidPathException e) {
+      throw new IllegalArgumentException("Invalid directory " + dir + ": " + e.getMessage());
+    }
+  }
+}
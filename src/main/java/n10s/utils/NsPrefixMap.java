@@ -4,6 +4,8 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.stream.LongStream;
+import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Label;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.ResourceIterator;
@@ -49,9 +51,38 @@ public class NsPrefixMap {
 
   Map<String, String> prefixToNs = new HashMap<>();
   Map<String, String> nsToPrefix = new HashMap<>();
+  // bumped whenever an existing namespace to prefix association goes away. Additions never
+  // change an existing association (conflicting ones are rejected) so they don't bump it
+  private long version = 0;
+  // definitions added locally that have not been seen committed in the DB yet. They stay here
+  // after being written, until a later refresh finds them in the node (the write may roll back)
+  private final Map<String, String> pendingWrites = new HashMap<>();
+  private boolean removalsPending = false;
+  // shared view of the DB definitions, null when the map is not bound to a database
+  private final NsPrefixRegistry registry;
+  private long registryVersion = -1;
+  // number of the next generated prefix (nsN), one past the highest in use. Rebuilt from the
+  // definitions when they are loaded, so it persists with them. Never goes back on removals
+  private long nextGenerated = 0;
 
   public NsPrefixMap(Transaction tx, boolean acquireLock)
       throws InvalidNamespacePrefixDefinitionInDB {
+    this(tx, acquireLock, null);
+  }
+
+  /**
+   * Prefix map that coordinates with the other prefix maps on the same database: concurrent
+   * imports get the same prefix for a new namespace, and only write (and lock) the prefix
+   * definition node when they register one that is genuinely new.
+   */
+  public NsPrefixMap(GraphDatabaseService db, Transaction tx, boolean acquireLock)
+      throws InvalidNamespacePrefixDefinitionInDB {
+    this(tx, acquireLock, NsPrefixRegistry.forDatabase(db));
+  }
+
+  private NsPrefixMap(Transaction tx, boolean acquireLock, NsPrefixRegistry registry)
+      throws InvalidNamespacePrefixDefinitionInDB {
+    this.registry = registry;
     try {
 
       ResourceIterator<Node> namespacePrefixDefinitionNodes = tx
@@ -64,7 +95,7 @@ public class NsPrefixMap {
         }
 
         for (Entry<String, Object> entry : nspd.getAllProperties().entrySet()) {
-          add(entry.getKey(), (String) entry.getValue());
+          addEntry(entry.getKey(), (String) entry.getValue(), false);
         }
 
       }
@@ -73,6 +104,9 @@ public class NsPrefixMap {
       throw new InvalidNamespacePrefixDefinitionInDB("The namespace prefix definition in the DB "
           + "is invalid. Detail: " + e.getMessage());
     }
+    if (registry != null) {
+      registry.loaded(prefixToNs);
+    }
   }
 
   public String getNsForPrefix(String prefix) {
@@ -101,8 +135,23 @@ public class NsPrefixMap {
         return standardNamespaces.get(ns);
       } else {
         //it's not a standard, we need to generate next in sequence
-        String nextNsPrefix =
-            "ns" + prefixToNs.keySet().stream().filter(x -> x.startsWith("ns")).count();
+        String nextNsPrefix = null;
+        if (registry != null) {
+          // another import may have registered it already (or be about to use the next prefix)
+          nextNsPrefix = registry.reserve(ns, nextGenerated, p -> !prefixToNs.containsKey(p));
+          if (prefixToNs.containsKey(nextNsPrefix)) {
+            // agreed prefix clashes with a definition this map read from the DB
+            nextNsPrefix = null;
+          }
+        }
+        if (nextNsPrefix == null) {
+          for (String candidate : generatedPrefixes()) {
+            if (!prefixToNs.containsKey(candidate)) {
+              nextNsPrefix = candidate;
+              break;
+            }
+          }
+        }
         add(nextNsPrefix, ns);
         return nextNsPrefix;
       }
@@ -112,7 +161,33 @@ public class NsPrefixMap {
     }
   }
 
+  // nsN, nsN+1... starting at the next generated prefix
+  private Iterable<String> generatedPrefixes() {
+    long first = nextGenerated;
+    return () -> LongStream.iterate(first, i -> i + 1).mapToObj(i -> "ns" + i).iterator();
+  }
+
+  /**
+   * @return N for a prefix of the form nsN, -1 for any other prefix
+   */
+  static long generatedPrefixNumber(String prefix) {
+    if (prefix.length() < 3 || prefix.length() > 20 || !prefix.startsWith("ns")) {
+      return -1;
+    }
+    for (int i = 2; i < prefix.length(); i++) {
+      if (!Character.isDigit(prefix.charAt(i))) {
+        return -1;
+      }
+    }
+    return Long.parseLong(prefix.substring(2));
+  }
+
   public void add(String prefix, String ns) throws NamespacePrefixConflictException {
+    addEntry(prefix, ns, true);
+  }
+
+  private void addEntry(String prefix, String ns, boolean pendingWrite)
+      throws NamespacePrefixConflictException {
     if (standardPrefixes.containsKey(prefix) && !standardPrefixes.get(prefix).equals(ns)) {
       throw new NamespacePrefixConflictException("Invalid prefix + namespace combination: "
           + prefix + " is a reserved namespace prefix for <" + standardPrefixes.get(prefix) + ">");
@@ -123,6 +198,10 @@ public class NsPrefixMap {
     } else if (!prefixToNs.containsKey(prefix) && !nsToPrefix.containsKey(ns)) {
       prefixToNs.put(prefix, ns);
       nsToPrefix.put(ns, prefix);
+      nextGenerated = Math.max(nextGenerated, generatedPrefixNumber(prefix) + 1);
+      if (pendingWrite) {
+        pendingWrites.put(prefix, ns);
+      }
     } else if (prefixToNs.containsKey(prefix) && !prefixToNs.get(prefix).equals(ns)) {
       throw new NamespacePrefixConflictException(
           "prefix " + prefix + " is in use for namespace <" + prefixToNs.get(prefix) + ">");
@@ -136,16 +215,26 @@ public class NsPrefixMap {
     if (prefixToNs.containsKey(prefix)) {
       nsToPrefix.remove(prefixToNs.get(prefix));
       prefixToNs.remove(prefix);
+      pendingWrites.remove(prefix);
+      removalsPending = true;
+      version++;
     }
   }
 
   public void removeNamespace(String ns) {
     if (nsToPrefix.containsKey(ns)) {
+      pendingWrites.remove(nsToPrefix.get(ns));
       prefixToNs.remove(nsToPrefix.get(ns));
       nsToPrefix.remove(ns);
+      removalsPending = true;
+      version++;
     }
   }
 
+  public long getVersion() {
+    return version;
+  }
+
   public Set<String> getPrefixes() {
     return prefixToNs.keySet();
   }
@@ -192,15 +281,34 @@ public class NsPrefixMap {
       }
 
     } else if (!prefixToNs.isEmpty()) {
-      nsPrefDefNode = (Node) tx.execute("MERGE (n:_NsPrefDef) RETURN n ")
-          .next().get("n");
+      lockDefinitionNodeCreation(tx);
+      namespacePrefixDefinitionNodes = tx.findNodes(Label.label("_NsPrefDef"));
+      // it may have been created while we waited for the lock. Ours are added to its entries
+      nsPrefDefNode = namespacePrefixDefinitionNodes.hasNext()
+          ? namespacePrefixDefinitionNodes.next() : tx.createNode(Label.label("_NsPrefDef"));
       for (Entry<String, String> entry : prefixToNs.entrySet()) {
         nsPrefDefNode.setProperty(entry.getKey(), entry.getValue());
       }
 
     }
 
+    if (registry != null) {
+      // removals have to reach the other maps, additions only extend what they know
+      registryVersion = registry.published(prefixToNs, removalsPending);
+    }
+    removalsPending = false;
+  }
 
+  /**
+   * Serialises the creation of the definition node, so that concurrent imports don't create one
+   * each. The lock is taken on the graph config node, the one entity they all find in place, and
+   * held until the transaction ends.
+   */
+  private static void lockDefinitionNodeCreation(Transaction tx) {
+    ResourceIterator<Node> graphConfigNodes = tx.findNodes(Label.label("_GraphConfig"));
+    if (graphConfigNodes.hasNext()) {
+      tx.acquireWriteLock(graphConfigNodes.next());
+    }
   }
 
   public String toString() {
@@ -227,7 +335,7 @@ public class NsPrefixMap {
       for (Entry<String, Object> entry : nsPrefDefNode.getAllProperties().entrySet()) {
         if (!prefixToNs.containsKey(entry.getKey()) && !nsToPrefix.containsKey(entry.getValue())) {
           //it's a new entry. We get it.
-          add(entry.getKey(), (String) entry.getValue());
+          addEntry(entry.getKey(), (String) entry.getValue(), false);
         } else if (prefixToNs.containsKey(entry.getKey()) && !nsToPrefix
             .containsKey(entry.getValue())) {
           throw new DynamicNamespacePrefixConflict(
@@ -246,13 +354,59 @@ public class NsPrefixMap {
   }
 
 
+  /**
+   * Makes sure the definitions added to this map are in the DB. Definitions already committed
+   * (by this or any other import) need no write, so the definition node is only locked and
+   * written when there is something genuinely new, and then only the new entries are written.
+   */
   public Integer partialRefresh(Transaction tx) throws DynamicNamespacePrefixConflict {
 
-    if (reloadFromDB(tx)) {
-      flushToDB(tx);
+    if (pendingWrites.isEmpty() && !removalsPending) {
       return 0;
     }
-    return 1;
+
+    ResourceIterator<Node> namespacePrefixDefinitionNodes = tx
+        .findNodes(Label.label("_NsPrefDef"));
+    Node nsPrefDefNode = namespacePrefixDefinitionNodes.hasNext()
+        ? namespacePrefixDefinitionNodes.next() : null;
+
+    if (removalsPending || nsPrefDefNode == null) {
+      // rare (prefix removal or first definitions in the DB): full reconciliation
+      if (nsPrefDefNode == null) {
+        // so that the definitions of a concurrent import creating the node are reloaded first
+        lockDefinitionNodeCreation(tx);
+      }
+      if (reloadFromDB(tx)) {
+        flushToDB(tx);
+        pendingWrites.clear();
+        return 0;
+      }
+      return 1;
+    }
+
+    // drop what is already committed, no lock needed for that
+    pendingWrites.entrySet().removeIf(e -> e.getValue().equals(
+        nsPrefDefNode.getProperty(e.getKey(), null)));
+    if (pendingWrites.isEmpty()) {
+      return 0;
+    }
+
+    tx.acquireWriteLock(nsPrefDefNode);
+    if (registry == null || registry.getVersion() != registryVersion) {
+      // someone else wrote definitions since we last looked, check for conflicts
+      reloadFromDB(tx);
+    }
+    for (Entry<String, String> entry : pendingWrites.entrySet()) {
+      if (!entry.getValue().equals(nsPrefDefNode.getProperty(entry.getKey(), null))) {
+        nsPrefDefNode.setProperty(entry.getKey(), entry.getValue());
+      }
+    }
+    if (registry != null) {
+      // entries stay pending until seen committed, so a rollback of this write is repaired by
+      // the next refresh without having to distrust the version
+      registryVersion = registry.published(pendingWrites, false);
+    }
+    return 0;
   }
 
 
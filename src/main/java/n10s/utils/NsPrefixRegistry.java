@@ -0,0 +1,112 @@
+package n10s.utils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import org.neo4j.graphdb.GraphDatabaseService;
+
+/**
+ * In memory view of the namespace prefix definitions of a database, shared by all the prefix maps
+ * (imports, procedures) working on it.
+ *
+ * It lets concurrent imports agree on the prefix for a namespace none of them has committed yet,
+ * and tells a prefix map whether the _NsPrefDef node may have changed since it last read it: the
+ * version is bumped by every write to the node made through a prefix map, and those writes hold
+ * the node lock until commit, so a reader holding the lock that sees an unchanged version can
+ * trust its own copy. Entries can be ahead of the database (a reservation not committed yet, or
+ * rolled back), never in conflict with what prefix maps have written. When the database is seen
+ * without definitions that were written (the node was deleted or emptied), the registry starts
+ * over from what the database holds.
+ */
+class NsPrefixRegistry {
+
+  // per database name: every procedure call gets a facade of its own, so instances don't match.
+  // A database that is dropped and recreated starts afresh because its entry is forgotten when
+  // the database stops (see MetadataCacheExtensionFactory)
+  private static final Map<String, NsPrefixRegistry> registries = new ConcurrentHashMap<>();
+
+  private final Map<String, String> nsToPrefix = new ConcurrentHashMap<>();
+  private final Map<String, String> prefixToNs = new ConcurrentHashMap<>();
+  // the entries written to the DB by prefix maps, as opposed to only reserved
+  private final Map<String, String> published = new ConcurrentHashMap<>();
+  private final AtomicLong version = new AtomicLong();
+  // one past the highest generated prefix (nsN) known, so reservations don't probe taken ones
+  private long nextGenerated = 0;
+
+  static NsPrefixRegistry forDatabase(GraphDatabaseService db) {
+    return registries.computeIfAbsent(db.databaseName(), name -> new NsPrefixRegistry());
+  }
+
+  static void forget(String databaseName) {
+    registries.remove(databaseName);
+  }
+
+  long getVersion() {
+    return version.get();
+  }
+
+  /**
+   * Brings in the definitions read from the database (all of them, empty when there is no
+   * definition node).
+   */
+  synchronized void loaded(Map<String, String> definitions) {
+    if (published.entrySet().stream()
+        .anyMatch(e -> !e.getValue().equals(definitions.get(e.getKey())))) {
+      prefixToNs.clear();
+      nsToPrefix.clear();
+      published.clear();
+      nextGenerated = 0;
+      version.incrementAndGet();
+    }
+    seed(definitions);
+  }
+
+  // entries that clash with a known one are left out, the clash surfaces when a prefix map writes
+  private void seed(Map<String, String> definitions) {
+    definitions.forEach((prefix, ns) -> {
+      if (!prefixToNs.containsKey(prefix) && !nsToPrefix.containsKey(ns)) {
+        put(prefix, ns);
+      }
+    });
+  }
+
+  private void put(String prefix, String ns) {
+    prefixToNs.put(prefix, ns);
+    nsToPrefix.put(ns, prefix);
+    nextGenerated = Math.max(nextGenerated, NsPrefixMap.generatedPrefixNumber(prefix) + 1);
+  }
+
+  /**
+   * @return the prefix already agreed for the namespace, or the first generated prefix from
+   * firstCandidate on (nsN) that is accepted by isFree and that no other prefix map has
+   * reserved, which is then reserved for the namespace.
+   */
+  synchronized String reserve(String ns, long firstCandidate, Predicate<String> isFree) {
+    String existing = nsToPrefix.get(ns);
+    if (existing != null) {
+      return existing;
+    }
+    for (long i = Math.max(firstCandidate, nextGenerated); ; i++) {
+      String prefix = "ns" + i;
+      if (!prefixToNs.containsKey(prefix) && isFree.test(prefix)) {
+        put(prefix, ns);
+        return prefix;
+      }
+    }
+  }
+
+  /**
+   * Called by a prefix map while holding the _NsPrefDef lock, after writing to it.
+   */
+  synchronized long published(Map<String, String> definitions, boolean complete) {
+    if (complete) {
+      prefixToNs.clear();
+      nsToPrefix.clear();
+      published.clear();
+    }
+    seed(definitions);
+    published.putAll(definitions);
+    return version.incrementAndGet();
+  }
+}
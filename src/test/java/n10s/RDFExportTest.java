@@ -5,12 +5,14 @@ import n10s.mapping.MappingUtils;
 import n10s.nsprefixes.NsPrefixDefProcedures;
 import n10s.rdf.export.RDFExportProcedures;
 import n10s.rdf.load.RDFLoadProcedures;
+import n10s.utils.N10sSettings;
 import org.eclipse.rdf4j.model.*;
 import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
 import org.eclipse.rdf4j.model.vocabulary.FOAF;
 import org.eclipse.rdf4j.model.vocabulary.RDF;
 import org.eclipse.rdf4j.model.vocabulary.XSD;
 import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.Rio;
 import org.junit.Rule;
 import org.junit.Test;
 import org.neo4j.driver.*;
@@ -20,10 +22,15 @@ import org.neo4j.harness.junit.rule.Neo4jRule;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import static n10s.CommonProcedures.UNIQUENESS_CONSTRAINT_ON_URI;
 import static n10s.CommonProcedures.UNIQUENESS_CONSTRAINT_STATEMENT;
@@ -38,7 +45,8 @@ public class RDFExportTest {
       .withProcedure(MappingUtils.class)
       .withProcedure(RDFLoadProcedures.class)
       .withProcedure(GraphConfigProcedures.class)
-      .withProcedure(NsPrefixDefProcedures.class);
+      .withProcedure(NsPrefixDefProcedures.class)
+      .withConfig(N10sSettings.export_root, Paths.get(System.getProperty("java.io.tmpdir")));
 
 
   @Test
@@ -374,6 +382,193 @@ public class RDFExportTest {
     allTriplePatternsOnLPG();
   }
 
+  @Test
+  public void testExportFromCypherNodeDedup() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+            Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      session.run("CREATE (h:Hub { name: 'hub' })-[:LINKS]->(:Leaf { name: 'l1' }), "
+              + "(h)-[:LINKS]->(:Leaf { name: 'l2' })");
+
+      // the hub is in both paths
+      assertEquals(1L, hubNameTriples(session, Collections.emptyMap()));
+      assertEquals(1L, hubNameTriples(session, Collections.singletonMap("nodeDedup", "bitmap")));
+      assertEquals(2L, hubNameTriples(session, Collections.singletonMap("nodeDedup", "off")));
+      Map<String, Object> params = new HashMap<>();
+      params.put("nodeDedup", "lru");
+      assertEquals(1L, hubNameTriples(session, params));
+      // the leaf of the first path pushes the hub out of the window
+      params.put("nodeDedupWindow", 1);
+      assertEquals(2L, hubNameTriples(session, params));
+
+      // a relationship returned on its own and in a path of the same row is serialised once
+      assertEquals(2L, session.run("CALL n10s.rdf.export.cypher('MATCH p = (:Hub)-[r]->() "
+              + "RETURN r, p') YIELD predicate WHERE predicate ENDS WITH 'LINKS' "
+              + "RETURN count(*) AS ct").next().get("ct").asLong());
+    }
+  }
+
+  @Test
+  public void testDumpToFiles() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+            Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      session.run("UNWIND range(1, 9) AS i CREATE (:Person { name: 'p' + i, age: i })");
+      session.run("MATCH (a:Person), (b:Person) WHERE a.age + 1 = b.age "
+              + "CREATE (a)-[:KNOWS { since: a.age }]->(b)");
+      // removed nodes leave gaps in the id space
+      session.run("MATCH (p:Person { age: 5 }) DETACH DELETE p");
+
+      Set<String> expected = session.run("CALL n10s.rdf.export.cypher('MATCH (n) "
+              + "OPTIONAL MATCH (n)-[r]->() RETURN n, r', { includeRelProperties: false })")
+              .list().stream().map(r -> r.get("subject").asString() + " "
+                      + r.get("predicate").asString() + " " + r.get("object").asString())
+              .collect(Collectors.toSet());
+
+      String dir = Files.createTempDirectory("n10s-dump").toString();
+      Record result = session.run("CALL n10s.rdf.export.dump($dir, "
+              + "{ threads: 3, partitionSize: 2 })", Collections.singletonMap("dir", dir)).next();
+      assertEquals("OK", result.get("terminationStatus").asString());
+      assertEquals(8L, result.get("nodesWritten").asLong());
+      assertEquals(3, result.get("files").asList().size());
+
+      List<String> dumped = new ArrayList<>();
+      for (Object file : result.get("files").asList()) {
+        Model model = Rio.parse(Files.newInputStream(Paths.get((String) file)), "",
+                RDFFormat.NTRIPLES);
+        model.forEach(st -> dumped.add(st.getSubject().stringValue() + " "
+                + st.getPredicate().stringValue() + " " + st.getObject().stringValue()));
+      }
+      assertEquals(result.get("triplesWritten").asLong(), dumped.size());
+      assertEquals(expected.size(), dumped.size());
+      assertEquals(expected, new HashSet<>(dumped));
+
+      // an existing dump is not overwritten
+      assertEquals("KO", session.run("CALL n10s.rdf.export.dump($dir)",
+              Collections.singletonMap("dir", dir)).next().get("terminationStatus").asString());
+
+      // only writes under n10s.export.root
+      Record outside = session.run("CALL n10s.rdf.export.dump($dir)",
+              Collections.singletonMap("dir", "../n10s-dump-outside")).next();
+      assertEquals("KO", outside.get("terminationStatus").asString());
+      assertTrue(outside.get("extraInfo").asString().contains("outside of n10s.export.root"));
+    }
+  }
+
+  @Test
+  public void testExportSeesMappingChanges() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+            Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      session.run("CREATE (:Person { name: 'Jo' })");
+      assertEquals(DEFAULT_BASE_SCH_NS + "name", namePredicate(session));
+
+      // mappings and prefixes are cached between exports until they change
+      session.run("call n10s.nsprefixes.add('foaf','http://xmlns.com/foaf/0.1/')");
+      session.run("call n10s.mapping.add('http://xmlns.com/foaf/0.1/name','name')");
+      assertEquals("http://xmlns.com/foaf/0.1/name", namePredicate(session));
+      assertEquals("http://xmlns.com/foaf/0.1/name", namePredicate(session));
+
+      session.run("call n10s.mapping.drop('name')");
+      assertEquals(DEFAULT_BASE_SCH_NS + "name", namePredicate(session));
+    }
+  }
+
+  @Test
+  public void testExportSkipsMetaNodes() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+            Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      session.run("call n10s.nsprefixes.add('foaf','http://xmlns.com/foaf/0.1/')");
+      session.run("call n10s.mapping.add('http://xmlns.com/foaf/0.1/knows','KNOWS')");
+      session.run("CREATE (:_n10sImportState { importId: 'x' }), "
+              + "(:Person { name: 'Jo' })-[:KNOWS]->(:Person { name: 'Al' })");
+
+      Set<String> subjects = session.run("CALL n10s.rdf.export.cypher('MATCH (n) "
+              + "OPTIONAL MATCH (n)-[r]->() RETURN n, r') YIELD subject RETURN subject")
+              .list().stream().map(r -> r.get("subject").asString())
+              .collect(Collectors.toSet());
+      assertEquals(2, subjects.size());
+      assertTrue(subjects.stream().allMatch(s -> s.startsWith(BASE_INDIV_NS)));
+    }
+  }
+
+  @Test
+  public void testExportSeesGraphConfigOfSameTransaction() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+            Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      // caches the absence of a graph config
+      session.run("CALL n10s.rdf.export.cypher('MATCH (n) RETURN n')").consume();
+
+      try (Transaction tx = session.beginTransaction()) {
+        tx.run("CALL n10s.graphconfig.init({ handleVocabUris: 'KEEP' })").consume();
+        tx.run("CREATE (:Resource { uri: 'http://example.org/jo', "
+            + "`http://example.org/name`: 'Jo' })").consume();
+        assertEquals("http://example.org/name", tx.run(
+            "CALL n10s.rdf.export.cypher('MATCH (r:Resource) RETURN r') "
+                + "YIELD predicate, object WHERE object = 'Jo' RETURN predicate")
+            .next().get("predicate").asString());
+        tx.rollback();
+      }
+    }
+  }
+
+  private String namePredicate(Session session) {
+    return session.run("CALL n10s.rdf.export.cypher('MATCH (p:Person) RETURN p') "
+            + "YIELD predicate, object WHERE object = 'Jo' RETURN predicate")
+            .next().get("predicate").asString();
+  }
+
+  private long hubNameTriples(Session session, Map<String, Object> params) {
+    return session.run("CALL n10s.rdf.export.cypher('MATCH p = (:Hub)-[:LINKS]->() RETURN p', "
+            + "$params) YIELD object WHERE object = 'hub' RETURN count(*) as ct",
+            Collections.singletonMap("params", params)).next().get("ct").asLong();
+  }
+
+  @Test
+  public void testExportFromTriplePatternParallelRelationships() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+            Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      String b = "http://example.org/b";
+      session.run("CREATE (a:Resource:Person { name: 'A' })-[:KNOWS { since: 2000 }]->"
+              + "(b:Resource:Person { name: 'B', uri: $b }), "
+              + "(a)-[:KNOWS { since: 2010 }]->(b), (a)-[:KNOWS { since: 2000 }]->(b)",
+              Collections.singletonMap("b", b));
+      String a = BASE_INDIV_NS + session.run("MATCH (a { name: 'A' }) RETURN id(a) as a")
+              .next().get("a").asLong();
+      String knows = DEFAULT_BASE_SCH_NS + "KNOWS";
+
+      // parallel relationships are one triple, annotated with the properties of all of them
+      List<Record> triples = session.run("CALL n10s.rdf.export.spo(null, null, null) "
+              + "YIELD subject, predicate, subjectSPO, object WHERE predicate = $knows "
+              + "OR subjectSPO[1] = $knows RETURN subject, subjectSPO, object",
+              Collections.singletonMap("knows", knows)).list();
+      assertEquals(3, triples.size());
+      assertEquals(1, triples.stream().filter(r -> r.get("subjectSPO").isNull()).count());
+      assertEquals(new HashSet<>(Arrays.asList("2000", "2010")), triples.stream()
+              .filter(r -> !r.get("subjectSPO").isNull()).map(r -> r.get("object").asString())
+              .collect(Collectors.toSet()));
+
+      triples = session.run("CALL n10s.rdf.export.spo(null, $knows, null)",
+              Collections.singletonMap("knows", knows)).list();
+      assertEquals(1, triples.size());
+      assertEquals(b, triples.get(0).get("object").asString());
+
+      Map<String, Object> params = new HashMap<>();
+      params.put("knows", knows);
+      params.put("b", b);
+      triples = session.run("CALL n10s.rdf.export.spo(null, $knows, $b)", params).list();
+      assertEquals(1, triples.size());
+      assertEquals(a, triples.get(0).get("subject").asString());
+
+      params.put("a", a);
+      triples = session.run("CALL n10s.rdf.export.spo($a, $knows, null)", params).list();
+      assertEquals(3, triples.size());
+    }
+  }
+
   @Test
   public void testExportFromTriplePatternOnRDFGraphShortenDefault() throws Exception {
     try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
@@ -1610,6 +1805,54 @@ public class RDFExportTest {
     }
   }
 
+  @Test
+  public void testCustomDataTypeConvertersRoundTrip() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+            Config.builder().withoutEncryption().build())) {
+
+      Session session = driver.session();
+
+      initialiseGraphDB(neo4j.defaultDatabaseService(),
+              " { handleVocabUris: 'IGNORE', customDataTypeConverters: { "
+                      + "`http://www.w3.org/2001/XMLSchema#duration`: 'DURATION', "
+                      + "`http://example.org/epoch`: 'EPOCH_MILLIS', "
+                      + "`http://www.w3.org/2001/XMLSchema#hexBinary`: 'HEX_BINARY' } } ");
+
+      String rdf = "@prefix xsd: <http://www.w3.org/2001/XMLSchema#> .\n"
+              + "<http://example.org/e1> a <http://example.org/Event> ;\n"
+              + "  <http://example.org/length> \"P1DT2H\"^^xsd:duration ;\n"
+              + "  <http://example.org/at> \"2020-01-01T00:00:00Z\"^^<http://example.org/epoch> ;\n"
+              + "  <http://example.org/payload> \"0A0B\"^^xsd:hexBinary ;\n"
+              + "  <http://example.org/broken> \"soon\"^^xsd:duration .";
+      Result importResults = session.run("CALL n10s.rdf.import.inline('" + rdf + "','Turtle')");
+      assertEquals(5L, importResults.single().get("triplesLoaded").asLong());
+
+      Record stored = session.run("MATCH (e:Event) RETURN e.length = duration('P1DT2H') AS length, "
+              + "e.at AS at, e.payload AS payload, e.broken AS broken").single();
+      assertTrue(stored.get("length").asBoolean());
+      assertEquals(1577836800000L, stored.get("at").asLong());
+      assertArrayEquals(new byte[]{10, 11}, stored.get("payload").asByteArray());
+      // values the converter can't handle are kept as strings
+      assertEquals("soon", stored.get("broken").asString());
+
+      Result res = session.run(" CALL n10s.rdf.export.cypher(' MATCH (e:Event) RETURN e ') ");
+      int converted = 0;
+      while (res.hasNext()) {
+        Record next = res.next();
+        if (next.get("predicate").asString().endsWith("length")) {
+          assertEquals(XSD.DURATION.stringValue(), next.get("literalType").asString());
+          assertEquals("P1DT2H", next.get("object").asString());
+          converted++;
+        } else if (next.get("predicate").asString().endsWith("payload")) {
+          assertEquals(XSD.HEXBINARY.stringValue(), next.get("literalType").asString());
+          assertEquals("0A0B", next.get("object").asString());
+          converted++;
+        }
+      }
+      assertEquals(2, converted);
+    }
+  }
+
   private void initialiseGraphDB(GraphDatabaseService db, String graphConfigParams) {
     db.executeTransactionally(UNIQUENESS_CONSTRAINT_STATEMENT);
     db.executeTransactionally("CALL n10s.graphconfig.init(" +
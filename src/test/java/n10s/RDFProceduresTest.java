@@ -2,6 +2,7 @@ package n10s;
 
 import static n10s.CommonProcedures.UNIQUENESS_CONSTRAINT_STATEMENT;
 import static n10s.graphconfig.Params.PREFIX_SEPARATOR;
+import static n10s.rdf.load.AdminImportCsvWriter.ARRAY_DELIMITER;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -11,17 +12,24 @@ import static org.neo4j.driver.Values.NULL;
 import static org.neo4j.driver.Values.ofNode;
 
 import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.net.URISyntaxException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
 import n10s.experimental.ExperimentalImports;
 import n10s.graphconfig.GraphConfigProcedures;
 import n10s.mapping.MappingUtils;
@@ -34,7 +42,10 @@ import n10s.rdf.load.RDFLoadProcedures;
 import n10s.rdf.preview.RDFPreviewProcedures;
 import n10s.rdf.stream.RDFStreamProcedures;
 import n10s.skos.load.SKOSLoadProcedures;
+import n10s.utils.N10sSettings;
 import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.Rio;
 import org.junit.Rule;
 import org.junit.Test;
 import org.neo4j.driver.Config;
@@ -50,6 +61,9 @@ import org.neo4j.driver.types.Point;
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.event.TransactionData;
+import org.neo4j.graphdb.event.TransactionEventListenerAdapter;
 import org.neo4j.harness.junit.rule.Neo4jRule;
 
 /**
@@ -70,7 +84,8 @@ public class RDFProceduresTest {
       .withProcedure(GraphConfigProcedures.class)
       .withProcedure(NsPrefixDefProcedures.class)
       .withProcedure(ExperimentalImports.class)
-      .withProcedure(SKOSLoadProcedures.class);
+      .withProcedure(SKOSLoadProcedures.class)
+      .withConfig(N10sSettings.export_root, Paths.get(System.getProperty("java.io.tmpdir")));
 
   private String jsonLdFragment = "{\n" +
       "  \"@context\": {\n" +
@@ -599,7 +614,7 @@ public class RDFProceduresTest {
         //should not get here
         assertTrue(false);
       } catch (Exception e){
-        assertEquals("Failed to invoke procedure `n10s.rdf.import.fetch`: Caused by: java.lang.IllegalArgumentException: '!' notation for filenames can only be used with zip or tgz files", e.getMessage());
+        assertEquals("Failed to invoke procedure `n10s.rdf.import.fetch`: Caused by: java.lang.IllegalArgumentException: '!' notation for filenames can only be used with zip or tar (optionally compressed) files", e.getMessage());
       }
     }
   }
@@ -638,6 +653,43 @@ public class RDFProceduresTest {
   }
 
 
+  @Test
+  public void testImportArchiveEntriesMatchingPattern() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+            Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      initialiseGraphDB(neo4j.defaultDatabaseService(),
+              "{ handleVocabUris: 'KEEP', handleRDFTypes: 'LABELS' }");
+
+      for (String archive : new String[]{"rdf.zip", "rdf.tar.gz"}) {
+        String archiveUrl = RDFProceduresTest.class.getClassLoader().getResource(archive).toURI()
+                .toString();
+        long separately = 0;
+        for (String entry : new String[]{"rdf/moviesontology.owl",
+                "rdf/moviesontologyMultilabel.owl"}) {
+          separately += session.run("CALL n10s.rdf.import.fetch('" + archiveUrl + "!" + entry
+                  + "','RDF/XML')").single().get("triplesLoaded").asLong();
+        }
+
+        Record importResults = session.run("CALL n10s.rdf.import.fetch('" + archiveUrl
+                + "!rdf/*.owl','RDF/XML', { commitSize: 10 })").single();
+        assertEquals("OK", importResults.get("terminationStatus").asString());
+        assertEquals(separately, importResults.get("triplesLoaded").asLong());
+      }
+
+      Result importResults = session.run("CALL n10s.rdf.import.fetch('" +
+              RDFProceduresTest.class.getClassLoader().getResource("rdf.zip").toURI()
+              + "!rdf/*.nt','N-Triples')");
+      try {
+        importResults.single();
+        //should not get here
+        assertTrue(false);
+      } catch (Exception e) {
+        assertTrue(e.getMessage().contains("No entry matching rdf/*.nt"));
+      }
+    }
+  }
+
   @Test
   public void testImportSKOSInline() throws Exception {
     try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
@@ -2659,6 +2711,31 @@ public class RDFProceduresTest {
     }
   }
 
+  @Test
+  public void testIncrementalLoadMultivaluesKeepOrder() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+        Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      initialiseGraphDB(neo4j.defaultDatabaseService(), "{ handleMultival: 'ARRAY' }");
+
+      session.run("CALL n10s.rdf.import.inline('"
+          + "@prefix voc: <http://example.org/vocab/> . "
+          + "<http://example.org/ind/218> a voc:Thing ; voc:prop \"b\", \"a\" ; voc:num 30, 3 . "
+          + "','Turtle')").consume();
+      session.run("CALL n10s.rdf.import.inline('"
+          + "@prefix voc: <http://example.org/vocab/> . "
+          + "<http://example.org/ind/218> voc:prop \"c\", \"a\", \"d\" ; voc:num 20, 3, 1 . "
+          + "','Turtle')").consume();
+
+      Record record = session.run("MATCH (n:ns0__Thing) "
+          + "\nRETURN n.ns0__prop as strings, n.ns0__num as longs ").next();
+
+      // stored values first, then the new distinct ones in the order they're parsed
+      assertEquals(Arrays.asList("b", "a", "c", "d"), record.get("strings").asList());
+      assertEquals(Arrays.asList(30L, 3L, 20L, 1L), record.get("longs").asList());
+    }
+  }
+
   @Test
   public void testIncrementalLoadNamespaces() throws Exception {
     try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
@@ -2875,6 +2952,635 @@ public class RDFProceduresTest {
 
   }
 
+  @Test
+  public void dbpediaFragmentNodeIdCacheSizesTest() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+            Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      initialiseGraphDB(neo4j.defaultDatabaseService(), "{handleMultival:'ARRAY', handleRDFTypes: 'NODES'}");
+
+      Long relCount = null;
+      for (String cacheSize : new String[]{"0", "50", "100000"}) {
+        Record importResult = session.run("CALL n10s.rdf.import.fetch('" +
+                RDFProceduresTest.class.getClassLoader().getResource("dbpedia-fragment.ttl").toURI()
+                + "','Turtle', { commitSize: 200, nodeIdCacheSize: " + cacheSize + " })").next();
+        assertEquals(24869L, importResult.get("triplesLoaded").asLong());
+
+        assertEquals(4497L, session.run("MATCH (n:Resource) RETURN count(n) as nodeCount ")
+                .next().get("nodeCount").asLong());
+        long rels = session.run("MATCH (:Resource)-[r]->() RETURN count(r) as ct")
+                .next().get("ct").asLong();
+        if (relCount != null) {
+          assertEquals(relCount.longValue(), rels);
+        }
+        relCount = rels;
+
+        session.run("MATCH (r:Resource) DETACH DELETE r");
+      }
+    }
+
+  }
+
+  @Test
+  public void dbpediaFragmentSortBySubjectTest() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+            Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      initialiseGraphDB(neo4j.defaultDatabaseService(), "{handleMultival:'ARRAY', handleRDFTypes: 'NODES'}");
+
+      Map<String, Object> graph = null;
+      for (String sortBySubject : new String[]{"false", "true"}) {
+        Record importResult = session.run("CALL n10s.rdf.import.fetch('" +
+                RDFProceduresTest.class.getClassLoader().getResource("dbpedia-fragment.ttl").toURI()
+                + "','Turtle', { commitSize: 200, sortBySubject: " + sortBySubject + " })").next();
+        assertEquals("OK", importResult.get("terminationStatus").asString());
+        assertEquals(24869L, importResult.get("triplesLoaded").asLong());
+        assertEquals(25000L, importResult.get("triplesParsed").asLong());
+
+        assertEquals(4497L, session.run("MATCH (n:Resource) RETURN count(n) as nodeCount ")
+                .next().get("nodeCount").asLong());
+        //same properties (multivalued ones in the same order) and relationships
+        Map<String, Object> current = new HashMap<>();
+        session.run("MATCH (n:Resource) RETURN n.uri as uri, properties(n) as props, "
+                + "[(n)-[r]->(o) | type(r) + ' ' + o.uri] as rels").forEachRemaining(r -> {
+          List<Object> rels = new ArrayList<>(r.get("rels").asList());
+          rels.sort(Comparator.comparing(Object::toString));
+          current.put(r.get("uri").asString(), Arrays.asList(r.get("props").asMap(), rels));
+        });
+        if (graph != null) {
+          assertEquals(graph, current);
+        }
+        graph = current;
+
+        session.run("MATCH (r:Resource) DETACH DELETE r");
+      }
+    }
+
+  }
+
+  @Test
+  public void dbpediaFragmentToAdminCsvTest() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+            Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      initialiseGraphDB(neo4j.defaultDatabaseService(), "{handleMultival:'ARRAY', handleRDFTypes: 'NODES'}");
+
+      Path outputDir = Files.createTempDirectory("n10s-csv");
+      Record exportResult = session.run("CALL n10s.rdf.import.toAdminCsv('" +
+              RDFProceduresTest.class.getClassLoader().getResource("dbpedia-fragment.ttl").toURI()
+              + "','Turtle', '" + outputDir + "', { commitSize: 200 })").next();
+
+      assertEquals("OK", exportResult.get("terminationStatus").asString());
+      assertEquals(24869L, exportResult.get("triplesLoaded").asLong());
+      assertEquals(25000L, exportResult.get("triplesParsed").asLong());
+      assertEquals(4497L, exportResult.get("nodesWritten").asLong());
+      assertTrue(exportResult.get("importCommand").asString().startsWith("neo4j-admin import"));
+      assertEquals(0L, session.run("MATCH (n:Resource) RETURN count(n) as nodeCount ")
+              .next().get("nodeCount").asLong());
+
+      //same graph as the transactional import
+      session.run("CALL n10s.rdf.import.fetch('" +
+              RDFProceduresTest.class.getClassLoader().getResource("dbpedia-fragment.ttl").toURI()
+              + "','Turtle', { commitSize: 200 })");
+      assertEquals(session.run("MATCH (:Resource)-[r]->() RETURN count(r) as ct")
+              .next().get("ct").asLong(), exportResult.get("relationshipsWritten").asLong());
+
+      List<String> nodesHeader = Files.readAllLines(outputDir.resolve("nodes-header.csv"));
+      assertEquals(1, nodesHeader.size());
+      assertTrue(nodesHeader.get(0).startsWith("uri:ID,:LABEL,"));
+      assertTrue(nodesHeader.get(0).contains("ns0__alias:string[]"));
+      List<String> graphConfig = Files.readAllLines(outputDir.resolve("graphconfig.csv"));
+      assertTrue(graphConfig.get(0).contains("_handleVocabUris:int"));
+      assertTrue(graphConfig.get(1).startsWith("_GraphConfig"));
+      assertTrue(Files.readAllLines(outputDir.resolve("nsprefdef.csv")).get(1)
+              .startsWith("_NsPrefDef"));
+
+      //does not overwrite a previous export
+      assertEquals("KO", session.run("CALL n10s.rdf.import.toAdminCsv('" +
+              RDFProceduresTest.class.getClassLoader().getResource("dbpedia-fragment.ttl").toURI()
+              + "','Turtle', '" + outputDir + "')").next().get("terminationStatus").asString());
+
+      //only writes under n10s.export.root
+      for (String dir : new String[]{"../n10s-csv-outside", outputDir.getRoot().toString()}) {
+        Record outside = session.run("CALL n10s.rdf.import.toAdminCsv('" +
+                RDFProceduresTest.class.getClassLoader().getResource("dbpedia-fragment.ttl").toURI()
+                + "','Turtle', $dir)", Collections.singletonMap("dir", dir)).next();
+        assertEquals("KO", outside.get("terminationStatus").asString());
+        assertTrue(outside.get("extraInfo").asString().contains("outside of n10s.export.root"));
+      }
+    }
+
+  }
+
+  @Test
+  public void toAdminCsvCustomDataTypesTest() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+            Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      initialiseGraphDB(neo4j.defaultDatabaseService(), "{ handleVocabUris: 'IGNORE', "
+              + "customDataTypeConverters: { "
+              + "`http://www.w3.org/2001/XMLSchema#duration`: 'DURATION', "
+              + "`http://www.w3.org/2001/XMLSchema#time`: 'TIME', "
+              + "`http://www.w3.org/2001/XMLSchema#hexBinary`: 'HEX_BINARY' } }");
+
+      String rdf = "@prefix xsd: <http://www.w3.org/2001/XMLSchema#> .\n"
+              + "<http://example.org/e1> a <http://example.org/Event> ;\n"
+              + "  <http://example.org/length> \"P1DT2H\"^^xsd:duration ;\n"
+              + "  <http://example.org/starts> \"10:15:30\"^^xsd:time ;\n"
+              + "  <http://example.org/ends> \"11:15:30+01:00\"^^xsd:time ;\n"
+              + "  <http://example.org/payload> \"0A0B\"^^xsd:hexBinary .";
+      Path outputDir = Files.createTempDirectory("n10s-csv-types");
+      Path rdfFile = Files.createTempFile("n10s-csv-types", ".ttl");
+      Files.writeString(rdfFile, rdf);
+      Record exportResult = session.run("CALL n10s.rdf.import.toAdminCsv($url, 'Turtle', $dir)",
+              Map.of("url", rdfFile.toUri().toString(), "dir", outputDir.toString())).next();
+      assertEquals("OK", exportResult.get("terminationStatus").asString());
+
+      List<String> header = Arrays.asList(
+              Files.readAllLines(outputDir.resolve("nodes-header.csv")).get(0).split(","));
+      List<String> row = Arrays.asList(
+              Files.readAllLines(outputDir.resolve("nodes.csv")).get(0).split(","));
+      Map<String, String> values = new HashMap<>();
+      for (int i = 0; i < header.size(); i++) {
+        values.put(header.get(i), row.get(i));
+      }
+      assertEquals("\"P1DT2H\"", values.get("length:duration"));
+      assertEquals("\"10:15:30\"", values.get("starts:localtime"));
+      assertEquals("\"11:15:30+01:00\"", values.get("ends:time"));
+      assertEquals("\"10" + ARRAY_DELIMITER + "11\"", values.get("payload:byte[]"));
+    }
+  }
+
+  @Test
+  public void parallelNTriplesParsingTest() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+            Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      initialiseGraphDB(neo4j.defaultDatabaseService(), "{handleMultival:'ARRAY', handleRDFTypes: 'NODES'}");
+
+      Path dir = Files.createTempDirectory("n10s-parallel-nt");
+      Path ntFile = dir.resolve("dbpedia-fragment.nt");
+      try (java.io.InputStream in = RDFProceduresTest.class.getClassLoader()
+              .getResourceAsStream("dbpedia-fragment.ttl");
+           java.io.OutputStream out = Files.newOutputStream(ntFile)) {
+        Rio.write(Rio.parse(in, "", RDFFormat.TURTLE), out, RDFFormat.NTRIPLES);
+        out.write(("_:b1 <http://example.org/linksTo> _:b2 .\n"
+                + "_:b2 <http://example.org/name> \"two\" .\n").getBytes());
+      }
+
+      long[] counts = null;
+      for (String threads : new String[]{"1", "4"}) {
+        Record importResult = session.run("CALL n10s.rdf.import.fetch('" + ntFile.toUri()
+                + "','N-Triples', { commitSize: 200, parseThreads: " + threads + " })").next();
+        assertEquals("OK", importResult.get("terminationStatus").asString());
+        long[] current = new long[]{importResult.get("triplesLoaded").asLong(),
+                session.run("MATCH (n:Resource) RETURN count(n) as ct").next().get("ct").asLong(),
+                session.run("MATCH (:Resource)-[r]->() RETURN count(r) as ct").next().get("ct")
+                        .asLong()};
+        if (counts != null) {
+          assertArrayEquals(counts, current);
+        }
+        counts = current;
+        session.run("MATCH (r:Resource) DETACH DELETE r");
+      }
+      Files.delete(ntFile);
+      Files.delete(dir);
+    }
+
+  }
+
+  @Test
+  public void fetchAllConcurrentSourcesTest() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+            Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      initialiseGraphDB(neo4j.defaultDatabaseService(), "{handleMultival:'ARRAY', handleRDFTypes: 'NODES'}");
+
+      String dbpedia = RDFProceduresTest.class.getClassLoader().getResource("dbpedia-fragment.ttl")
+              .toURI().toString();
+      String multival = RDFProceduresTest.class.getClassLoader().getResource("multival.ttl")
+              .toURI().toString();
+      String multivalGlob = multival.replace("multival.ttl", "multival-multi-t?.tt*");
+
+      // reference: the same sources imported one after the other
+      long sequentialTriples = 0;
+      for (String url : new String[]{dbpedia, multival.replace("multival.ttl",
+              "multival-multi-tx.ttl")}) {
+        sequentialTriples += session.run("CALL n10s.rdf.import.fetch('" + url
+                + "','Turtle', { commitSize: 200 })").next().get("triplesLoaded").asLong();
+      }
+      long nodes = session.run("MATCH (n:Resource) RETURN count(n) as ct").next().get("ct")
+              .asLong();
+      long rels = session.run("MATCH (:Resource)-[r]->() RETURN count(r) as ct").next().get("ct")
+              .asLong();
+      session.run("MATCH (r:Resource) DETACH DELETE r");
+
+      List<Record> results = session.run("CALL n10s.rdf.import.fetchAll(['" + dbpedia + "','"
+              + multivalGlob + "'],'Turtle', { commitSize: 200, fetchThreads: 2, writerThreads: 2 })")
+              .list();
+      assertEquals(2, results.size());
+      long concurrentTriples = 0;
+      for (Record result : results) {
+        assertEquals("OK", result.get("terminationStatus").asString());
+        concurrentTriples += result.get("triplesLoaded").asLong();
+      }
+      assertEquals(sequentialTriples, concurrentTriples);
+      assertEquals(nodes, session.run("MATCH (n:Resource) RETURN count(n) as ct").next()
+              .get("ct").asLong());
+      assertEquals(rels, session.run("MATCH (:Resource)-[r]->() RETURN count(r) as ct").next()
+              .get("ct").asLong());
+    }
+
+  }
+
+  @Test
+  public void concurrentImportsAgreeOnGeneratedPrefixes() throws Exception {
+    GraphDatabaseService db = neo4j.defaultDatabaseService();
+    initialiseGraphDB(db, null);
+
+    // both imports meet the same new namespaces (in opposite order) plus some of their own
+    List<String> statuses = Collections.synchronizedList(new ArrayList<>());
+    List<Thread> imports = new ArrayList<>();
+    for (int t = 0; t < 2; t++) {
+      StringBuilder rdf = new StringBuilder();
+      for (int i = 0; i < 30; i++) {
+        int shared = (t == 0 ? i : 29 - i);
+        rdf.append("<http://example.org/res/t").append(t).append("> <http://example.org/shared")
+            .append(shared).append("#p> \"v\" .\n");
+        rdf.append("<http://example.org/res/t").append(t).append("> <http://example.org/own")
+            .append(t).append("-").append(i).append("#p> \"v\" .\n");
+      }
+      Map<String, Object> params = new HashMap<>();
+      params.put("rdf", rdf.toString());
+      imports.add(new Thread(() -> statuses.add((String) db.executeTransactionally(
+          "CALL n10s.rdf.import.inline($rdf, 'N-Triples', { commitSize: 4 })", params,
+          r -> r.next().get("terminationStatus")))));
+    }
+    for (Thread thread : imports) {
+      thread.start();
+    }
+    for (Thread thread : imports) {
+      thread.join();
+    }
+    assertEquals(Arrays.asList("OK", "OK"), statuses);
+
+    assertEquals(90L, (long) db.executeTransactionally(
+        "MATCH (n:_NsPrefDef) RETURN size(keys(n)) AS ct", new HashMap<>(),
+        r -> r.next().get("ct")));
+    // same namespace, same prefix: the shared properties land on the same keys
+    assertEquals(90L, (long) db.executeTransactionally(
+        "MATCH (r:Resource) UNWIND keys(r) AS k WITH DISTINCT k WHERE k <> 'uri' "
+            + "RETURN count(k) AS ct", new HashMap<>(), r -> r.next().get("ct")));
+  }
+
+  @Test
+  public void multivaluedArraysMergedAcrossBatches() throws Exception {
+    GraphDatabaseService db = neo4j.defaultDatabaseService();
+    initialiseGraphDB(db, "{handleMultival:'ARRAY'}");
+
+    // two imports with overlapping values, each spread over several partial commits
+    for (int[] range : new int[][]{{0, 60}, {40, 100}}) {
+      StringBuilder rdf = new StringBuilder();
+      for (int i = range[0]; i < range[1]; i++) {
+        rdf.append("<http://example.org/s> <http://example.org/n> \"").append(i * 1000L)
+            .append("\"^^<http://www.w3.org/2001/XMLSchema#long> .\n");
+        rdf.append("<http://example.org/s> <http://example.org/d> \"").append(i / 2.0)
+            .append("\"^^<http://www.w3.org/2001/XMLSchema#double> .\n");
+        rdf.append("<http://example.org/s> <http://example.org/l> \"label").append(i)
+            .append("\" .\n");
+      }
+      Map<String, Object> params = new HashMap<>();
+      params.put("rdf", rdf.toString());
+      db.executeTransactionally(
+          "CALL n10s.rdf.import.inline($rdf, 'N-Triples', { commitSize: 25 })", params);
+    }
+
+    Map<String, Object> stored = db.executeTransactionally(
+        "MATCH (s:Resource) RETURN s.ns0__n AS n, s.ns0__d AS d, s.ns0__l AS l",
+        new HashMap<>(), r -> r.next());
+    Set<Long> longs = new HashSet<>();
+    Set<Double> doubles = new HashSet<>();
+    Set<String> strings = new HashSet<>();
+    for (int i = 0; i < 100; i++) {
+      longs.add(i * 1000L);
+      doubles.add(i / 2.0);
+      strings.add("label" + i);
+    }
+    long[] n = (long[]) stored.get("n");
+    assertEquals(100, n.length);
+    assertEquals(longs, Arrays.stream(n).boxed().collect(Collectors.toSet()));
+    double[] d = (double[]) stored.get("d");
+    assertEquals(100, d.length);
+    assertEquals(doubles, Arrays.stream(d).boxed().collect(Collectors.toSet()));
+    String[] l = (String[]) stored.get("l");
+    assertEquals(100, l.length);
+    assertEquals(strings, new HashSet<>(Arrays.asList(l)));
+  }
+
+  @Test
+  public void dbpediaFragmentRelIndexTest() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+            Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      initialiseGraphDB(neo4j.defaultDatabaseService(), "{handleMultival:'ARRAY', handleRDFTypes: 'NODES'}");
+
+      Long relCount = null;
+      for (String params : new String[]{"relIndexSize: 0", "relIndexSize: 10", "freshImport: true",
+              "freshImport: true, relIndexSize: 10", "freshImport: true, relIndexSize: 0"}) {
+        // re-importing finds everything in place and must not duplicate relationships
+        int imports = params.contains("freshImport") ? 1 : 2;
+        for (int i = 0; i < imports; i++) {
+          Record importResult = session.run("CALL n10s.rdf.import.fetch('" +
+                  RDFProceduresTest.class.getClassLoader().getResource("dbpedia-fragment.ttl").toURI()
+                  + "','Turtle', { commitSize: 200, " + params + " })").next();
+          assertEquals(24869L, importResult.get("triplesLoaded").asLong());
+        }
+
+        assertEquals(4497L, session.run("MATCH (n:Resource) RETURN count(n) as nodeCount ")
+                .next().get("nodeCount").asLong());
+        long rels = session.run("MATCH (:Resource)-[r]->() RETURN count(r) as ct")
+                .next().get("ct").asLong();
+        if (relCount != null) {
+          assertEquals(relCount.longValue(), rels);
+        }
+        relCount = rels;
+
+        session.run("MATCH (r:Resource) DETACH DELETE r");
+      }
+    }
+
+  }
+
+  @Test
+  public void relIndexRolledBackBatchTest() throws Exception {
+    StringBuilder rdf = new StringBuilder();
+    for (int i = 0; i < 20; i++) {
+      rdf.append("<http://example.org/a").append(i).append("> <http://example.org/linksTo> ")
+          .append("<http://example.org/b").append(i % 5).append("> .\n");
+    }
+    // fails the first commit writing relationships
+    AtomicBoolean failNext = new AtomicBoolean();
+    TransactionEventListenerAdapter<Object> failOnce = new TransactionEventListenerAdapter<>() {
+      @Override
+      public Object beforeCommit(TransactionData data, Transaction transaction,
+          GraphDatabaseService databaseService) throws Exception {
+        if (data.createdRelationships().iterator().hasNext() && failNext.compareAndSet(true, false)) {
+          throw new Exception("batch rolled back on purpose");
+        }
+        return null;
+      }
+    };
+    neo4j.databaseManagementService().registerTransactionEventListener(
+        neo4j.defaultDatabaseService().databaseName(), failOnce);
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+            Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      initialiseGraphDB(neo4j.defaultDatabaseService(), null);
+
+      for (String params : new String[]{"relIndexSize: 10", "freshImport: true",
+          "freshImport: true, relIndexSize: 10", "freshImport: true, writerThreads: 2"}) {
+        failNext.set(true);
+        Record failedImport = session.run("CALL n10s.rdf.import.inline('" + rdf
+            + "','N-Triples', { commitSize: 5, abortOnError: false, " + params + " })").single();
+        assertFalse(failNext.get());
+        long lost = 20L - session.run("MATCH (:Resource)-[r]->() RETURN count(r) as ct")
+            .next().get("ct").asLong();
+        assertTrue(lost > 0);
+        // partitions committed before the failure are counted too
+        assertEquals(20L - lost, failedImport.get("triplesLoaded").asLong());
+
+        if (!params.contains("freshImport")) {
+          // the relationships rolled back are created when importing again, the others found
+          Record importResult = session.run("CALL n10s.rdf.import.inline('" + rdf
+              + "','N-Triples', { commitSize: 5, " + params + " })").next();
+          assertEquals(20L, importResult.get("triplesLoaded").asLong());
+          assertEquals(20L, session.run("MATCH (:Resource)-[r]->() RETURN count(r) as ct")
+              .next().get("ct").asLong());
+        }
+        assertEquals(0L, session.run("MATCH (a:Resource)-[r]->(b) WITH a, b, type(r) as t, "
+            + "count(r) as ct WHERE ct > 1 RETURN count(*) as dups").next().get("dups").asLong());
+
+        session.run("MATCH (r:Resource) DETACH DELETE r").consume();
+      }
+    } finally {
+      neo4j.databaseManagementService().unregisterTransactionEventListener(
+          neo4j.defaultDatabaseService().databaseName(), failOnce);
+    }
+  }
+
+  @Test
+  public void dbpediaFragmentPipelinedWritersTest() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+            Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      initialiseGraphDB(neo4j.defaultDatabaseService(), "{handleMultival:'ARRAY', handleRDFTypes: 'NODES'}");
+
+      Result importResults
+              = session.run("CALL n10s.rdf.import.fetch('" +
+              RDFProceduresTest.class.getClassLoader().getResource("dbpedia-fragment.ttl").toURI()
+              + "','Turtle', { commitSize: 200, writerThreads: 4, writerQueueSize: 3 })");
+
+      Record importResult = importResults.next();
+      assertEquals("OK", importResult.get("terminationStatus").asString());
+      assertEquals(24869L, importResult.get("triplesLoaded").asLong());
+      assertEquals(25000L, importResult.get("triplesParsed").asLong());
+      assertEquals(4L, importResult.get("callParams").asMap().get("writerThreads"));
+
+      assertEquals(4497L, session.run("MATCH (n:Resource) RETURN count(n) as nodeCount ")
+              .next().get("nodeCount").asLong());
+      assertEquals(0L, session.run("MATCH (n:Resource) WITH n.uri as uri, count(*) as ct "
+              + "WHERE ct > 1 RETURN count(uri) as dups").next().get("dups").asLong());
+
+      long relCount = session.run("MATCH (:Resource)-[r]->() RETURN count(r) as ct")
+              .next().get("ct").asLong();
+
+      assertTrue(session.run("MATCH (r:Resource) DETACH DELETE r RETURN count(r) as ct").next().get("ct").asLong()>0);
+
+      session.run("CALL n10s.rdf.import.fetch('" +
+              RDFProceduresTest.class.getClassLoader().getResource("dbpedia-fragment.ttl").toURI()
+              + "','Turtle', { commitSize: 200 })");
+      assertEquals(relCount, session.run("MATCH (:Resource)-[r]->() RETURN count(r) as ct")
+              .next().get("ct").asLong());
+    }
+
+  }
+
+  @Test
+  public void dbpediaFragmentAdaptiveCommitTest() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+            Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      initialiseGraphDB(neo4j.defaultDatabaseService(), "{handleMultival:'ARRAY', handleRDFTypes: 'NODES'}");
+
+      Record importResult = session.run("CALL n10s.rdf.import.fetch('" +
+              RDFProceduresTest.class.getClassLoader().getResource("dbpedia-fragment.ttl").toURI()
+              + "','Turtle', { commitSize: 200, adaptiveCommit: true, minCommitSize: 100, "
+              + "maxCommitSize: 400 })").next();
+      assertEquals("OK", importResult.get("terminationStatus").asString());
+      assertEquals(25000L, importResult.get("triplesParsed").asLong());
+      assertEquals(true, importResult.get("callParams").asMap().get("adaptiveCommit"));
+
+      Map<String, Object> commitSizes = importResult.get("commitSizes").asMap();
+      assertTrue((Long) commitSizes.get("batches") > 0);
+      assertTrue((Long) commitSizes.get("min") >= 100L);
+      assertTrue((Long) commitSizes.get("max") <= 400L);
+
+      assertEquals(4497L, session.run("MATCH (n:Resource) RETURN count(n) as nodeCount ")
+              .next().get("nodeCount").asLong());
+
+      importResult = session.run("CALL n10s.rdf.import.fetch('" +
+              RDFProceduresTest.class.getClassLoader().getResource("dbpedia-fragment.ttl").toURI()
+              + "','Turtle', { commitSize: 200 })").next();
+      assertTrue(importResult.get("commitSizes").isNull());
+    }
+
+  }
+
+  @Test
+  public void reimportSkipsUnchangedValues() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+            Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      initialiseGraphDB(neo4j.defaultDatabaseService(), "{handleMultival:'ARRAY'}");
+
+      String rdf = "@prefix ex: <http://example.org/> . "
+              + "ex:a a ex:Thing ; ex:name \"A\" ; ex:tag \"x\", \"y\" ; ex:knows ex:b . "
+              + "ex:b a ex:Thing ; ex:name \"B\" . ";
+      String importCall = "CALL n10s.rdf.import.inline($rdf, 'Turtle', { skipUnchanged: true })";
+
+      Map<String, Object> changes = session.run(importCall, Collections.singletonMap("rdf", rdf))
+              .next().get("changes").asMap();
+      assertEquals(2L, changes.get("nodesAdded"));
+      assertEquals(0L, changes.get("nodesUnchanged"));
+      assertEquals(1L, changes.get("relationshipsAdded"));
+
+      changes = session.run(importCall, Collections.singletonMap("rdf", rdf))
+              .next().get("changes").asMap();
+      assertEquals(0L, changes.get("nodesAdded"));
+      assertEquals(0L, changes.get("nodesChanged"));
+      assertEquals(2L, changes.get("nodesUnchanged"));
+      assertEquals(0L, changes.get("relationshipsAdded"));
+      assertEquals(1L, changes.get("relationshipsUnchanged"));
+
+      changes = session.run(importCall, Collections.singletonMap("rdf",
+              "@prefix ex: <http://example.org/> . ex:a ex:knows ex:b . ex:b ex:name \"B2\" . "))
+              .next().get("changes").asMap();
+      assertEquals(1L, changes.get("nodesChanged"));
+      assertEquals(1L, changes.get("nodesUnchanged"));
+      assertEquals(1L, changes.get("relationshipsUnchanged"));
+
+      assertEquals(2L, session.run("MATCH (n:Resource) RETURN count(n) as ct")
+              .next().get("ct").asLong());
+      assertEquals(1L, session.run("MATCH ()-[r]->() RETURN count(r) as ct")
+              .next().get("ct").asLong());
+      assertEquals(2, session.run("MATCH (n:Resource { uri: 'http://example.org/b' }) "
+              + "RETURN [k IN keys(n) WHERE k ENDS WITH '__name' | n[k]][0] as name").next()
+              .get("name").asList().size());
+    }
+
+  }
+
+  @Test
+  public void resumeImportFromCheckpoint() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+            Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      initialiseGraphDB(neo4j.defaultDatabaseService(), null);
+
+      StringBuilder ntriples = new StringBuilder("# five subjects\n");
+      StringBuilder turtle = new StringBuilder("@prefix ex: <http://example.org/> .\n");
+      for (String s : new String[]{"a", "b", "c", "d", "e"}) {
+        ntriples.append("<http://example.org/").append(s)
+                .append("> <http://example.org/name> \"").append(s).append("\" .\n\n");
+        turtle.append("ex:").append(s).append(" ex:name \"").append(s).append("\" .\n");
+      }
+
+      for (String[] source : new String[][]{{ntriples.toString(), "N-Triples"},
+              {turtle.toString(), "Turtle"}}) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("rdf", source[0]);
+        params.put("format", source[1]);
+        Record result = session.run("CALL n10s.rdf.import.inline($rdf, $format, "
+                + "{ commitSize: 2, importId: 'names' })", params).next();
+        assertEquals("OK", result.get("terminationStatus").asString());
+        assertEquals(5L, result.get("triplesLoaded").asLong());
+        Record state = session.run("MATCH (s:_n10sImportState { importId: 'names' }) "
+                + "RETURN s.triplesParsed as parsed, s.status as status").next();
+        assertEquals(5L, state.get("parsed").asLong());
+        assertEquals("COMPLETE", state.get("status").asString());
+
+        // as if the run had failed after the partial commit of the first three triples
+        session.run("MATCH (s:_n10sImportState { importId: 'names' }) "
+                + "SET s.triplesParsed = 3, s.triplesLoaded = 3, s.status = 'FAILED'");
+        session.run("MATCH (r:Resource) DETACH DELETE r");
+
+        result = session.run("CALL n10s.rdf.import.inline($rdf, $format, "
+                + "{ commitSize: 2, importId: 'names', resume: true })", params).next();
+        assertEquals("OK", result.get("terminationStatus").asString());
+        assertEquals(2L, result.get("triplesLoaded").asLong());
+        assertEquals(2L, result.get("triplesParsed").asLong());
+        assertEquals(Arrays.asList("http://example.org/d", "http://example.org/e"),
+                session.run("MATCH (r:Resource) RETURN r.uri as uri ORDER BY uri").list(
+                        r -> r.get("uri").asString()));
+        state = session.run("MATCH (s:_n10sImportState { importId: 'names' }) "
+                + "RETURN s.triplesParsed as parsed, s.triplesLoaded as loaded, "
+                + "s.status as status").next();
+        assertEquals(5L, state.get("parsed").asLong());
+        assertEquals(5L, state.get("loaded").asLong());
+        assertEquals("COMPLETE", state.get("status").asString());
+
+        session.run("MATCH (r:Resource) DETACH DELETE r");
+      }
+    }
+
+  }
+
+  @Test
+  public void resumeImportKeepsBlankNodeIds() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+            Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      initialiseGraphDB(neo4j.defaultDatabaseService(), null);
+
+      String ntriples = "_:x <http://example.org/name> \"x\" .\n"
+              + "<http://example.org/a> <http://example.org/knows> _:x .\n"
+              + "<http://example.org/b> <http://example.org/knows> _:x .\n";
+      String turtle = "@prefix ex: <http://example.org/> .\n"
+              + "_:x ex:name \"x\" .\n"
+              + "ex:a ex:knows _:x .\n"
+              + "ex:b ex:knows _:x .\n";
+      for (String[] source : new String[][]{{ntriples, "N-Triples"}, {turtle, "Turtle"}}) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("rdf", source[0]);
+        params.put("format", source[1]);
+        assertEquals("OK", session.run("CALL n10s.rdf.import.inline($rdf, $format, "
+                + "{ commitSize: 2, importId: 'bnodes' })", params).next()
+                .get("terminationStatus").asString());
+
+        // as if the run had failed after the partial commit of the first two triples
+        session.run("MATCH (s:_n10sImportState { importId: 'bnodes' }) "
+                + "SET s.triplesParsed = 2, s.triplesLoaded = 2, s.status = 'FAILED'").consume();
+        session.run("MATCH (:Resource { uri: 'http://example.org/b' })-[r]->() DELETE r")
+                .consume();
+
+        Record result = session.run("CALL n10s.rdf.import.inline($rdf, $format, "
+                + "{ commitSize: 2, importId: 'bnodes', resume: true })", params).next();
+        assertEquals("OK", result.get("terminationStatus").asString());
+        assertEquals(1L, result.get("triplesLoaded").asLong());
+
+        // the blank node of the resumed run is the one created before the checkpoint
+        assertEquals(1L, session.run("MATCH (n:Resource) WHERE n.uri STARTS WITH 'bnode://' "
+                + "RETURN count(n) as ct").next().get("ct").asLong());
+        assertEquals(2L, session.run("MATCH (:Resource)-[:ns0__knows]->(x:Resource) "
+                + "WHERE x.ns0__name = 'x' RETURN count(*) as ct").next().get("ct").asLong());
+
+        session.run("MATCH (n) WHERE n:Resource OR n:_n10sImportState DETACH DELETE n")
+                .consume();
+      }
+    }
+
+  }
+
   @Test
   public void multivalMultitypeSamePartialTx() throws Exception {
     try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
@@ -268,6 +268,38 @@ public class NsPrefixDefProceduresTest {
     }
   }
 
+  @Test
+  public void testGeneratedPrefixesFollowHighestInUse() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+        Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      initialiseGraphDB(neo4j.defaultDatabaseService(), null);
+      session.run("CALL n10s.nsprefixes.add('ns0','http://myvoc0#')");
+      session.run("CALL n10s.nsprefixes.add('ns7','http://myvoc7#')");
+      session.run("CALL n10s.nsprefixes.add('nsx','http://myvocx#')");
+
+      StringBuilder rdf = new StringBuilder();
+      for (int i = 0; i < 2000; i++) {
+        rdf.append("<http://example.org/res> <http://example.org/voc").append(i)
+            .append("#p> \"v\" .\n");
+      }
+      Map<String, Object> params = new HashMap<>();
+      params.put("rdf", rdf.toString());
+      Result res = session.run("CALL n10s.rdf.import.inline($rdf, 'N-Triples')", params);
+      assertEquals(2000L, res.next().get("triplesLoaded").asLong());
+
+      res = session.run("CALL n10s.nsprefixes.list() YIELD prefix, namespace "
+          + "WHERE namespace STARTS WITH 'http://example.org/voc' "
+          + "RETURN prefix, namespace ORDER BY namespace LIMIT 1");
+      Record next = res.next();
+      assertEquals("http://example.org/voc0#", next.get("namespace").asString());
+      assertEquals("ns8", next.get("prefix").asString());
+      res = session.run("CALL n10s.nsprefixes.list() YIELD prefix "
+          + "RETURN count(prefix) AS ct");
+      assertEquals(2003L, res.next().get("ct").asLong());
+    }
+  }
+
   private void initialiseGraphDB(GraphDatabaseService db, String graphConfigParams) {
     db.executeTransactionally(UNIQUENESS_CONSTRAINT_STATEMENT);
     db.executeTransactionally("CALL n10s.graphconfig.init(" +
@@ -0,0 +1,126 @@
+package n10s.patch;
+
+import static n10s.CommonProcedures.UNIQUENESS_CONSTRAINT_STATEMENT;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import n10s.graphconfig.GraphConfigProcedures;
+import n10s.rdf.load.RDFLoadProcedures;
+import n10s.rdf.patch.RDFPatchProcedures;
+import org.junit.Rule;
+import org.junit.Test;
+import org.neo4j.driver.Config;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.GraphDatabase;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Session;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.harness.junit.rule.Neo4jRule;
+
+public class RDFPatchProceduresTest {
+
+  private static final String INITIAL_DATA = "@prefix ex: <http://example.org/> . "
+      + "ex:a ex:name \"A\" ; ex:knows ex:b . ex:b ex:name \"B\" . ";
+
+  @Rule
+  public Neo4jRule neo4j = new Neo4jRule()
+      .withProcedure(RDFLoadProcedures.class)
+      .withProcedure(GraphConfigProcedures.class)
+      .withProcedure(RDFPatchProcedures.class);
+
+  @Test
+  public void testApplyPatch() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+        Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      initialiseGraphDB(neo4j.defaultDatabaseService(), null);
+      session.run("CALL n10s.rdf.import.inline($rdf, 'Turtle')",
+          Collections.singletonMap("rdf", INITIAL_DATA));
+
+      String patch = "H id <uuid:0a1b2c3d> .\n"
+          + "PA ex <http://example.org/> .\n"
+          + "TX .\n"
+          + "D ex:a ex:name \"A\" .\n"
+          + "A ex:a ex:name \"A2\" .\n"
+          + "A ex:a ex:knows ex:c .\n"
+          + "TC .\n"
+          + "TX .\n"
+          + "A ex:d ex:name \"D\" .\n"
+          + "TA .\n"
+          + "D <http://example.org/a> <http://example.org/knows> <http://example.org/b> .\n";
+      Record result = session.run("CALL n10s.rdf.patch.inline($patch, { commitSize: 2 })",
+          Collections.singletonMap("patch", patch)).next();
+      assertEquals("OK", result.get("terminationStatus").asString());
+      assertEquals(2L, result.get("triplesAdded").asLong());
+      assertEquals(2L, result.get("triplesDeleted").asLong());
+      assertEquals(1L, result.get("transactionsApplied").asLong());
+
+      assertEquals("A2", nameOf(session, "http://example.org/a"));
+      assertEquals("B", nameOf(session, "http://example.org/b"));
+      assertEquals("http://example.org/c", session.run(
+          "MATCH ({ uri: 'http://example.org/a' })-->(x) RETURN collect(x.uri) as targets")
+          .next().get("targets").asList().get(0));
+      assertEquals(1L, session.run("MATCH ()-[r]->() RETURN count(r) as ct")
+          .next().get("ct").asLong());
+      assertFalse(session.run("MATCH (d:Resource { uri: 'http://example.org/d' }) RETURN d")
+          .hasNext());
+    }
+  }
+
+  @Test
+  public void testPatchSyntaxError() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+        Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      initialiseGraphDB(neo4j.defaultDatabaseService(), null);
+
+      Record result = session.run("CALL n10s.rdf.patch.inline($patch)",
+          Collections.singletonMap("patch", "A <http://example.org/a> <http://example.org/p> .\n"))
+          .next();
+      assertEquals("KO", result.get("terminationStatus").asString());
+      assertTrue(result.get("extraInfo").asString().contains("line 1"));
+    }
+  }
+
+  @Test
+  public void testApplyChangeset() throws Exception {
+    try (Driver driver = GraphDatabase.driver(neo4j.boltURI(),
+        Config.builder().withoutEncryption().build()); Session session = driver.session()) {
+
+      initialiseGraphDB(neo4j.defaultDatabaseService(), null);
+      session.run("CALL n10s.rdf.import.inline($rdf, 'Turtle')",
+          Collections.singletonMap("rdf", INITIAL_DATA));
+
+      Map<String, Object> params = new HashMap<>();
+      params.put("removals", "<http://example.org/b> <http://example.org/name> \"B\" .");
+      params.put("additions", "<http://example.org/b> <http://example.org/name> \"B2\" .\n"
+          + "<http://example.org/b> <http://example.org/knows> <http://example.org/a> .");
+      Record result = session.run(
+          "CALL n10s.rdf.patch.changeset.inline($removals, $additions, 'N-Triples')", params)
+          .next();
+      assertEquals("OK", result.get("terminationStatus").asString());
+      assertEquals(2L, result.get("triplesAdded").asLong());
+      assertEquals(1L, result.get("triplesDeleted").asLong());
+
+      assertEquals("B2", nameOf(session, "http://example.org/b"));
+      assertEquals(2L, session.run("MATCH ()-[r]->() RETURN count(r) as ct")
+          .next().get("ct").asLong());
+    }
+  }
+
+  private String nameOf(Session session, String uri) {
+    return session.run("MATCH (n:Resource { uri: $uri }) "
+        + "RETURN [k IN keys(n) WHERE k ENDS WITH '__name' | n[k]][0] as name",
+        Collections.singletonMap("uri", uri)).next().get("name").asString();
+  }
+
+  private void initialiseGraphDB(GraphDatabaseService db, String graphConfigParams) {
+    db.executeTransactionally(UNIQUENESS_CONSTRAINT_STATEMENT);
+    db.executeTransactionally("CALL n10s.graphconfig.init(" +
+        (graphConfigParams != null ? graphConfigParams : "{}") + ")");
+  }
+}
@@ -0,0 +1,121 @@
+package n10s.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.junit.Test;
+
+public class CompactStatementSetTest {
+
+  private static final ValueFactory vf = SimpleValueFactory.getInstance();
+  private static final IRI KNOWS = vf.createIRI("http://example.org/vocab/knows");
+  private static final IRI NAME = vf.createIRI("http://example.org/vocab/name");
+
+  private static IRI ind(int i) {
+    return vf.createIRI("http://example.org/ind/" + i);
+  }
+
+  @Test
+  public void testAddAndContains() {
+    CompactStatementSet set = new CompactStatementSet();
+    Statement rel = vf.createStatement(ind(1), KNOWS, ind(2));
+    Statement literal = vf.createStatement(ind(1), NAME, vf.createLiteral("one"));
+    Statement inGraph = vf.createStatement(ind(1), KNOWS, ind(2), ind(99));
+
+    assertTrue(set.add(rel));
+    assertTrue(set.add(literal));
+    assertTrue(set.add(inGraph));
+    assertEquals(3, set.size());
+
+    assertFalse(set.add(vf.createStatement(ind(1), KNOWS, ind(2))));
+    assertFalse(set.add(vf.createStatement(ind(1), NAME, vf.createLiteral("one"))));
+    assertFalse(set.add(vf.createStatement(ind(1), KNOWS, ind(2), ind(99))));
+    assertEquals(3, set.size());
+
+    assertTrue(set.contains(vf.createStatement(ind(1), KNOWS, ind(2))));
+    assertTrue(set.contains(literal));
+    assertTrue(set.contains(inGraph));
+    assertFalse(set.contains(vf.createStatement(ind(2), KNOWS, ind(1))));
+    assertFalse(set.contains(vf.createStatement(ind(1), NAME, ind(2))));
+    assertFalse(set.contains(vf.createStatement(ind(3), KNOWS, ind(4))));
+    assertFalse(set.contains("not a statement"));
+  }
+
+  @Test
+  public void testIterationOrder() {
+    CompactStatementSet set = new CompactStatementSet();
+    Statement literal = vf.createStatement(ind(1), NAME, vf.createLiteral("one"));
+    Statement rel1 = vf.createStatement(ind(3), KNOWS, ind(1));
+    Statement rel2 = vf.createStatement(ind(1), KNOWS, ind(2));
+    set.add(literal);
+    set.add(rel1);
+    set.add(rel2);
+
+    // encoded statements in insertion order, then the others
+    List<Statement> read = new ArrayList<>(set);
+    assertEquals(Arrays.asList(rel1, rel2, literal), read);
+  }
+
+  @Test
+  public void testGrowsAndClears() {
+    CompactStatementSet set = new CompactStatementSet();
+    int count = 10000;
+    for (int i = 0; i < count; i++) {
+      assertTrue(set.add(vf.createStatement(ind(i), KNOWS, ind(i + 1))));
+    }
+    for (int i = 0; i < count; i++) {
+      assertFalse(set.add(vf.createStatement(ind(i), KNOWS, ind(i + 1))));
+    }
+    assertEquals(count, set.size());
+    for (int i = 0; i < count; i++) {
+      assertTrue(set.contains(vf.createStatement(ind(i), KNOWS, ind(i + 1))));
+    }
+    assertFalse(set.contains(vf.createStatement(ind(count), KNOWS, ind(0))));
+
+    int i = 0;
+    for (Statement st : set) {
+      assertEquals(vf.createStatement(ind(i), KNOWS, ind(i + 1)), st);
+      i++;
+    }
+    assertEquals(count, i);
+
+    set.clear();
+    assertEquals(0, set.size());
+    assertFalse(set.iterator().hasNext());
+    assertFalse(set.contains(vf.createStatement(ind(0), KNOWS, ind(1))));
+    assertTrue(set.add(vf.createStatement(ind(0), KNOWS, ind(1))));
+    assertEquals(1, set.size());
+  }
+
+  @Test
+  public void testRemoveNotSupported() {
+    CompactStatementSet set = new CompactStatementSet();
+    Statement rel = vf.createStatement(ind(1), KNOWS, ind(2));
+    set.add(rel);
+    try {
+      set.remove(rel);
+      fail("remove should not be supported");
+    } catch (UnsupportedOperationException e) {
+      assertTrue(e.getMessage().contains("clear()"));
+    }
+    Iterator<Statement> it = set.iterator();
+    it.next();
+    try {
+      it.remove();
+      fail("remove should not be supported");
+    } catch (UnsupportedOperationException e) {
+      assertTrue(e.getMessage().contains("clear()"));
+    }
+    assertTrue(set.contains(rel));
+  }
+}